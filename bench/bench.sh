@@ -0,0 +1,18 @@
+#!/bin/bash
+# Usage: ./bench/bench.sh [benchmark pattern] [JMH options], e.g. ./bench/bench.sh MoveEngineBenchmark
+# or ./bench/bench.sh SolveBenchmark -p solverCase=astar/0/inputs/puzzle4.txt
+# builds benchmarks.jar and runs it with fixed forks, warmup, and measurement, so runs on different machines or
+# commits compare like for like; needs JDK 17 or later (the build enforces it)
+# results go to bench/target/results.json with the JDK and commit they were measured on in bench/target/results.txt
+
+cd "$(dirname "$0")/.." || exit 1
+
+mvn -B -q -f bench/pom.xml package || exit 1
+
+{
+    git rev-parse HEAD
+    java -version 2>&1
+} > bench/target/results.txt
+
+java -jar bench/target/benchmarks.jar -f 1 -wi 5 -w 1s -i 5 -r 1s \
+    -rf json -rff bench/target/results.json "$@" | tee -a bench/target/results.txt
@@ -0,0 +1,109 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Random;
+
+import puzzle.bench.PuzzleOps;
+
+/**
+ * Implements the benchmarked operations on the solver classes, from the default package they live in
+ * Loaded by PuzzleOps.create; only used by the benchmarks
+ */
+public class BenchBridge implements PuzzleOps {
+
+    private int[][] initialGrid;
+    private int goalTile;
+    private int[] spawnPool;
+    private PuzzleGrid puzzleGrid;
+    private PuzzleGrid equalGrid;  // equal to puzzleGrid, but a different object
+    private AStarHeuristicAdmissible admissible = new AStarHeuristicAdmissible();
+
+    @Override
+    public void load(Path inputFile) {
+        try(InputStream file = new FileInputStream(inputFile.toFile())) {
+            InputScanner input = new InputScanner();
+            input.read(file);
+            initialGrid = input.getInitialGrid();
+            goalTile = input.getGoalTile();
+            spawnPool = input.getSpawnPool();
+        } catch(IOException e) {
+            throw new Error("Could not read " + inputFile, e);
+        }
+        puzzleGrid = new PuzzleGrid(initialGrid, goalTile, spawnPool);
+        equalGrid = new PuzzleGrid(puzzleGrid);
+    }
+
+    @Override
+    public void loadRandom(int size, long seed) {
+        // a quarter of the cells empty and the rest powers of two up to 1024, so every swipe moves and merges tiles
+        Random random = new Random(seed);
+        initialGrid = new int[size][size];
+        for(int row = 0; row < size; row++) {
+            for(int col = 0; col < size; col++) {
+                initialGrid[row][col] = random.nextInt(4) == 0 ? 0 : 2 << random.nextInt(10);
+            }
+        }
+        goalTile = 2048;
+        spawnPool = new int[] {2, 4};
+        puzzleGrid = new PuzzleGrid(initialGrid, goalTile, spawnPool);
+        equalGrid = new PuzzleGrid(puzzleGrid);
+    }
+
+    @Override
+    public void selectMoveEngine(String name) {
+        MoveEngine.select(name);
+    }
+
+    @Override
+    public String getMoveEngine() {
+        return puzzleGrid.getSpec().getMoveEngine() == null ? "scalar" : "vector";
+    }
+
+    @Override
+    public long copy() {
+        return new PuzzleGrid(puzzleGrid).getStateKey();
+    }
+
+    @Override
+    public boolean move(char direction) {
+        return new PuzzleGrid(puzzleGrid).move(direction);
+    }
+
+    @Override
+    public int getNeighbors() {
+        return puzzleGrid.getNeighbors().size();
+    }
+
+    @Override
+    public boolean checkGoal() {
+        return puzzleGrid.checkGoal();
+    }
+
+    @Override
+    public boolean equalsCopy() {
+        return puzzleGrid.equals(equalGrid);
+    }
+
+    @Override
+    public int gridHashCode() {
+        return puzzleGrid.hashCode();
+    }
+
+    @Override
+    public int computeGridScore() {
+        return admissible.computeGridScore(puzzleGrid);
+    }
+
+    @Override
+    public double admissibleH() {
+        return admissible.h(puzzleGrid);
+    }
+
+    @Override
+    public int solve(String solver, String heuristic) {
+        SolverOptions options = new SolverOptions(new String[] {heuristic, "--solver=" + solver});
+        PuzzleGrid solution = options.createSolver(initialGrid, goalTile, spawnPool).solve();
+        return solution == null ? -1 : solution.getDepth();
+    }
+}
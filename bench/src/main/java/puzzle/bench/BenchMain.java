@@ -0,0 +1,29 @@
+package puzzle.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar, which runs JMH with the gc profiler always on so every result comes with its
+ * allocation rate (gc.alloc.rate.norm is bytes allocated per operation)
+ * Takes the usual JMH arguments, e.g. a benchmark name pattern or -p solverCase=astar/0/inputs/puzzle4.txt
+ */
+public class BenchMain {
+
+    /**
+     * Runs the benchmarks selected by the arguments
+     * @param args JMH command line arguments
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
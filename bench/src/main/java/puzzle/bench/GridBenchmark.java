@@ -0,0 +1,53 @@
+package puzzle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of the PuzzleGrid operations every search runs once per generated state
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark {
+
+    @Param({"inputs/puzzle1.txt", "inputs/puzzle2.txt", "inputs/puzzle3.txt", "inputs/puzzle4.txt", "inputs/puzzle5.txt"})
+    private String input;
+
+    private PuzzleOps ops;
+
+    @Setup
+    public void load() {
+        ops = PuzzleOps.create();
+        ops.load(PuzzleOps.resolve(input));
+    }
+
+    @Benchmark
+    public long copy() {
+        return ops.copy();
+    }
+
+    @Benchmark
+    public int getNeighbors() {
+        return ops.getNeighbors();
+    }
+
+    @Benchmark
+    public boolean checkGoal() {
+        return ops.checkGoal();
+    }
+
+    @Benchmark
+    public boolean equalsCopy() {
+        return ops.equalsCopy();
+    }
+
+    @Benchmark
+    public int hashCodeOfGrid() {
+        return ops.gridHashCode();
+    }
+}
@@ -0,0 +1,38 @@
+package puzzle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of the heuristic computations run once per generated state
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeuristicBenchmark {
+
+    @Param({"inputs/puzzle1.txt", "inputs/puzzle2.txt", "inputs/puzzle3.txt", "inputs/puzzle4.txt", "inputs/puzzle5.txt"})
+    private String input;
+
+    private PuzzleOps ops;
+
+    @Setup
+    public void load() {
+        ops = PuzzleOps.create();
+        ops.load(PuzzleOps.resolve(input));
+    }
+
+    @Benchmark
+    public int computeGridScore() {
+        return ops.computeGridScore();
+    }
+
+    @Benchmark
+    public double admissibleH() {
+        return ops.admissibleH();
+    }
+}
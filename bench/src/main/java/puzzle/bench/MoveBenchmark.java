@@ -0,0 +1,37 @@
+package puzzle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of one swipe in each direction, including the copy every successor starts from
+ * Compare with GridBenchmark.copy for the cost of the swipe alone
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+
+    @Param({"inputs/puzzle1.txt", "inputs/puzzle2.txt", "inputs/puzzle3.txt", "inputs/puzzle4.txt", "inputs/puzzle5.txt"})
+    private String input;
+
+    @Param({"U", "D", "L", "R"})
+    private char direction;
+
+    private PuzzleOps ops;
+
+    @Setup
+    public void load() {
+        ops = PuzzleOps.create();
+        ops.load(PuzzleOps.resolve(input));
+    }
+
+    @Benchmark
+    public boolean move() {
+        return ops.move(direction);
+    }
+}
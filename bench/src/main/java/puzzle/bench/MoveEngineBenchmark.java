@@ -0,0 +1,47 @@
+package puzzle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of one swipe of a large random board with the scalar and the vector MoveEngine
+ * The boards' rows and columns are too long for the move tables, so every line goes through the engine
+ * The vector runs fail instead of measuring the scalar engine if the vector engine can't be loaded, e.g. without the
+ * jdk.incubator.vector module
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MoveEngineBenchmark {
+
+    @Param({"8", "32", "128"})
+    private int size;
+
+    @Param({"scalar", "vector"})
+    private String engine;
+
+    @Param({"U", "D", "L", "R"})
+    private char direction;
+
+    private PuzzleOps ops;
+
+    @Setup
+    public void load() {
+        ops = PuzzleOps.create();
+        ops.selectMoveEngine(engine);
+        ops.loadRandom(size, 2048);
+        if(!ops.getMoveEngine().equals(engine)) {
+            throw new Error("Expected the " + engine + " move engine, but the board swipes with the " +
+                    ops.getMoveEngine() + " engine");
+        }
+    }
+
+    @Benchmark
+    public boolean move() {
+        return ops.move(direction);
+    }
+}
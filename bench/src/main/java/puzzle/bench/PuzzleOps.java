@@ -0,0 +1,130 @@
+package puzzle.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The operations the benchmarks measure, implemented by BenchBridge next to the solver classes
+ * The solver classes live in the default package, which a named package can't import and JMH can't generate code
+ * for, so the benchmarks reach them through this interface; with a single implementation loaded the JIT inlines
+ * the interface calls, so the bridge adds nothing to the measured time
+ */
+public interface PuzzleOps {
+
+    /**
+     * Reads a puzzle input file and makes its initial grid the grid the other operations work on
+     * @param inputFile the puzzle file, e.g. inputs/puzzle1.txt
+     */
+    void load(Path inputFile);
+
+    /**
+     * Makes a random square grid, with rows and columns too long for the move tables, the grid the other
+     * operations work on
+     * @param size the number of rows and columns
+     * @param seed the seed of the random tiles
+     */
+    void loadRandom(int size, long seed);
+
+    /**
+     * Picks the move engine for the grids loaded from now on, as --moves does for MainPuzzle
+     * @param name scalar or vector
+     */
+    void selectMoveEngine(String name);
+
+    /**
+     * Names the engine the loaded grid swipes its long lines with, which is scalar if the vector engine was selected
+     * but could not be loaded
+     * @return scalar or vector
+     */
+    String getMoveEngine();
+
+    /**
+     * Copies the loaded grid, as every successor does, without moving it
+     * @return the copy's state key, so the copy isn't optimized away
+     */
+    long copy();
+
+    /**
+     * Copies the loaded grid and swipes the copy
+     * @param direction up (U), down (D), left (L), or right (R)
+     * @return whether the swipe changed the board
+     */
+    boolean move(char direction);
+
+    /**
+     * Generates the successors of the loaded grid
+     * @return the number of successors
+     */
+    int getNeighbors();
+
+    /**
+     * Checks the loaded grid for the goal tile
+     * @return whether the goal tile is on the board
+     */
+    boolean checkGoal();
+
+    /**
+     * Compares the loaded grid with an equal grid in a different object
+     * @return true, unless equals is broken
+     */
+    boolean equalsCopy();
+
+    /**
+     * Hashes the loaded grid
+     * @return the grid's hash code
+     */
+    int gridHashCode();
+
+    /**
+     * Computes the score shared by the heuristics (tile sum plus empty cells) of the loaded grid
+     * @return the grid score
+     */
+    int computeGridScore();
+
+    /**
+     * Computes the admissible heuristic value of the loaded grid
+     * @return h(n)
+     */
+    double admissibleH();
+
+    /**
+     * Solves the loaded puzzle from scratch
+     * @param solver a --solver name accepted by MainPuzzle, e.g. astar
+     * @param heuristic the heuristic argument of MainPuzzle, 0 or 1
+     * @return the number of swipes in the solution, or -1 if there is none
+     */
+    int solve(String solver, String heuristic);
+
+    /**
+     * Creates the bridge to the solver classes
+     * @return the only PuzzleOps implementation
+     */
+    static PuzzleOps create() {
+        try {
+            return (PuzzleOps) Class.forName("BenchBridge").getDeclaredConstructor().newInstance();
+        } catch(ReflectiveOperationException e) {
+            throw new Error("Could not load the benchmark bridge", e);
+        }
+    }
+
+    /**
+     * Finds a puzzle file relative to the solver sources, so the benchmarks run from the repository root or bench/
+     * Set -Dpuzzle.src=DIR to point somewhere else
+     * @param name the file name under src, e.g. inputs/puzzle1.txt
+     * @return the path of the file
+     */
+    static Path resolve(String name) {
+        String source = System.getProperty("puzzle.src");
+        if(source != null) {
+            return Paths.get(source, name);
+        }
+        for(String candidate : new String[] {"src", "../src"}) {
+            Path path = Paths.get(candidate, name);
+            if(Files.exists(path)) {
+                return path;
+            }
+        }
+        throw new Error("Could not find " + name + "; run from the repository root or pass -Dpuzzle.src=DIR");
+    }
+}
@@ -0,0 +1,57 @@
+package puzzle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of whole solves, from building the solver to returning the goal grid, for each solver and puzzle
+ * A case is solver/heuristic/input, named like the MainPuzzle arguments (--solver=solver, heuristic 0 or 1)
+ * The searches that find shortest solutions (A* and HDA* with the admissible heuristic, BFS, IDA*, RBFS with the
+ * admissible heuristic, SMA*, and external BFS) take minutes or more on puzzle3-5 and test2, so they only run on the
+ * small puzzles by default; pass e.g. -p solverCase=bfs/0/inputs/puzzle3.txt to run one of the long cases
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class SolveBenchmark {
+
+    @Param({
+            "astar/0/inputs/puzzle1.txt", "astar/0/inputs/puzzle2.txt", "astar/0/inputs/puzzle3.txt", "astar/0/inputs/puzzle4.txt", "astar/0/inputs/puzzle5.txt", "astar/0/tests/test1.txt", "astar/0/tests/test2.txt", "astar/0/tests/test3.txt",
+            "greedy/0/inputs/puzzle1.txt", "greedy/0/inputs/puzzle2.txt", "greedy/0/inputs/puzzle3.txt", "greedy/0/inputs/puzzle4.txt", "greedy/0/inputs/puzzle5.txt", "greedy/0/tests/test1.txt", "greedy/0/tests/test2.txt", "greedy/0/tests/test3.txt",
+            "hda/0/inputs/puzzle1.txt", "hda/0/inputs/puzzle2.txt", "hda/0/inputs/puzzle3.txt", "hda/0/inputs/puzzle4.txt", "hda/0/inputs/puzzle5.txt", "hda/0/tests/test1.txt", "hda/0/tests/test2.txt", "hda/0/tests/test3.txt",
+            "rbfs/0/inputs/puzzle1.txt", "rbfs/0/inputs/puzzle2.txt", "rbfs/0/inputs/puzzle3.txt", "rbfs/0/inputs/puzzle4.txt", "rbfs/0/inputs/puzzle5.txt", "rbfs/0/tests/test1.txt", "rbfs/0/tests/test2.txt", "rbfs/0/tests/test3.txt",
+            "beam/0/inputs/puzzle1.txt", "beam/0/inputs/puzzle2.txt", "beam/0/inputs/puzzle3.txt", "beam/0/inputs/puzzle4.txt", "beam/0/inputs/puzzle5.txt", "beam/0/tests/test1.txt", "beam/0/tests/test2.txt", "beam/0/tests/test3.txt",
+            "beam/1/inputs/puzzle1.txt", "beam/1/inputs/puzzle2.txt", "beam/1/inputs/puzzle3.txt", "beam/1/inputs/puzzle4.txt", "beam/1/inputs/puzzle5.txt", "beam/1/tests/test1.txt", "beam/1/tests/test2.txt", "beam/1/tests/test3.txt",
+            "astar/1/inputs/puzzle1.txt", "astar/1/inputs/puzzle2.txt", "astar/1/tests/test1.txt", "astar/1/tests/test3.txt",
+            "hda/1/inputs/puzzle1.txt", "hda/1/inputs/puzzle2.txt", "hda/1/tests/test1.txt", "hda/1/tests/test3.txt",
+            "bfs/0/inputs/puzzle1.txt", "bfs/0/inputs/puzzle2.txt", "bfs/0/tests/test1.txt", "bfs/0/tests/test3.txt",
+            "id/0/inputs/puzzle1.txt", "id/0/tests/test1.txt", "id/0/tests/test3.txt",
+            "ida/0/inputs/puzzle1.txt", "ida/0/inputs/puzzle2.txt", "ida/0/tests/test1.txt", "ida/0/tests/test3.txt",
+            "rbfs/1/inputs/puzzle1.txt", "rbfs/1/inputs/puzzle2.txt", "rbfs/1/tests/test1.txt", "rbfs/1/tests/test3.txt",
+            "sma/0/inputs/puzzle1.txt", "sma/0/inputs/puzzle2.txt", "sma/0/tests/test1.txt", "sma/0/tests/test3.txt",
+            "external/0/inputs/puzzle1.txt", "external/0/inputs/puzzle2.txt", "external/0/tests/test1.txt", "external/0/tests/test3.txt"
+    })
+    private String solverCase;
+
+    private PuzzleOps ops;
+    private String solver;
+    private String heuristic;
+
+    @Setup
+    public void load() {
+        String[] parts = solverCase.split("/", 3);
+        solver = parts[0];
+        heuristic = parts[1];
+        ops = PuzzleOps.create();
+        ops.load(PuzzleOps.resolve(parts[2]));
+    }
+
+    @Benchmark
+    public int solve() {
+        return ops.solve(solver, heuristic);
+    }
+}
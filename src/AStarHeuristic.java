@@ -8,6 +8,7 @@ public class AStarHeuristic extends Heuristic implements Comparator<PuzzleGrid>
     /**
      * Compare two PuzzleGrid objects with A* heuristic h(n) + g(n)
      * where h(n) estimates remaining cost and g(n) computes cost of the path so far
+     * Both grids must already have been scored with evaluate
      * @see Heuristic
      * @see Comparator
      * @param grid1 The first PuzzleGrid
@@ -16,9 +17,18 @@ public class AStarHeuristic extends Heuristic implements Comparator<PuzzleGrid>
      */
     @Override
     public int compare(PuzzleGrid grid1, PuzzleGrid grid2) {
-        double value1 = h(grid1) + g(grid1);
-        double value2 = h(grid2) + g(grid2);
-        return Double.compare(value2, value1);
+        return Double.compare(grid2.getF(), grid1.getF());
+    }
+
+    /**
+     * Combines the heuristic value and path cost as h(n) + g(n)
+     * @param hValue the heuristic value h(n) of a grid
+     * @param gValue the cost g(n) of the path to the grid
+     * @return the A* value of the grid
+     */
+    @Override
+    protected double f(double hValue, int gValue) {
+        return hValue + gValue;
     }
 
     /**
@@ -27,7 +37,7 @@ public class AStarHeuristic extends Heuristic implements Comparator<PuzzleGrid>
      * @return the cost of the path using the number of moves (swipes)
      */
     private int g(PuzzleGrid grid) {
-        return grid.getMoves().size();
+        return grid.getDepth();
     }
 
     /**
@@ -42,4 +52,22 @@ public class AStarHeuristic extends Heuristic implements Comparator<PuzzleGrid>
         double hvalue = gridScore + g(puzzleGrid);
         return hvalue;
     }
+
+    /**
+     * The grid score plus twice the path cost is always a non-negative integer
+     * @return true
+     */
+    @Override
+    public boolean hasIntegerValues() {
+        return true;
+    }
+
+    /**
+     * A higher value indicates a better grid
+     * @return true
+     */
+    @Override
+    public boolean prefersHigherValues() {
+        return true;
+    }
 }
@@ -8,6 +8,7 @@ public class AStarHeuristicAdmissible extends Heuristic implements Comparator<Pu
     /**
      * Compare two PuzzleGrid objects with A* heuristic h(n) + g(n)
      * where h(n) estimates remaining cost and g(n) computes cost of the path so far
+     * Both grids must already have been scored with evaluate
      * @see Heuristic
      * @see Comparator
      * @param grid1 The first PuzzleGrid
@@ -16,9 +17,18 @@ public class AStarHeuristicAdmissible extends Heuristic implements Comparator<Pu
      */
     @Override
     public int compare(PuzzleGrid grid1, PuzzleGrid grid2) {
-        double value1 = h(grid1) + g(grid1);
-        double value2 = h(grid2) + g(grid2);
-        return Double.compare(value1, value2);
+        return Double.compare(grid1.getF(), grid2.getF());
+    }
+
+    /**
+     * Combines the heuristic value and path cost as h(n) + g(n)
+     * @param hValue the heuristic value h(n) of a grid
+     * @param gValue the cost g(n) of the path to the grid
+     * @return the A* value of the grid
+     */
+    @Override
+    protected double f(double hValue, int gValue) {
+        return hValue + gValue;
     }
 
     /**
@@ -27,7 +37,7 @@ public class AStarHeuristicAdmissible extends Heuristic implements Comparator<Pu
      * @return the cost of the path using the number of moves (swipes)
      */
     private int g(PuzzleGrid grid) {
-        return grid.getMoves().size();
+        return grid.getDepth();
     }
 
     /**
@@ -38,47 +48,16 @@ public class AStarHeuristicAdmissible extends Heuristic implements Comparator<Pu
     @Override
     protected double h(PuzzleGrid puzzleGrid) {
 
-        int[][] grid = puzzleGrid.getGrid();
-
         double hvalue = puzzleGrid.getGoalTile();
 
-        int maxTile = 0;
-        int row = 0;
-        int col = 0;
-        for(int r = 0; r < grid.length; r++) {
-            for(int c = 0; c < grid[r].length; c++) {
-                int tile = grid[r][c];  // check if tile is a power of 2, otherwise it can't contribute to solution
-                boolean isPowerOf2 = tile > 0 && (int)Math.ceil(log2(tile)) == (int)Math.floor(log2(tile));
-                if(tile > maxTile && isPowerOf2) {
-                    maxTile = tile;  // update the max tile
-                    row = r;  // keep track of where the max tile was found
-                    col = c;
-                }
-            }
-        }
-
+        // only a power of 2 tile can contribute to the solution; the grid tracks the largest one and its copies
+        int maxTile = puzzleGrid.getMaxPowerOfTwoTile();
         if(maxTile != 0) {  // prevent division by 0
             hvalue = maxTile / hvalue;  // divide the goal by the maximum tile found to estimate number of remaining swipes
-            for (int r = 0; r < grid.length; r++) {  // check to see if there is another one of these tiles
-                for (int c = 0; c < grid[r].length; c++) {
-                    int tile = grid[r][c];
-                    boolean sameTile = r == row && c == col;  // ensure the tile is not the same as found above
-                    if (tile == maxTile && !sameTile) {
-                        hvalue = hvalue / 2;  // should take half as many moves since there are two of these tiles already
-                    }
-                }
-            }
+            // should take half as many moves for every other copy of this tile already on the grid
+            hvalue = Math.scalb(hvalue, 1 - puzzleGrid.getMaxPowerOfTwoCount());
         }
 
         return hvalue;
     }
-
-    /**
-     * Use change of base to compute log base 2 of a number
-     * @param num the number to compute log base 2 of
-     * @return log base 2 of num
-     */
-    private double log2(double num) {
-        return Math.log(num) / Math.log(2);
-    }
 }
@@ -0,0 +1,168 @@
+/**
+ * OpenList for heuristics whose scores are small non-negative integers
+ * Keeps one queue of node handles per score, so add is O(1) and poll is amortized O(1): the cursor to the best
+ * non-empty bucket only moves past buckets that adds have skipped over
+ * The buckets cover a window of scores starting at the lowest live one rather than every score from 0, since greedy
+ * scores are tile sums that grow large on big boards; a bucket's array is released once the cursor moves past it
+ * Nodes with equal scores come out first in, first out; last in, first out dives deep along ties and
+ * finds much longer solutions with the non-admissible heuristic
+ */
+public class BucketOpenList implements OpenList {
+
+    private static final int MIN_BUCKETS = 64;
+
+    private int[][] buckets;  // buckets[score - base] is a queue of nodes with that score
+    private int[] bucketHeads;  // index of the oldest node in each bucket
+    private int[] bucketTails;  // index one past the newest node in each bucket
+    private int base;  // score of the first bucket
+    private int size;
+    private int best;  // score of the best bucket that may be non-empty
+    private boolean highestFirst;
+
+    /**
+     * Constructor to create an empty bucket queue
+     * @param highestFirst true to return the node with the highest score first, false for the lowest
+     */
+    public BucketOpenList(boolean highestFirst) {
+        this.buckets = new int[MIN_BUCKETS][];
+        this.bucketHeads = new int[MIN_BUCKETS];
+        this.bucketTails = new int[MIN_BUCKETS];
+        this.base = 0;
+        this.size = 0;
+        this.best = 0;
+        this.highestFirst = highestFirst;
+    }
+
+    /**
+     * Adds a scored node to the bucket for its score
+     * @param node the handle of the node
+     * @param fValue the node's f-value, which must be a non-negative integer
+     */
+    @Override
+    public void add(int node, double fValue) {
+        int score = (int) fValue;
+        if(score < 0 || score != fValue) {
+            throw new Error("Bucket queue requires non-negative integer scores, got " + fValue);
+        }
+
+        if(score < base || score - base >= buckets.length) {
+            moveWindow(score);
+        }
+
+        int index = score - base;
+        int[] bucket = buckets[index];
+        int head = bucketHeads[index];
+        int tail = bucketTails[index];
+        if(bucket == null) {
+            bucket = new int[8];
+            buckets[index] = bucket;
+        } else if(tail == bucket.length) {
+            if(head > bucket.length / 2) {  // mostly polled already, so slide the live nodes back to the front
+                System.arraycopy(bucket, head, bucket, 0, tail - head);
+            } else {
+                int[] grown = new int[bucket.length * 2];
+                System.arraycopy(bucket, head, grown, 0, tail - head);
+                bucket = grown;
+                buckets[index] = bucket;
+            }
+            tail -= head;
+            head = 0;
+            bucketHeads[index] = head;
+        }
+        bucket[tail] = node;
+        bucketTails[index] = tail + 1;
+
+        // move the cursor if the new node is better than every node already queued
+        if(size == 0 || (highestFirst ? score > best : score < best)) {
+            best = score;
+        }
+        size++;
+    }
+
+    /**
+     * Removes a node with the best score
+     * @return the oldest node among those with the best score, or NodeArena.NO_NODE if the queue is empty
+     */
+    @Override
+    public int poll() {
+        if(size == 0) {
+            return NodeArena.NO_NODE;
+        }
+        int index = best - base;
+        while(bucketHeads[index] == bucketTails[index]) {  // skip buckets emptied by earlier polls, releasing them
+            buckets[index] = null;
+            index += highestFirst ? -1 : 1;
+        }
+        best = index + base;
+
+        int head = bucketHeads[index];
+        int node = buckets[index][head];
+        if(head + 1 == bucketTails[index]) {  // bucket is now empty, so reuse it from the front
+            bucketHeads[index] = 0;
+            bucketTails[index] = 0;
+        } else {
+            bucketHeads[index] = head + 1;
+        }
+        size--;
+        return node;
+    }
+
+    /**
+     * Helper function to rebuild the bucket index over the scores of the queued nodes and a new score
+     * The index starts at the lowest of those scores with room above the highest, since scores mostly grow as the
+     * search goes deeper; buckets outside the live scores are left behind
+     * @param score the score that falls outside the current index
+     */
+    private void moveWindow(int score) {
+        int low = score;
+        int high = score;
+        for(int index = 0; index < buckets.length && size > 0; index++) {
+            if(bucketHeads[index] != bucketTails[index]) {
+                low = Math.min(low, index + base);
+                high = Math.max(high, index + base);
+            }
+        }
+
+        int capacity = Math.max(MIN_BUCKETS, 2 * (high - low + 1));
+        int[][] oldBuckets = buckets;
+        int[] oldHeads = bucketHeads;
+        int[] oldTails = bucketTails;
+        int oldBase = base;
+        buckets = new int[capacity][];
+        bucketHeads = new int[capacity];
+        bucketTails = new int[capacity];
+        base = low;
+        for(int index = 0; index < oldBuckets.length; index++) {
+            if(oldHeads[index] != oldTails[index]) {
+                int moved = index + oldBase - base;
+                buckets[moved] = oldBuckets[index];
+                bucketHeads[moved] = oldHeads[index];
+                bucketTails[moved] = oldTails[index];
+            }
+        }
+        best = highestFirst ? Math.min(best, high) : Math.max(best, low);  // it may have been on a released bucket
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the queued nodes bucket by bucket, each bucket oldest first, so re-adding them keeps the tie order
+     * @return the handles of the nodes in the frontier
+     */
+    @Override
+    public int[] toArray() {
+        int[] nodes = new int[size];
+        int count = 0;
+        for(int index = 0; index < buckets.length; index++) {
+            int length = bucketTails[index] - bucketHeads[index];
+            if(length > 0) {
+                System.arraycopy(buckets[index], bucketHeads[index], nodes, count, length);
+                count += length;
+            }
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Thread-safe set of primitive long keys built from independently locked LongHashSet stripes
+ * Each key belongs to one stripe chosen by its high bits, so threads adding different keys rarely wait on each other
+ */
+public class ConcurrentLongHashSet {
+
+    private final LongHashSet[] stripes;
+    private final int stripeShift;  // shifts a key right so its top bits index the stripes
+
+    /**
+     * Constructor to create an empty set
+     * @param expectedSize the number of keys to make room for before the first resize
+     * @param concurrency the number of threads expected to add keys at once
+     */
+    public ConcurrentLongHashSet(int expectedSize, int concurrency) {
+        // several stripes per thread keeps the chance of two threads meeting on one stripe low
+        int numStripes = Integer.highestOneBit(Math.max(1, concurrency * 8 - 1)) << 1;
+        this.stripes = new LongHashSet[numStripes];
+        for(int i = 0; i < numStripes; i++) {
+            stripes[i] = new LongHashSet(Math.max(16, expectedSize / numStripes));
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(numStripes);
+    }
+
+    /**
+     * Adds a key to the set
+     * @param key the key to add
+     * @return true if the key was not already in the set; exactly one of several threads adding the same key wins
+     */
+    public boolean add(long key) {
+        LongHashSet stripe = stripe(key);
+        synchronized(stripe) {
+            return stripe.add(key);
+        }
+    }
+
+    /**
+     * Checks whether a key is in the set
+     * @param key the key to look up
+     * @return true if the key has been added
+     */
+    public boolean contains(long key) {
+        LongHashSet stripe = stripe(key);
+        synchronized(stripe) {
+            return stripe.contains(key);
+        }
+    }
+
+    /**
+     * Getter for the number of keys
+     * Only exact while no other thread is adding keys
+     * @return the size of the set
+     */
+    public long size() {
+        long size = 0;
+        for(LongHashSet stripe : stripes) {
+            synchronized(stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Helper function to find the stripe of a key
+     * Uses the high bits, since each stripe places keys by a mix that favors the low bits
+     * @param key the key
+     * @return the stripe that holds the key
+     */
+    private LongHashSet stripe(long key) {
+        return stripes[(int) (key >>> stripeShift)];
+    }
+}
@@ -5,6 +5,7 @@ public class GrBeFGSHeuristic extends Heuristic implements Comparator<PuzzleGrid
 
     /**
      * Compare two PuzzleGrid objects with greedy best-first search heuristic h(n)
+     * Both grids must already have been scored with evaluate
      * @see Heuristic
      * @see Comparator
      * @param grid1 The first PuzzleGrid
@@ -13,9 +14,7 @@ public class GrBeFGSHeuristic extends Heuristic implements Comparator<PuzzleGrid
      */
     @Override
     public int compare(PuzzleGrid grid1, PuzzleGrid grid2) {
-        double value1 = h(grid1);
-        double value2 = h(grid2);
-        return Double.compare(value2, value1);
+        return Double.compare(grid2.getF(), grid1.getF());
     }
 
     /**
@@ -27,4 +26,22 @@ public class GrBeFGSHeuristic extends Heuristic implements Comparator<PuzzleGrid
     protected double h(PuzzleGrid puzzleGrid) {
         return computeGridScore(puzzleGrid);
     }
+
+    /**
+     * The grid score is always a non-negative integer
+     * @return true
+     */
+    @Override
+    public boolean hasIntegerValues() {
+        return true;
+    }
+
+    /**
+     * A higher value indicates a better grid
+     * @return true
+     */
+    @Override
+    public boolean prefersHigherValues() {
+        return true;
+    }
 }
@@ -0,0 +1,112 @@
+import java.util.*;
+
+/**
+ * OpenList backed by a binary heap, for heuristics with real-valued scores
+ * Each add and poll costs O(log n) comparisons of the scores, which are kept in an array parallel to the handles
+ * The sift order is that of java.util.PriorityQueue, so grids with equal scores come out in the same order
+ */
+public class HeapOpenList implements OpenList {
+
+    private int[] nodes;  // heap-ordered handles
+    private double[] scores;  // scores[i] is the score of nodes[i]
+    private int size;
+    private boolean highestFirst;
+
+    /**
+     * Constructor to create an empty heap
+     * @param highestFirst true to return the node with the highest score first, false for the lowest
+     */
+    public HeapOpenList(boolean highestFirst) {
+        this.nodes = new int[16];
+        this.scores = new double[16];
+        this.size = 0;
+        this.highestFirst = highestFirst;
+    }
+
+    @Override
+    public void add(int node, double score) {
+        if(size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        siftUp(size++, node, score);
+    }
+
+    @Override
+    public int poll() {
+        if(size == 0) {
+            return NodeArena.NO_NODE;
+        }
+        int best = nodes[0];
+        size--;
+        if(size > 0) {
+            siftDown(0, nodes[size], scores[size]);
+        }
+        return best;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int[] toArray() {
+        return Arrays.copyOf(nodes, size);
+    }
+
+    /**
+     * Helper function to move a new node up from a free slot until its parent is no worse
+     * @param slot the free slot at the bottom of the heap
+     * @param node the handle to place
+     * @param score the node's score
+     */
+    private void siftUp(int slot, int node, double score) {
+        while(slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if(compare(score, scores[parent]) >= 0) {
+                break;
+            }
+            nodes[slot] = nodes[parent];
+            scores[slot] = scores[parent];
+            slot = parent;
+        }
+        nodes[slot] = node;
+        scores[slot] = score;
+    }
+
+    /**
+     * Helper function to move a node down from a slot until neither child is better
+     * @param slot the slot to fill, at the top of the heap after a poll
+     * @param node the handle to place
+     * @param score the node's score
+     */
+    private void siftDown(int slot, int node, double score) {
+        int half = size >>> 1;
+        while(slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if(right < size && compare(scores[child], scores[right]) > 0) {
+                child = right;
+            }
+            if(compare(score, scores[child]) <= 0) {
+                break;
+            }
+            nodes[slot] = nodes[child];
+            scores[slot] = scores[child];
+            slot = child;
+        }
+        nodes[slot] = node;
+        scores[slot] = score;
+    }
+
+    /**
+     * Helper function to order two scores, best first
+     * @param score1 the first score
+     * @param score2 the second score
+     * @return a negative number if score1 comes out first, positive if score2 does, or 0 if they tie
+     */
+    private int compare(double score1, double score2) {
+        return highestFirst ? Double.compare(score2, score1) : Double.compare(score1, score2);
+    }
+}
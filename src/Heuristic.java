@@ -1,7 +1,10 @@
+import java.util.Comparator;
+
 /**
  * Abstract parent class for defining common heuristics
+ * Grids are scored once by evaluate when they are generated, and subclasses compare the cached scores
  */
-public abstract class Heuristic {
+public abstract class Heuristic implements Comparator<PuzzleGrid> {
 
     /**
      * Abstract method for subclasses to implement custom heuristic based on search method
@@ -10,27 +13,53 @@ public abstract class Heuristic {
      */
     protected abstract double h(PuzzleGrid puzzleGrid);
 
+    /**
+     * Combines the heuristic value and path cost into the value used to order the search, h(n) by default
+     * @param hValue the heuristic value h(n) of a grid
+     * @param gValue the cost g(n) of the path to the grid
+     * @return the value the comparator orders grids by
+     */
+    protected double f(double hValue, int gValue) {
+        return hValue;
+    }
+
+    /**
+     * Whether every f-value this heuristic produces is a non-negative integer, which allows a bucket queue frontier
+     * @return false by default, for real-valued heuristics
+     */
+    public boolean hasIntegerValues() {
+        return false;
+    }
+
+    /**
+     * Whether the comparator puts grids with higher f-values first
+     * @return false by default, for heuristics where a lower value is a better grid
+     */
+    public boolean prefersHigherValues() {
+        return false;
+    }
+
+    /**
+     * Scores a newly generated grid, caching h(n) and f(n) on it so comparisons never recompute them
+     * Must be called before the grid is compared, e.g. before adding it to a frontier
+     * @param puzzleGrid the PuzzleGrid to score
+     */
+    public void evaluate(PuzzleGrid puzzleGrid) {
+        double hValue = h(puzzleGrid);
+        puzzleGrid.setScore(hValue, f(hValue, puzzleGrid.getDepth()));
+    }
+
     /**
      * Calculates the "score" of a PuzzleGrid, which is the sum of all its tiles plus the number of empty tiles
+     * Both are kept up to date by the grid as it moves, so this takes constant time
      * @param puzzleGrid the PuzzleGrid to compute the score of
      * @return the score of the grid as an integer
      */
     protected int computeGridScore(PuzzleGrid puzzleGrid) {
-        int[][] grid = puzzleGrid.getGrid();
-
-        int total = 0;  // sum of the board tiles
-        int emptyTiles = 0;  // number of empty tiles
-        for(int[] row : grid) {
-            for (int tile : row) {
-                if (tile == 0) {
-                    emptyTiles++;
-                } else {
-                    total += tile;
-                }
-            }
-        }
-
-        int gridScore = total + emptyTiles;
+        long total = puzzleGrid.getTileSum();  // sum of the board tiles
+        int emptyTiles = puzzleGrid.getEmptyCount();  // number of empty tiles
+
+        int gridScore = (int) (total + emptyTiles);
         return gridScore;
     }
 
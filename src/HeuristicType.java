@@ -0,0 +1,6 @@
+/**
+ * The two heuristics a solver can be asked for, chosen by the first argument of MainPuzzle
+ */
+enum HeuristicType {
+    ADMISSIBLE, NONADMISSIBLE
+}
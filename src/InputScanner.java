@@ -1,3 +1,4 @@
+import java.io.InputStream;
 import java.util.Scanner;
 import java.util.stream.Stream;
 
@@ -11,12 +12,21 @@ public class InputScanner {
     private int[] spawnPool;
 
     /**
-     * Read from file using Scanner to assign initialGrid, goalTile, and spawnPool
+     * Read from standard input using Scanner to assign initialGrid, goalTile, and spawnPool
      * @see Scanner
      */
     public void read() {
+        read(System.in);
+    }
+
+    /**
+     * Read from a stream using Scanner to assign initialGrid, goalTile, and spawnPool; the stream is closed afterwards
+     * @param source the puzzle input, such as an open puzzle file
+     * @see Scanner
+     */
+    public void read(InputStream source) {
 
-        Scanner input = new Scanner(System.in);
+        Scanner input = new Scanner(source);
 
         goalTile = input.nextInt();
         int width = input.nextInt();
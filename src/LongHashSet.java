@@ -0,0 +1,324 @@
+import java.util.Arrays;
+
+/**
+ * Set of primitive long keys using open addressing with linear probing
+ * Stores keys directly in a long[] with no per-entry objects; the table doubles once it is half full,
+ * so it costs 16 to 32 bytes per key
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;  // marks a free slot, so the key 0 is tracked separately
+    private static final int SNAPSHOT_PAGE_SLOTS = 1 << 16;  // slots copied per copySnapshot call, 512 KB
+
+    private long[] table;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+    private long[][] snapshotPages = null;  // copy taken a page of slots at a time, kept for the next snapshot
+    private boolean snapshotting;  // a copy is under way
+    private int snapshotCopied;  // slots of the table copied so far
+    private long[] snapshotAdded = new long[16];  // keys added to slots that had already been copied
+    private int numSnapshotAdded;
+
+    /**
+     * Constructor to create an empty set
+     * @param expectedSize the number of keys to make room for before the first resize
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+        this.containsZero = false;
+    }
+
+    /**
+     * Constructor to wrap a table saved from a Snapshot, e.g. when reading a checkpoint
+     * @param table the slots of the saved set, whose length is a power of two
+     * @param size the number of keys in the saved set
+     * @param containsZero whether the saved set holds the key 0
+     */
+    LongHashSet(long[] table, int size, boolean containsZero) {
+        if(Integer.bitCount(table.length) != 1) {
+            throw new Error("Hash set table length must be a power of two, got " + table.length);
+        }
+        this.table = table;
+        this.mask = table.length - 1;
+        this.size = size;
+        this.containsZero = containsZero;
+    }
+
+    /**
+     * Adds a key to the set
+     * @param key the key to add
+     * @return true if the key was not already in the set
+     */
+    public boolean add(long key) {
+        if(key == EMPTY) {
+            if(containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int slot = slot(key);
+        while(table[slot] != EMPTY) {
+            if(table[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+        size++;
+        if(snapshotting && slot < snapshotCopied) {
+            logSnapshotKey(key);
+        }
+
+        if(size * 2 > table.length) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * Removes a key from the set
+     * Shifts later keys of the same probe run back into the freed slot, so lookups never stop early at a gap
+     * @param key the key to remove
+     * @return true if the key was in the set
+     */
+    public boolean remove(long key) {
+        if(key == EMPTY) {
+            if(!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+
+        int slot = slot(key);
+        while(table[slot] != key) {
+            if(table[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int hole = slot;
+        for(int next = (hole + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask) {
+            // a key can fill the hole if the hole lies between its home slot and where it sits now
+            int home = slot(table[next]);
+            if(((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = EMPTY;
+        size--;
+        if(snapshotting) {
+            beginSnapshot();  // keys may have shifted into copied slots, so start the copy over
+        }
+        return true;
+    }
+
+    /**
+     * Starts copying the set a page of slots at a time, so a checkpoint never stalls the search for a whole copy
+     * Keys added while the copy is under way are tracked, so finishSnapshot returns the set as it is when it is called
+     * The pages are kept and copied into again by the next snapshot of a table of the same size, so the snapshot
+     * returned by the previous finishSnapshot must no longer be read
+     */
+    public void beginSnapshot() {
+        int numPages = (table.length + SNAPSHOT_PAGE_SLOTS - 1) / SNAPSHOT_PAGE_SLOTS;
+        if(snapshotPages == null || snapshotPages.length != numPages) {
+            snapshotPages = new long[numPages][];
+        }
+        snapshotting = true;
+        snapshotCopied = 0;
+        numSnapshotAdded = 0;
+    }
+
+    /**
+     * Copies the next page of slots of a snapshot started with beginSnapshot
+     * @return true once every slot has been copied, so finishSnapshot can be called
+     */
+    public boolean copySnapshot() {
+        int page = snapshotCopied / SNAPSHOT_PAGE_SLOTS;
+        int end = Math.min(table.length, snapshotCopied + SNAPSHOT_PAGE_SLOTS);
+        if(snapshotPages[page] == null) {
+            snapshotPages[page] = Arrays.copyOfRange(table, snapshotCopied, end);
+        } else {
+            System.arraycopy(table, snapshotCopied, snapshotPages[page], 0, end - snapshotCopied);
+        }
+        snapshotCopied = end;
+        return snapshotCopied == table.length;
+    }
+
+    /**
+     * Completes a snapshot whose slots have all been copied
+     * @return the copied pages and the keys that arrived during the copy, which Snapshot.addPending puts in place
+     */
+    public Snapshot finishSnapshot() {
+        snapshotting = false;
+        return new Snapshot(snapshotPages, mask, Arrays.copyOf(snapshotAdded, numSnapshotAdded),
+                size - numSnapshotAdded - (containsZero ? 1 : 0), containsZero);
+    }
+
+    /**
+     * Copy of a set taken a page at a time, finished off the search thread, e.g. by a checkpoint's writer
+     */
+    public static class Snapshot {
+
+        private final long[][] pages;
+        private final int mask;
+        private final long[] added;
+        private int size;
+        private final boolean containsZero;
+
+        /**
+         * Constructor to hold the parts of a finished snapshot
+         * @param pages the slots of the table, SNAPSHOT_PAGE_SLOTS per page
+         * @param mask the number of slots in the table minus 1
+         * @param added the keys added behind the copy, not yet in the pages
+         * @param copiedSize the number of non-zero keys in the pages
+         * @param containsZero whether the set held the key 0
+         */
+        private Snapshot(long[][] pages, int mask, long[] added, int copiedSize, boolean containsZero) {
+            this.pages = pages;
+            this.mask = mask;
+            this.added = added;
+            this.size = copiedSize;
+            this.containsZero = containsZero;
+        }
+
+        /**
+         * Puts the keys added during the copy into the pages, so they hold the set as it was when the snapshot
+         * finished; the set was at most half full then, so they fit without resizing
+         */
+        public void addPending() {
+            for(long key : added) {
+                int slot = slot(key, mask);
+                while(pages[slot / SNAPSHOT_PAGE_SLOTS][slot % SNAPSHOT_PAGE_SLOTS] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                pages[slot / SNAPSHOT_PAGE_SLOTS][slot % SNAPSHOT_PAGE_SLOTS] = key;
+                size++;
+            }
+        }
+
+        /**
+         * Getter for the pages, which laid end to end are the slots of the table
+         * @return the pages, which must not be modified
+         */
+        long[][] getPages() {
+            return pages;
+        }
+
+        /**
+         * Getter for the number of slots in the table
+         * @return the combined length of the pages
+         */
+        int getCapacity() {
+            return mask + 1;
+        }
+
+        /**
+         * Getter for the number of keys, once addPending has been called
+         * @return the size of the set
+         */
+        int size() {
+            return size + (containsZero ? 1 : 0);
+        }
+
+        /**
+         * Checks whether the key 0 is in the set, which is kept outside the table
+         * @return true if the key 0 was in the set
+         */
+        boolean containsZero() {
+            return containsZero;
+        }
+    }
+
+    /**
+     * Checks whether a key is in the set
+     * @param key the key to look up
+     * @return true if the key has been added
+     */
+    public boolean contains(long key) {
+        if(key == EMPTY) {
+            return containsZero;
+        }
+
+        int slot = slot(key);
+        while(table[slot] != EMPTY) {
+            if(table[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Getter for the number of keys
+     * @return the size of the set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Helper function to find the home slot of a key
+     * Mixes the bits so that keys which differ only in their high bits still spread across the table
+     * @param key a non-zero key
+     * @return the index of the first slot to probe
+     */
+    private int slot(long key) {
+        return slot(key, mask);
+    }
+
+    /**
+     * Helper function to find the home slot of a key in a table of any size
+     * @param key a non-zero key
+     * @param mask the number of slots in the table minus 1
+     * @return the index of the first slot to probe
+     */
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Helper function to remember a key added behind a snapshot's copy
+     * @param key the key
+     */
+    private void logSnapshotKey(long key) {
+        if(numSnapshotAdded == snapshotAdded.length) {
+            snapshotAdded = Arrays.copyOf(snapshotAdded, numSnapshotAdded * 2);
+        }
+        snapshotAdded[numSnapshotAdded++] = key;
+    }
+
+    /**
+     * Helper function to double the table and reinsert every key, starting any snapshot over on the new table
+     */
+    private void resize() {
+        snapshotPages = null;  // pages for the old size are no use, so don't hold them through the resize
+        long[] oldTable = table;
+        table = new long[oldTable.length * 2];
+        mask = table.length - 1;
+        for(long key : oldTable) {
+            if(key != EMPTY) {
+                int slot = slot(key);
+                while(table[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = key;
+            }
+        }
+        if(snapshotting) {
+            beginSnapshot();
+        }
+    }
+}
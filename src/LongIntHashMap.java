@@ -0,0 +1,159 @@
+/**
+ * Map from primitive long keys to int values using open addressing with linear probing
+ * Keys and values live in two parallel arrays with no per-entry objects; the table doubles once it is half full
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = 0L;  // marks a free slot, so the key 0 is tracked separately
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+    private int zeroValue;
+
+    /**
+     * Constructor to create an empty map
+     * @param expectedSize the number of keys to make room for before the first resize
+     */
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+        this.containsZero = false;
+    }
+
+    /**
+     * Looks up the value of a key
+     * @param key the key to look up
+     * @param defaultValue the value to return if the key is absent
+     * @return the value stored for the key, or defaultValue
+     */
+    public int get(long key, int defaultValue) {
+        if(key == EMPTY) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+
+        int slot = slot(key);
+        while(keys[slot] != EMPTY) {
+            if(keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous value
+     * @param key the key to store
+     * @param value the value to associate with the key
+     */
+    public void put(long key, int value) {
+        if(key == EMPTY) {
+            if(!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+
+        int slot = slot(key);
+        while(keys[slot] != EMPTY) {
+            if(keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+
+        if(size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Removes a key and its value
+     * Shifts later keys of the same probe run back into the freed slot, so lookups never stop early at a gap
+     * @param key the key to remove
+     * @return true if the key was in the map
+     */
+    public boolean remove(long key) {
+        if(key == EMPTY) {
+            if(!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+
+        int slot = slot(key);
+        while(keys[slot] != key) {
+            if(keys[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int hole = slot;
+        for(int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            // a key can fill the hole if the hole lies between its home slot and where it sits now
+            int home = slot(keys[next]);
+            if(((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * Getter for the number of keys
+     * @return the size of the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Helper function to find the home slot of a key
+     * @param key a non-zero key
+     * @return the index of the first slot to probe
+     */
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Helper function to double the table and reinsert every entry
+     */
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while(keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import java.io.PrintStream;
 import java.util.*;
 
 /**
@@ -15,6 +16,20 @@ public class MainPuzzle {
 
         long startTime = System.nanoTime();
 
+        // determine type of heuristic and solver based on input from bash script
+        SolverOptions options = new SolverOptions(args);
+        if(options.getMoveEngine() != null) {
+            MoveEngine.select(options.getMoveEngine());
+        }
+        if(options.getBatchPath() != null) {
+            new PuzzleBatch(options, System.out).run();
+            return;
+        }
+        if(options.getListenAddress() != null) {
+            new PuzzleDaemon(options).run();
+            return;
+        }
+
         // read input from file
         InputScanner input = new InputScanner();
         input.read();
@@ -22,36 +37,53 @@ public class MainPuzzle {
         int goalTile = input.getGoalTile();
         int[] spawnPool = input.getSpawnPool();
 
-        PuzzleSolver puzzleSolver;
-        HeuristicType heuristicType;
-
-        // determine type of heuristic based on input from bash script
-        if(args[0].equals("") || args[0].equals("0")) {
-            heuristicType = HeuristicType.NONADMISSIBLE;
-        } else if(args[0].equals("1")) {
-            heuristicType = HeuristicType.ADMISSIBLE;
-        } else {
-            throw new Error("Expected second argument to run.sh to be 0, 1, or nothing");
+        PuzzleSolver puzzleSolver = options.createSolver(initialGrid, goalTile, spawnPool);
+        if(options.getStatsInterval() > 0) {
+            puzzleSolver.getStats().setSnapshotListener(System.err::println, options.getStatsInterval() * 1000L);
+        }
+        Timer timeLimit = null;
+        if(options.getTimeLimit() > 0) {
+            timeLimit = new Timer("time-limit", true);
+            timeLimit.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    puzzleSolver.cancel();
+                }
+            }, options.getTimeLimit() * 1000L);
         }
-
-        puzzleSolver = new PuzzleSolverAStar(initialGrid, goalTile, spawnPool, heuristicType);
         PuzzleGrid solution = puzzleSolver.solve();
+        if(timeLimit != null) {
+            timeLimit.cancel();
+        }
 
         long endTime = System.nanoTime();
 
         long nsElapsed = endTime - startTime;
-        long msElapsed = nsElapsed / 1000;
+        long usElapsed = nsElapsed / 1000;  // the run time is reported in microseconds
 
-        // print results to stdout
-        System.out.println(msElapsed);
+        // print results to stdout, and the stats to stderr so the results stay in the expected format
+        printResults(System.out, usElapsed, solution);
+        if(puzzleSolver.isCancelled()) {
+            System.err.println("Stopped at the time limit of " + options.getTimeLimit() + " s");
+        }
+        if(options.getPrintStats()) {
+            System.err.println(puzzleSolver.getStats().toJson());
+        }
+    }
+
+    /**
+     * Prints the results of a solve in the expected format: the run time, then the number of swipes, the swipes,
+     * and the final grid if there is a solution
+     * @param out the stream to print to, such as stdout or a solution file
+     * @param usElapsed the run time in microseconds
+     * @param solution the solved grid, or null if no solution was found
+     */
+    public static void printResults(PrintStream out, long usElapsed, PuzzleGrid solution) {
+        out.println(usElapsed);
         if(solution != null) {
-            ArrayList<Character> moves = solution.getMoves();
-            System.out.println(moves.size());
-            for(Character move : moves) {
-                System.out.print(move);
-            }
-            System.out.println();
-            solution.print();
+            out.println(solution.getDepth());
+            out.println(solution.getMoveString());
+            solution.print(out);
         }
         // else, game over, no solution was found
     }
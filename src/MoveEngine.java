@@ -0,0 +1,99 @@
+import java.lang.reflect.Constructor;
+
+/**
+ * Slides and merges many lines of a board at once, for the swipes whose lines are too long for the MoveTables
+ * The lines are unpacked into a position-major array, lines[position * numLines + line], so the same position of
+ * every line sits side by side: swipes up and down use the row-major board as it is, where each column is a line,
+ * and swipes left and right use the board transposed, where each row is a line
+ * The engine is picked once per process with --moves=scalar|vector; the scalar engine is the cell-by-cell
+ * PuzzleGrid.slideLine, and the vector engine (VectorMoveEngine) needs the jdk.incubator.vector module, so it is
+ * loaded by name and the scalar engine is used instead if it cannot be loaded
+ */
+public abstract class MoveEngine {
+
+    private static volatile String selected = "scalar";
+    private static Constructor<?> vectorConstructor = null;  // loaded the first time a puzzle uses the vector engine
+    private static boolean vectorUnavailable = false;
+
+    private final ThreadLocal<int[]> buffers = ThreadLocal.withInitial(() -> new int[0]);
+
+    /**
+     * Picks the engine used by every puzzle created from now on
+     * @param name scalar or vector
+     */
+    public static void select(String name) {
+        if(!name.equals("scalar") && !name.equals("vector")) {
+            throw new Error("Expected --moves to be scalar or vector");
+        }
+        selected = name;
+    }
+
+    /**
+     * Getter for the name of the selected engine
+     * @return scalar or vector
+     */
+    public static String getSelected() {
+        return selected;
+    }
+
+    /**
+     * Creates the selected engine for a puzzle
+     * @param codec the tile dictionary of the puzzle
+     * @return the engine, or null to slide the lines cell by cell, either because the scalar engine is selected or
+     * because the vector engine could not be loaded
+     */
+    public static MoveEngine forPuzzle(TileCodec codec) {
+        if(!selected.equals("vector")) {
+            return null;
+        }
+        Constructor<?> constructor = loadVectorEngine();
+        if(constructor == null) {
+            return null;
+        }
+        try {
+            return (MoveEngine) constructor.newInstance(codec);
+        } catch(ReflectiveOperationException e) {
+            throw new Error("Could not create the vector move engine", e);
+        }
+    }
+
+    /**
+     * Helper function for loading the vector engine, reporting once if it is not available
+     * @return the constructor of VectorMoveEngine, or null if the class or the jdk.incubator.vector module is missing
+     */
+    private static synchronized Constructor<?> loadVectorEngine() {
+        if(vectorConstructor == null && !vectorUnavailable) {
+            try {
+                vectorConstructor = Class.forName("VectorMoveEngine").getConstructor(TileCodec.class);
+            } catch(ReflectiveOperationException | LinkageError e) {
+                vectorUnavailable = true;
+                System.err.println("The vector move engine is not available (" + e + "), so the scalar swipes are " +
+                        "used; compile and run with --add-modules jdk.incubator.vector to enable it");
+            }
+        }
+        return vectorConstructor;
+    }
+
+    /**
+     * Gets a scratch array for unpacking lines, reused by each thread
+     * @param size the number of cells it must hold
+     * @return an array of at least that many ints, with unspecified contents
+     */
+    public int[] getBuffer(int size) {
+        int[] buffer = buffers.get();
+        if(buffer.length < size) {
+            buffer = new int[size];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Slides every line toward one end and merges equal neighbors, with the same result as PuzzleGrid.slideLine
+     * @param lines the codes of the cells, position-major: the cell at position p of line l is lines[p * numLines + l]
+     * @param numLines the number of lines
+     * @param length the number of cells in each line
+     * @param towardLow true to slide toward position 0, false to slide toward position length - 1
+     */
+    public abstract void slide(int[] lines, int numLines, int length, boolean towardLow);
+}
@@ -0,0 +1,55 @@
+/**
+ * Immutable, parent-linked list of the moves that produced a PuzzleGrid
+ * Each successor adds one node pointing at its parent's history, so siblings share the moves they have in common
+ * and copying a PuzzleGrid costs O(1) no matter how deep it is
+ */
+public class MoveHistory {
+
+    private final MoveHistory parent;  // history of the grid this move was made from, or null for the first move
+    private final char move;
+
+    /**
+     * Constructor to extend a history by one move
+     * @param parent the history before the move, or null if this is the first move
+     * @param move up (U), down (D), left (L), or right (R)
+     */
+    public MoveHistory(MoveHistory parent, char move) {
+        this.parent = parent;
+        this.move = move;
+    }
+
+    /**
+     * Getter for the history before the most recent move
+     * @return the parent history, or null if this is the first move
+     */
+    public MoveHistory getParent() {
+        return parent;
+    }
+
+    /**
+     * Getter for the most recent move
+     * @return up (U), down (D), left (L), or right (R)
+     */
+    public char getMove() {
+        return move;
+    }
+
+    /**
+     * Materializes a history into the string of moves from the initial grid
+     * @param history the most recent node of the history, or null for no moves
+     * @return the moves in the order they were made, e.g. "LDURLDR"
+     */
+    public static String toMoveString(MoveHistory history) {
+        int length = 0;
+        for(MoveHistory node = history; node != null; node = node.parent) {
+            length++;
+        }
+
+        // walk from the most recent move back to the first, filling the string from the end
+        char[] moves = new char[length];
+        for(MoveHistory node = history; node != null; node = node.parent) {
+            moves[--length] = node.move;
+        }
+        return new String(moves);
+    }
+}
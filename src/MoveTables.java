@@ -0,0 +1,186 @@
+import java.util.HashMap;
+
+/**
+ * Per-puzzle lookup tables for sliding and merging a single row or column of a packed board
+ * A line of n cells is keyed by its n codes, the first cell (lowest cell index) in the lowest bits
+ * Each entry stores the line after the swipe along with a flag for whether it changed
+ * Tables are only kept for lines short enough to key directly; entries are filled in the first time a line is seen
+ * An entry only depends on the line length, the cell width, and which code each code merges into,
+ * so puzzles that agree on those share one table instead of each allocating and refilling their own
+ */
+public class MoveTables {
+
+    // a line key can be at most this many bits, which keeps each table at 4 MB or less
+    private static final int MAX_KEY_BITS = 20;
+
+    // at most this many tables are shared; tables for further kinds of puzzle are kept by the puzzle alone
+    private static final int MAX_SHARED_TABLES = 16;
+    private static final HashMap<String, int[]> sharedTables = new HashMap<>();
+
+    private static final int KNOWN = 1;  // entry has been computed
+    private static final int CHANGED = 2;  // swiping the line changes it
+    private static final int RESULT_SHIFT = 2;
+
+    private final int bitsPerCell;
+    private final TileCodec codec;
+
+    // tables for rows (numCols cells) and columns (numRows cells) sliding toward the low or high end
+    private final int[] rowsTowardLow;
+    private final int[] rowsTowardHigh;
+    private final int[] colsTowardLow;
+    private final int[] colsTowardHigh;
+
+    /**
+     * Constructor to allocate the transition tables for a puzzle
+     * @param numRows the height of the grid
+     * @param numCols the width of the grid
+     * @param codec the tile dictionary of the puzzle
+     */
+    public MoveTables(int numRows, int numCols, TileCodec codec) {
+        this.bitsPerCell = codec.getBitsPerCell();
+        this.codec = codec;
+        this.rowsTowardLow = findTable(numCols, true);
+        this.rowsTowardHigh = findTable(numCols, false);
+        // square boards share the row tables since the lines are the same length
+        this.colsTowardLow = numRows == numCols ? rowsTowardLow : findTable(numRows, true);
+        this.colsTowardHigh = numRows == numCols ? rowsTowardHigh : findTable(numRows, false);
+    }
+
+    /**
+     * Helper function to find the shared table for lines of a given length, allocating it if no puzzle has yet
+     * @param length the number of cells in the line
+     * @param towardLow true for the table that slides toward the first cell, false toward the last
+     * @return the table, or null if lines of this length are too long to key directly
+     */
+    private int[] findTable(int length, boolean towardLow) {
+        int keyBits = length * bitsPerCell;
+        if(length < 2 || keyBits > MAX_KEY_BITS) {
+            return null;
+        }
+
+        // the merge map covers every code a key can hold, so equal keys always compute equal entries
+        StringBuilder key = new StringBuilder();
+        key.append(bitsPerCell).append(':').append(length).append(':').append(towardLow ? 'L' : 'H');
+        for(int code = 1; code < codec.getNumCodes(); code++) {
+            key.append(':').append(codec.doubled(code));
+        }
+
+        synchronized(sharedTables) {
+            int[] table = sharedTables.get(key.toString());
+            if(table == null) {
+                table = new int[1 << keyBits];
+                if(sharedTables.size() < MAX_SHARED_TABLES) {
+                    sharedTables.put(key.toString(), table);
+                }
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Finds the table to use for a swipe direction
+     * @param direction up (U), down (D), left (L), or right (R)
+     * @return the table for that direction, or null if its lines are too long for a table
+     */
+    public int[] getTable(char direction) {
+        switch(direction) {
+            case 'U':
+                return colsTowardLow;
+            case 'D':
+                return colsTowardHigh;
+            case 'L':
+                return rowsTowardLow;
+            case 'R':
+                return rowsTowardHigh;
+            default:
+                throw new Error("Received invalid move direction");
+        }
+    }
+
+    /**
+     * Looks up the result of swiping a line, computing and caching it the first time the line is seen
+     * Concurrent callers may both compute a missing entry, but they store the same value
+     * @param table the table returned by getTable
+     * @param key the codes of the line, first cell in the lowest bits
+     * @param length the number of cells in the line
+     * @param towardLow true to slide toward the first cell, false to slide toward the last
+     * @return the table entry for the line
+     */
+    public int lookup(int[] table, int key, int length, boolean towardLow) {
+        int entry = table[key];
+        if(entry == 0) {
+            entry = compute(key, length, towardLow);
+            table[key] = entry;
+        }
+        return entry;
+    }
+
+    /**
+     * Checks whether a table entry describes a line that changed
+     * @param entry an entry returned by lookup
+     * @return true if swiping the line moved or merged any tile
+     */
+    public static boolean isChanged(int entry) {
+        return (entry & CHANGED) != 0;
+    }
+
+    /**
+     * Extracts the line after the swipe from a table entry
+     * @param entry an entry returned by lookup
+     * @return the codes of the line after the swipe, first cell in the lowest bits
+     */
+    public static int getResult(int entry) {
+        return entry >>> RESULT_SHIFT;
+    }
+
+    /**
+     * Computes the table entry for one line using the same single-pass slide and merge as PuzzleGrid
+     * @param key the codes of the line, first cell in the lowest bits
+     * @param length the number of cells in the line
+     * @param towardLow true to slide toward the first cell, false to slide toward the last
+     * @return the table entry for the line
+     */
+    private int compute(int key, int length, boolean towardLow) {
+        int mask = (1 << bitsPerCell) - 1;
+        int result = 0;
+        int write = 0;  // number of tiles written so far, counted from the wall
+        int pending = 0;  // tile waiting to see whether the next tile merges with it
+
+        for(int read = 0; read < length; read++) {
+            int cell = towardLow ? read : length - 1 - read;
+            int code = (key >>> (cell * bitsPerCell)) & mask;
+            if(code == 0) {
+                continue;
+            }
+            if(pending == code) {
+                result |= codec.doubled(code) << (position(write++, length, towardLow) * bitsPerCell);
+                pending = 0;
+            } else {
+                if(pending != 0) {
+                    result |= pending << (position(write++, length, towardLow) * bitsPerCell);
+                }
+                pending = code;
+            }
+        }
+        if(pending != 0) {
+            result |= pending << (position(write, length, towardLow) * bitsPerCell);
+        }
+
+        int entry = KNOWN | (result << RESULT_SHIFT);
+        if(result != key) {
+            entry |= CHANGED;
+        }
+        return entry;
+    }
+
+    /**
+     * Helper function to convert a distance from the wall to a cell position in the line
+     * @param fromWall the number of cells between the wall and the cell
+     * @param length the number of cells in the line
+     * @param towardLow true if the wall is at the first cell
+     * @return the position of the cell in the line
+     */
+    private int position(int fromWall, int length, boolean towardLow) {
+        return towardLow ? fromWall : length - 1 - fromWall;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Record of the state a PuzzleGrid had before PuzzleGrid.applyMove, so PuzzleGrid.undoMove can revert it
+ * The packed board is only a handful of words, so the words are saved as a whole rather than cell by cell
+ * A depth-first search keeps one MoveUndo per level and reuses it, so applying and undoing moves never allocates
+ */
+public class MoveUndo {
+
+    // fields are written and read by PuzzleGrid only
+    long[] words;  // packed board before the move, allocated on first use
+    int spawnIndex;  // spawn pool cursor before the move
+    long stateKey;  // Zobrist key before the move
+    long tileSum;  // tile statistics before the move
+    int emptyCount;
+    int maxCode;
+    int maxCount;
+    int goalCount;
+    boolean applied;  // whether the move changed the board
+
+    /**
+     * Getter for whether the recorded move changed the board
+     * @return true if the move was valid, false if the grid was left unchanged
+     */
+    public boolean isApplied() {
+        return applied;
+    }
+}
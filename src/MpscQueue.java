@@ -0,0 +1,59 @@
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unbounded lock-free queue for many producer threads and a single consumer thread
+ * Producers link a new node with one atomic swap; the consumer follows the links without any atomic operations
+ * @param <T> the type of the queued items
+ */
+public class MpscQueue<T> {
+
+    /**
+     * Linked list node; next is volatile so the consumer sees nodes linked by other threads
+     */
+    private static final class Node<T> {
+        private volatile Node<T> next;
+        private T value;
+
+        private Node(T value) {
+            this.value = value;
+        }
+    }
+
+    private final AtomicReference<Node<T>> last;  // most recently offered node, swapped by producers
+    private Node<T> first;  // node before the next item to poll, only touched by the consumer
+
+    /**
+     * Constructor to create an empty queue
+     */
+    public MpscQueue() {
+        Node<T> sentinel = new Node<>(null);
+        this.last = new AtomicReference<>(sentinel);
+        this.first = sentinel;
+    }
+
+    /**
+     * Adds an item to the queue, safe to call from any thread
+     * @param value the item to add
+     */
+    public void offer(T value) {
+        Node<T> node = new Node<>(value);
+        Node<T> previous = last.getAndSet(node);
+        previous.next = node;  // publishes the node to the consumer
+    }
+
+    /**
+     * Removes the oldest item, which must only be called from the consumer thread
+     * An item whose producer is between its swap and its link is not visible yet, and shows up on a later poll
+     * @return the oldest item, or null if none is visible
+     */
+    public T poll() {
+        Node<T> next = first.next;
+        if(next == null) {
+            return null;
+        }
+        T value = next.value;
+        next.value = null;  // next becomes the new sentinel, so drop its reference to the item
+        first = next;
+        return value;
+    }
+}
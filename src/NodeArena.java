@@ -0,0 +1,324 @@
+import java.util.Arrays;
+
+/**
+ * Store of search nodes in primitive arrays, each node referred to by an int handle instead of a PuzzleGrid object
+ * An open node holds a packed board, its spawn pool cursor and state key, its depth, its tile statistics, its cached
+ * f-value, and its step, in about 52 bytes plus the board words; a PuzzleGrid costs well over 100 bytes and a
+ * MoveHistory node on top of that. The statistics let a node be expanded without scanning its board. Taking a node to
+ * expand it frees its handle for the next node added, so the boards take room only while they are in the frontier;
+ * while a checkpoint holds a snapshot of the arena, freed handles are set aside instead, so the snapshot's nodes stay
+ * as they were until it is released
+ * A step is the swipe that generated a node and the step of the node it was generated from, 5 bytes kept for every
+ * node the search generates so the moves of a solution can be read back; steps are only ever appended and never
+ * change once added, so a step id stays valid for the whole search
+ */
+public class NodeArena {
+
+    public static final int NO_NODE = -1;  // step before the initial node, and the handle poll returns when empty
+
+    private static final int PAGE_BITS = 16;  // steps per page, as a power of 2
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private final int wordCount;
+
+    // open nodes, indexed by handle
+    private long[] words;  // wordCount words per node
+    private long[] stateKeys;
+    private int[] spawnIndexes;
+    private int[] depths;
+    private long[] tileSums;
+    private int[] counts;  // PuzzleGrid.COUNT_FIELDS tile counts per node
+    private double[] fValues;
+    private int[] steps;
+    private int[] freeHandles;  // handles of nodes that have been taken, to reuse before growing
+    private int numFree;
+    private int numHandles;
+    private int[] heldHandles;  // handles freed while a snapshot is held, reused once it is released
+    private int numHeld;
+    private boolean holding;
+
+    // steps, indexed by step id, in pages that never move so growing never copies them
+    private int[][] parentPages;
+    private byte[][] movePages;  // U, D, L, or R, or 0 for the initial node
+    private int numSteps;
+
+    /**
+     * Constructor to create an empty arena for the grids of one puzzle
+     * @param spec the puzzle, whose packed board layout fixes the number of words per node
+     * @param initialCapacity the number of open nodes to make room for before the first resize
+     */
+    public NodeArena(PuzzleSpec spec, int initialCapacity) {
+        this.wordCount = spec.getWordCount();
+        int capacity = Math.max(16, initialCapacity);
+        this.words = new long[capacity * wordCount];
+        this.stateKeys = new long[capacity];
+        this.spawnIndexes = new int[capacity];
+        this.depths = new int[capacity];
+        this.tileSums = new long[capacity];
+        this.counts = new int[capacity * PuzzleGrid.COUNT_FIELDS];
+        this.fValues = new double[capacity];
+        this.steps = new int[capacity];
+        this.freeHandles = new int[16];
+        this.heldHandles = new int[16];
+        this.parentPages = new int[16][];
+        this.movePages = new byte[16][];
+    }
+
+    /**
+     * Constructor for a view that shares the arrays of another arena
+     * @param arena the arena to share
+     */
+    private NodeArena(NodeArena arena) {
+        this.wordCount = arena.wordCount;
+        this.words = arena.words;
+        this.stateKeys = arena.stateKeys;
+        this.spawnIndexes = arena.spawnIndexes;
+        this.depths = arena.depths;
+        this.tileSums = arena.tileSums;
+        this.counts = arena.counts;
+        this.fValues = arena.fValues;
+        this.steps = arena.steps;
+        this.parentPages = arena.parentPages;
+        this.movePages = arena.movePages;
+        this.numSteps = arena.numSteps;
+    }
+
+    /**
+     * Adds a scored grid as a new open node, with a new step for the swipe that generated it
+     * @param puzzleGrid the grid, which must have been scored with Heuristic.evaluate
+     * @param parentStep the step of the node the grid was generated from, or NO_NODE for the initial grid
+     * @param move the swipe that generated the grid from its parent, or 0 for the initial grid
+     * @return the handle of the new node
+     */
+    public int add(PuzzleGrid puzzleGrid, int parentStep, char move) {
+        return addResumed(puzzleGrid, addStep(parentStep, move), puzzleGrid.getF());
+    }
+
+    /**
+     * Adds an open node read back from a file, e.g. a checkpoint, whose step has already been added
+     * @param puzzleGrid the grid the node's board was loaded into
+     * @param step the step of the node, or NO_NODE for the initial grid
+     * @param fValue the cached f-value
+     * @return the handle of the new node
+     */
+    int addResumed(PuzzleGrid puzzleGrid, int step, double fValue) {
+        int node = allocate();
+        puzzleGrid.storeState(words, node * wordCount);
+        puzzleGrid.storeCounts(counts, node * PuzzleGrid.COUNT_FIELDS);
+        stateKeys[node] = puzzleGrid.getStateKey();
+        spawnIndexes[node] = puzzleGrid.getSpawnIndex();
+        depths[node] = puzzleGrid.getDepth();
+        tileSums[node] = puzzleGrid.getTileSum();
+        fValues[node] = fValue;
+        steps[node] = step;
+        return node;
+    }
+
+    /**
+     * Adds a step of a path
+     * @param parentStep the step before it, or NO_NODE
+     * @param move the swipe made by the step, or 0 for the initial grid
+     * @return the id of the new step
+     */
+    int addStep(int parentStep, char move) {
+        int page = numSteps >>> PAGE_BITS;
+        if(page == parentPages.length) {
+            parentPages = Arrays.copyOf(parentPages, page * 2);
+            movePages = Arrays.copyOf(movePages, page * 2);
+        }
+        if(parentPages[page] == null) {
+            parentPages[page] = new int[1 << PAGE_BITS];
+            movePages[page] = new byte[1 << PAGE_BITS];
+        }
+        parentPages[page][numSteps & PAGE_MASK] = parentStep;
+        movePages[page][numSteps & PAGE_MASK] = (byte) move;
+        if(numSteps == Integer.MAX_VALUE) {
+            throw new Error("Search has generated more nodes than an arena can hold");
+        }
+        return numSteps++;
+    }
+
+    /**
+     * Overwrites a grid with the board of an open node to expand it, and frees the node's handle
+     * The grid's move history is cleared; getHistory rebuilds it from the returned step when the moves are needed
+     * @param node the handle of the node, which must not be used again until add returns it
+     * @param puzzleGrid a grid of the same puzzle to overwrite
+     * @return the step of the node, to pass to add as the parent step of its successors
+     */
+    public int take(int node, PuzzleGrid puzzleGrid) {
+        puzzleGrid.loadState(words, node * wordCount, spawnIndexes[node], stateKeys[node], depths[node],
+                tileSums[node], counts, node * PuzzleGrid.COUNT_FIELDS);
+        if(holding) {
+            if(numHeld == heldHandles.length) {
+                heldHandles = Arrays.copyOf(heldHandles, numHeld * 2);
+            }
+            heldHandles[numHeld++] = node;
+        } else {
+            pushFree(node);
+        }
+        return steps[node];
+    }
+
+    /**
+     * Builds the move history of a step by following its parents
+     * @param step the id of the step
+     * @return the most recent node of the history, or null for the initial grid
+     */
+    public MoveHistory getHistory(int step) {
+        int length = 0;
+        for(int at = step; at != NO_NODE && getMove(at) != 0; at = getParentStep(at)) {
+            length++;
+        }
+
+        // walk from the step back to the initial grid, then link the moves from the first one forward
+        char[] path = new char[length];
+        for(int at = step; at != NO_NODE && getMove(at) != 0; at = getParentStep(at)) {
+            path[--length] = getMove(at);
+        }
+        MoveHistory history = null;
+        for(char move : path) {
+            history = new MoveHistory(history, move);
+        }
+        return history;
+    }
+
+    /**
+     * Creates a read-only view of the open nodes and steps, e.g. for a checkpoint to write on another thread
+     * Until releaseSnapshot is called, the handles of taken nodes are not reused, and growing the arena copies its
+     * arrays, so every node open now stays as it is in the view while this arena keeps changing; steps never change
+     * once added and their pages never move
+     * @return an arena sharing this one's arrays, which must not be added to or taken from
+     */
+    public NodeArena holdSnapshot() {
+        holding = true;
+        return new NodeArena(this);
+    }
+
+    /**
+     * Lets the handles taken since holdSnapshot be reused, once the snapshot is no longer read
+     */
+    public void releaseSnapshot() {
+        holding = false;
+        for(int i = 0; i < numHeld; i++) {
+            pushFree(heldHandles[i]);
+        }
+        numHeld = 0;
+    }
+
+    /**
+     * Getter for the step before a step
+     * @param step the id of the step
+     * @return the id of the parent step, or NO_NODE for the initial grid
+     */
+    public int getParentStep(int step) {
+        return parentPages[step >>> PAGE_BITS][step & PAGE_MASK];
+    }
+
+    /**
+     * Getter for the swipe of a step
+     * @param step the id of the step
+     * @return up (U), down (D), left (L), or right (R), or 0 for the initial grid
+     */
+    public char getMove(int step) {
+        return (char) movePages[step >>> PAGE_BITS][step & PAGE_MASK];
+    }
+
+    /**
+     * Getter for the step of an open node
+     * @param node the handle of the node
+     * @return the id of the step that generated the node
+     */
+    public int getStep(int node) {
+        return steps[node];
+    }
+
+    /**
+     * Getter for the depth of an open node
+     * @param node the handle of the node
+     * @return the number of moves made from the initial grid
+     */
+    public int getDepth(int node) {
+        return depths[node];
+    }
+
+    /**
+     * Getter for the cached f-value of an open node
+     * @param node the handle of the node
+     * @return f(n) as computed when the node was generated
+     */
+    public double getF(int node) {
+        return fValues[node];
+    }
+
+    /**
+     * Getter for the state key of an open node
+     * @param node the handle of the node
+     * @return the Zobrist key of the node's board and spawn pool cursor
+     */
+    public long getStateKey(int node) {
+        return stateKeys[node];
+    }
+
+    /**
+     * Getter for the spawn pool cursor of an open node
+     * @param node the handle of the node
+     * @return the index of the next tile to spawn
+     */
+    public int getSpawnIndex(int node) {
+        return spawnIndexes[node];
+    }
+
+    /**
+     * Copies the packed board of an open node into an array, e.g. to write it to a file
+     * @param node the handle of the node
+     * @param destination the array to copy into
+     * @param offset the index in destination of the first word
+     */
+    public void storeWords(int node, long[] destination, int offset) {
+        System.arraycopy(words, node * wordCount, destination, offset, wordCount);
+    }
+
+    /**
+     * Getter for the number of steps
+     * @return the number of nodes generated so far, open or taken
+     */
+    public int getNumSteps() {
+        return numSteps;
+    }
+
+    /**
+     * Helper function to make a handle available to the next node added
+     * @param node the handle of a node that has been taken
+     */
+    private void pushFree(int node) {
+        if(numFree == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, numFree * 2);
+        }
+        freeHandles[numFree++] = node;
+    }
+
+    /**
+     * Helper function to claim a handle, reusing a freed one if there is one and doubling the arrays when they are full
+     * @return the handle of the new node
+     */
+    private int allocate() {
+        if(numFree > 0) {
+            return freeHandles[--numFree];
+        }
+        if(numHandles == steps.length) {
+            long capacity = Math.min((long) numHandles * 2, Integer.MAX_VALUE / Math.max(1, wordCount));
+            if(capacity <= numHandles) {
+                throw new Error("Search has more open nodes than an arena can hold");
+            }
+            words = Arrays.copyOf(words, (int) capacity * wordCount);
+            stateKeys = Arrays.copyOf(stateKeys, (int) capacity);
+            spawnIndexes = Arrays.copyOf(spawnIndexes, (int) capacity);
+            depths = Arrays.copyOf(depths, (int) capacity);
+            tileSums = Arrays.copyOf(tileSums, (int) capacity);
+            counts = Arrays.copyOf(counts, (int) capacity * PuzzleGrid.COUNT_FIELDS);
+            fValues = Arrays.copyOf(fValues, (int) capacity);
+            steps = Arrays.copyOf(steps, (int) capacity);
+        }
+        return numHandles++;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Frontier of a best-first search, returning the node with the best score first
+ * Nodes are the int handles of a NodeArena, queued with the f-value Heuristic.evaluate gave them
+ */
+public interface OpenList {
+
+    /**
+     * Adds a scored node to the frontier
+     * @param node the handle of the node
+     * @param score the node's f-value
+     */
+    void add(int node, double score);
+
+    /**
+     * Removes the best node from the frontier
+     * @return the handle of the best node according to the heuristic, or NodeArena.NO_NODE if the frontier is empty
+     */
+    int poll();
+
+    /**
+     * Getter for the number of nodes in the frontier
+     * @return the size of the frontier
+     */
+    int size();
+
+    /**
+     * Copies the queued nodes into an array without removing them, e.g. to save them in a checkpoint
+     * Adding the nodes back to an empty OpenList in array order, with the same scores, reproduces the order they
+     * are polled in
+     * @return the handles of the nodes in the frontier
+     */
+    int[] toArray();
+
+    /**
+     * Checks whether the frontier is empty
+     * @return true if there are no nodes left to expand
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Picks the fastest frontier for a heuristic: a bucket queue for heuristics with small non-negative
+     * integer values, or a binary heap of the scores otherwise
+     * @param heuristic the heuristic that scores the nodes
+     * @return an empty frontier
+     */
+    static OpenList forHeuristic(Heuristic heuristic) {
+        if(heuristic.hasIntegerValues()) {
+            return new BucketOpenList(heuristic.prefersHigherValues());
+        }
+        return new HeapOpenList(heuristic.prefersHigherValues());
+    }
+}
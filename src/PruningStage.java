@@ -0,0 +1,427 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dead-state tests that every solver runs on a new grid before adding it to its frontier
+ * A rule only calls a grid dead when no sequence of swipes from it can ever produce the goal tile, so pruning never
+ * loses a solution or makes one longer; a grid that already holds the goal tile is never pruned
+ * The built-in rules are installed only for puzzles where they can ever fire, so for most puzzles the stage is empty
+ * and a check costs one loop over no rules. The stage can be shared by the threads of a parallel search, and counts how
+ * many grids each rule cut during the current solve
+ * The built-in rules read how many of each tile code a grid holds; the stage counts them in one pass over the grid,
+ * shared by every such rule, into a per-thread scratch that only the codes it touched are cleared from
+ *
+ * The rules reason about tile families: the tiles with the same odd base, e.g. 3, 6, 12, 24. Merging keeps a tile in
+ * its family, so only the goal tile's family can ever produce it, and every other tile only takes up room. A tile
+ * value is closed when no spawn can ever produce it: nothing at or below it in its family spawns (and, above the goal,
+ * nothing between the goal and it). Closed tiles can only merge with each other, so a family whose closed tiles all
+ * differ never merges them again, and they are permanent blockers, like most tiles of inputs/puzzle5.txt
+ */
+public class PruningStage {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final Rule[] rules;
+    private final boolean[] readsCounts;  // for each rule, whether it is a CountingRule
+    private final LongAdder[] pruned;  // grids cut by each rule in the current solve
+    private final ThreadLocal<CodeCounts> codeCounts = ThreadLocal.withInitial(CodeCounts::new);
+
+    /**
+     * One sound test for grids that can never reach the goal tile
+     */
+    public interface Rule {
+
+        /**
+         * Getter for the name the rule's count is reported under
+         * @return a short name, e.g. "mass"
+         */
+        String getName();
+
+        /**
+         * Checks a grid that has just been generated; may be called from several threads at once
+         * @param puzzleGrid the grid to check
+         * @return true only if the goal tile can never be produced from the grid
+         */
+        boolean isDead(PuzzleGrid puzzleGrid);
+    }
+
+    /**
+     * Rule that works from how many of each tile code a grid holds, which the stage counts once for all such rules
+     */
+    private interface CountingRule extends Rule {
+
+        /**
+         * Checks a grid that has just been generated, given its tile counts; may be called from several threads at once
+         * @param puzzleGrid the grid to check
+         * @param counts how many cells of the grid hold each code
+         * @return true only if the goal tile can never be produced from the grid
+         */
+        boolean isDead(PuzzleGrid puzzleGrid, int[] counts);
+
+        @Override
+        default boolean isDead(PuzzleGrid puzzleGrid) {
+            CodeCounts counts = new CodeCounts();
+            counts.count(puzzleGrid);
+            return isDead(puzzleGrid, counts.counts);
+        }
+    }
+
+    /**
+     * Per-thread scratch for the tile counts of one grid, remembering which codes it touched so that clearing it
+     * costs one step per distinct code rather than another pass over the grid
+     */
+    private static class CodeCounts {
+        int[] counts = new int[0];  // cells holding each code, all zero between grids
+        int[] touched = new int[0];  // codes with a non-zero count
+        int numTouched = 0;
+
+        /**
+         * Counts the codes of a grid into the cleared scratch
+         * @param puzzleGrid the grid to count
+         */
+        void count(PuzzleGrid puzzleGrid) {
+            PuzzleSpec spec = puzzleGrid.getSpec();
+            int numCodes = spec.getCodec().getNumCodes();
+            if(counts.length < numCodes) {
+                counts = new int[numCodes];
+                touched = new int[numCodes];
+            }
+            int numCells = spec.getNumCells();
+            for(int cell = 0; cell < numCells; cell++) {
+                int code = puzzleGrid.getCode(cell);
+                if(counts[code]++ == 0) {
+                    touched[numTouched++] = code;
+                }
+            }
+        }
+
+        /**
+         * Sets the counts of the touched codes back to zero
+         */
+        void clear() {
+            for(int i = 0; i < numTouched; i++) {
+                counts[touched[i]] = 0;
+            }
+            numTouched = 0;
+        }
+    }
+
+    /**
+     * Constructor to create a stage from any rules; with none, nothing is ever pruned
+     * @param rules the rules to run, cheapest first
+     */
+    public PruningStage(Rule... rules) {
+        this.rules = rules.clone();
+        this.readsCounts = new boolean[rules.length];
+        this.pruned = new LongAdder[rules.length];
+        for(int i = 0; i < rules.length; i++) {
+            readsCounts[i] = rules[i] instanceof CountingRule;
+            pruned[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Creates the stage with the built-in rules that can fire for a puzzle
+     * @param initialGrid the initial grid of the puzzle
+     * @return the stage, which may have no rules
+     */
+    public static PruningStage forPuzzle(PuzzleGrid initialGrid) {
+        PuzzleSpec spec = initialGrid.getSpec();
+        int goalTile = spec.getGoalTile();
+        if(goalTile <= 0) {
+            return new PruningStage();
+        }
+        List<Rule> rules = new ArrayList<>();
+        if(!canSpawnTowardGoal(spec)) {
+            rules.add(new MassRule(spec));
+        }
+        CapacityRule capacityRule = new CapacityRule(spec);
+        if(capacityRule.canFire(initialGrid)) {
+            rules.add(capacityRule);
+        }
+        return new PruningStage(rules.toArray(new Rule[0]));
+    }
+
+    /**
+     * Checks a grid with every rule, counting it against the first rule that finds it dead
+     * @param puzzleGrid the grid to check, not yet in the frontier
+     * @return true if the grid can never reach the goal tile and should be dropped
+     */
+    public boolean isDead(PuzzleGrid puzzleGrid) {
+        CodeCounts counts = null;  // counted when the first rule that reads them runs
+        boolean dead = false;
+        for(int i = 0; i < rules.length && !dead; i++) {
+            boolean ruleDead;
+            if(readsCounts[i]) {
+                if(counts == null) {
+                    counts = codeCounts.get();
+                    counts.count(puzzleGrid);
+                }
+                ruleDead = ((CountingRule) rules[i]).isDead(puzzleGrid, counts.counts);
+            } else {
+                ruleDead = rules[i].isDead(puzzleGrid);
+            }
+            // the rules look at the tiles below the goal, so a grid holding the goal is let through here
+            if(ruleDead && !puzzleGrid.checkGoal()) {
+                pruned[i].increment();
+                dead = true;
+            }
+        }
+        if(counts != null) {
+            counts.clear();
+        }
+        return dead;
+    }
+
+    /**
+     * Clears the counts, called when a solve starts
+     */
+    public void resetCounts() {
+        for(LongAdder count : pruned) {
+            count.reset();
+        }
+    }
+
+    /**
+     * Getter for the number of rules
+     * @return the number of rules the stage runs
+     */
+    public int getNumRules() {
+        return rules.length;
+    }
+
+    /**
+     * Getter for the name of a rule
+     * @param rule the index of the rule
+     * @return the name its count is reported under
+     */
+    public String getRuleName(int rule) {
+        return rules[rule].getName();
+    }
+
+    /**
+     * Getter for the number of grids a rule cut
+     * @param rule the index of the rule
+     * @return the number of grids the rule found dead in the current solve
+     */
+    public long getPruned(int rule) {
+        return pruned[rule].sum();
+    }
+
+    /**
+     * Helper function to check whether spawns can ever add to the goal tile's family below the goal
+     * @param spec the puzzle
+     * @return true if some spawn is in the goal's family and no larger than the goal
+     */
+    private static boolean canSpawnTowardGoal(PuzzleSpec spec) {
+        int goalTile = spec.getGoalTile();
+        for(int spawn : spec.getSpawnPool()) {
+            if(spawn > 0 && spawn <= goalTile && base(spawn) == base(goalTile)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Helper function to find the family of a tile
+     * @param tile a positive tile value
+     * @return its odd base, e.g. 3 for 12
+     */
+    private static int base(int tile) {
+        return tile >> Integer.numberOfTrailingZeros(tile);
+    }
+
+    /**
+     * Cuts grids whose tiles below the goal in its family add up to less than the goal, when spawns can't add to them
+     * Merging two tiles below the goal either keeps their sum below the goal or produces the goal, so without spawns
+     * that sum never grows
+     */
+    private static class MassRule implements CountingRule {
+
+        private final long goalTile;
+        private final int[] massCodes;  // codes that count toward the goal
+        private final long[] mass;  // value of each code in massCodes
+
+        /**
+         * Constructor to precompute which codes count toward the goal
+         * @param spec the puzzle, whose spawns can't add to the goal's family
+         */
+        MassRule(PuzzleSpec spec) {
+            this.goalTile = spec.getGoalTile();
+            TileCodec codec = spec.getCodec();
+            List<Integer> codes = new ArrayList<>();
+            for(int code = 1; code < codec.getNumCodes(); code++) {
+                int value = codec.decode(code);
+                if(value < goalTile && base(value) == base((int) goalTile)) {
+                    codes.add(code);
+                }
+            }
+            this.massCodes = new int[codes.size()];
+            this.mass = new long[codes.size()];
+            for(int i = 0; i < massCodes.length; i++) {
+                massCodes[i] = codes.get(i);
+                mass[i] = codec.decode(massCodes[i]);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "mass";
+        }
+
+        @Override
+        public boolean isDead(PuzzleGrid puzzleGrid, int[] counts) {
+            long total = 0;
+            for(int i = 0; i < massCodes.length; i++) {
+                total += mass[i] * counts[massCodes[i]];
+            }
+            return total < goalTile;
+        }
+    }
+
+    /**
+     * Cuts grids that have too few cells left, once permanent blockers are taken out, to build the goal tile
+     * Building a tile takes two of the next smaller tile at once, and the second is built while the first is held, so
+     * a tile needs one cell more than the next smaller one unless two of those are already on the grid, and one cell
+     * if it spawns. Tiles already on the grid are assumed to be free to drop, which only lowers the count
+     */
+    private static class CapacityRule implements CountingRule {
+
+        private final int numCells;
+        private final int goalExponent;  // the goal is its family's base times 2 to this power
+        private final boolean[] spawnable;  // for each exponent up to the goal's, whether that tile spawns
+        private final int[] exponentCodes;  // code of each tile below the goal in its family, or -1 if it never appears
+        private final int[] closedCodes;  // closed codes, grouped by family
+        private final int[] groupStarts;  // start of each family's closed codes, plus the end of the last one
+        private final boolean[] closed;  // for each code, whether it is closed
+
+        /**
+         * Constructor to precompute the goal's family, the spawns, and the closed codes
+         * @param spec the puzzle
+         */
+        CapacityRule(PuzzleSpec spec) {
+            TileCodec codec = spec.getCodec();
+            int goalTile = spec.getGoalTile();
+            int goalBase = base(goalTile);
+            this.numCells = spec.getNumCells();
+            this.goalExponent = Integer.numberOfTrailingZeros(goalTile);
+            this.spawnable = new boolean[goalExponent + 1];
+            this.exponentCodes = new int[goalExponent];
+            for(int exponent = 0; exponent < goalExponent; exponent++) {
+                exponentCodes[exponent] = codec.encode(goalBase << exponent);
+            }
+
+            // the smallest spawn of each family, and of the goal's family above the goal
+            Map<Integer, Integer> smallestSpawns = new LinkedHashMap<>();
+            long smallestSpawnAboveGoal = Long.MAX_VALUE;
+            for(int spawn : spec.getSpawnPool()) {
+                if(spawn <= 0) {
+                    continue;
+                }
+                smallestSpawns.merge(base(spawn), spawn, Math::min);
+                if(base(spawn) == goalBase && spawn <= goalTile) {
+                    spawnable[Integer.numberOfTrailingZeros(spawn)] = true;
+                } else if(base(spawn) == goalBase) {
+                    smallestSpawnAboveGoal = Math.min(smallestSpawnAboveGoal, spawn);
+                }
+            }
+
+            // group the closed codes by family; the goal's family above the goal is a group of its own
+            int numCodes = codec.getNumCodes();
+            this.closed = new boolean[numCodes];
+            Map<Long, List<Integer>> groups = new LinkedHashMap<>();
+            for(int code = 1; code < numCodes; code++) {
+                int value = codec.decode(code);
+                int family = base(value);
+                long smallestSpawn;
+                long group = family;
+                if(family == goalBase && value > goalTile) {
+                    smallestSpawn = smallestSpawnAboveGoal;
+                    group = -1;
+                } else {
+                    smallestSpawn = smallestSpawns.getOrDefault(family, Integer.MAX_VALUE);
+                }
+                if(value != goalTile && smallestSpawn > value) {
+                    closed[code] = true;
+                    groups.computeIfAbsent(group, key -> new ArrayList<>()).add(code);
+                }
+            }
+            this.closedCodes = new int[numCodes];
+            this.groupStarts = new int[groups.size() + 1];
+            int numClosed = 0;
+            int group = 0;
+            for(List<Integer> codes : groups.values()) {
+                groupStarts[group++] = numClosed;
+                for(int code : codes) {
+                    closedCodes[numClosed++] = code;
+                }
+            }
+            groupStarts[group] = numClosed;
+        }
+
+        /**
+         * Checks whether the rule could ever cut a grid of the puzzle, so it is left out when it can't
+         * Closed tiles never become more numerous, so the initial grid has the most blockers there will be, and the
+         * tiles on the grid only ever lower the cells needed
+         * @param initialGrid the initial grid
+         * @return true if some grid of the puzzle could have too few cells
+         */
+        boolean canFire(PuzzleGrid initialGrid) {
+            int mostBlockers = 0;
+            for(int cell = 0; cell < numCells; cell++) {
+                if(closed[initialGrid.getCode(cell)]) {
+                    mostBlockers++;
+                }
+            }
+            return cellsNeeded(new int[closed.length]) > numCells - mostBlockers;
+        }
+
+        @Override
+        public String getName() {
+            return "capacity";
+        }
+
+        @Override
+        public boolean isDead(PuzzleGrid puzzleGrid, int[] counts) {
+            // a family whose closed tiles all differ can never merge them
+            int blockers = 0;
+            for(int group = 0; group + 1 < groupStarts.length; group++) {
+                int tiles = 0;
+                boolean merges = false;
+                for(int i = groupStarts[group]; i < groupStarts[group + 1]; i++) {
+                    int count = counts[closedCodes[i]];
+                    tiles += count;
+                    merges |= count > 1;
+                }
+                if(!merges) {
+                    blockers += tiles;
+                }
+            }
+            return cellsNeeded(counts) > numCells - blockers;
+        }
+
+        /**
+         * Helper function to find the fewest cells that must be free at once to build the goal tile
+         * @param counts how many cells of the grid hold each code
+         * @return the number of cells, or UNREACHABLE if the goal can't be built at all
+         */
+        private int cellsNeeded(int[] counts) {
+            int needed = UNREACHABLE;  // for the tile one exponent below the current one
+            for(int exponent = 0; exponent <= goalExponent; exponent++) {
+                int smallerCode = exponent > 0 ? exponentCodes[exponent - 1] : -1;
+                if(spawnable[exponent]) {
+                    needed = 1;
+                } else if(smallerCode >= 0 && counts[smallerCode] >= 2) {
+                    needed = 2;
+                } else if(needed != UNREACHABLE) {
+                    needed++;
+                }
+            }
+            return needed;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Solves many puzzles in one run of the JVM, writing each solution next to its puzzle as soon as it is found
+ * Puzzle files are read and solution files written on virtual threads when the JVM has them (Java 21 and later), or
+ * on a small fixed pool otherwise; the searches run on a fixed pool of workers, so only that many puzzles are being
+ * searched, and holding search memory, at once
+ * Each solution file holds the lines MainPuzzle prints for one puzzle, with the time spent solving it rather than
+ * waiting for a worker; a solve stopped by the time limit gets no solution file
+ */
+public class PuzzleBatch {
+
+    private static final String PUZZLE_SUFFIX = ".txt";
+    private static final String SOLUTION_SUFFIX = ".solution.txt";
+    private static final int FALLBACK_IO_THREADS = 4;  // for JVMs without virtual threads
+
+    private final SolverOptions options;
+    private final PrintStream report;  // one line per puzzle, then the summary
+
+    // totals over the batch, added to by whichever thread finishes a puzzle
+    private final AtomicInteger solved = new AtomicInteger();
+    private final AtomicInteger unsolvable = new AtomicInteger();
+    private final AtomicInteger timedOut = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong nodesExpanded = new AtomicLong();
+
+    /**
+     * The outcome of one solve
+     */
+    private static class Result {
+        private final PuzzleSolver solver;
+        private final PuzzleGrid solution;  // null if there is none or the solve was stopped
+        private final long nanos;
+
+        /**
+         * Constructor for a finished solve
+         * @param solver the solver, for its stats
+         * @param solution the solution it returned
+         * @param nanos the time spent creating the solver and solving
+         */
+        private Result(PuzzleSolver solver, PuzzleGrid solution, long nanos) {
+            this.solver = solver;
+            this.solution = solution;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Constructor for a batch run
+     * @param options the options, which pick the solver for every puzzle as well as the puzzles and workers
+     * @param report the stream to report progress and the totals to
+     */
+    public PuzzleBatch(SolverOptions options, PrintStream report) {
+        this.options = options;
+        this.report = report;
+    }
+
+    /**
+     * Solves every puzzle of the batch, returning once all of them have finished, failed, or run out of time
+     */
+    public void run() {
+        List<Path> puzzleFiles = listPuzzles(options.getBatchPath());
+        long startTime = System.nanoTime();
+
+        ExecutorService io = newIoExecutor();
+        ExecutorService workers = Executors.newFixedThreadPool(options.getNumWorkers(), namedThreads("batch-worker-", false));
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(namedThreads("batch-timer-", true));
+        try {
+            CompletableFuture<?>[] jobs = new CompletableFuture<?>[puzzleFiles.size()];
+            for(int i = 0; i < jobs.length; i++) {
+                Path puzzleFile = puzzleFiles.get(i);
+                jobs[i] = CompletableFuture.supplyAsync(() -> readPuzzle(puzzleFile), io)
+                        .thenApplyAsync(input -> solve(input, timer), workers)
+                        .thenAcceptAsync(result -> finish(puzzleFile, result), io)
+                        .exceptionally(e -> {
+                            fail(puzzleFile, e instanceof CompletionException ? e.getCause() : e);
+                            return null;
+                        });
+            }
+            CompletableFuture.allOf(jobs).join();
+        } finally {
+            io.shutdown();
+            workers.shutdown();
+            timer.shutdownNow();
+        }
+
+        printSummary(puzzleFiles.size(), System.nanoTime() - startTime);
+    }
+
+    /**
+     * Helper function to find the puzzles of the batch
+     * @param batchPath a directory, whose puzzle files are all solved, or a manifest file with one puzzle file per line;
+     * blank lines and lines starting with # are skipped, and relative paths are relative to the manifest
+     * @return the puzzle files, in name order for a directory and in listed order for a manifest
+     */
+    private static List<Path> listPuzzles(Path batchPath) {
+        List<Path> puzzleFiles = new ArrayList<>();
+        try {
+            if(Files.isDirectory(batchPath)) {
+                try(Stream<Path> entries = Files.list(batchPath)) {
+                    entries.filter(Files::isRegularFile)
+                            .filter(path -> isPuzzleName(path.getFileName().toString()))
+                            .sorted()
+                            .forEach(puzzleFiles::add);
+                }
+            } else {
+                Path base = batchPath.toAbsolutePath().getParent();
+                for(String line : Files.readAllLines(batchPath)) {
+                    line = line.trim();
+                    if(!line.isEmpty() && !line.startsWith("#")) {
+                        puzzleFiles.add(base.resolve(line));
+                    }
+                }
+            }
+        } catch(IOException e) {
+            throw new Error("Could not read batch " + batchPath, e);
+        }
+        return puzzleFiles;
+    }
+
+    /**
+     * Helper function to tell puzzle files from the solutions written next to them
+     * @param fileName the name of a file in the batch directory
+     * @return true if the file is a puzzle
+     */
+    private static boolean isPuzzleName(String fileName) {
+        return fileName.endsWith(PUZZLE_SUFFIX) && !fileName.endsWith(SOLUTION_SUFFIX);
+    }
+
+    /**
+     * Helper function to read one puzzle file
+     * @param puzzleFile the file to read
+     * @return the scanner holding the puzzle
+     */
+    private static InputScanner readPuzzle(Path puzzleFile) {
+        InputScanner input = new InputScanner();
+        try(InputStream source = Files.newInputStream(puzzleFile)) {
+            input.read(source);
+        } catch(IOException e) {
+            throw new Error("Could not read " + puzzleFile, e);
+        }
+        return input;
+    }
+
+    /**
+     * Helper function to solve one puzzle on a worker, cancelling the solve if it runs past the time limit
+     * @param input the puzzle
+     * @param timer the thread that cancels solves that run too long
+     * @return the outcome of the solve
+     */
+    private Result solve(InputScanner input, ScheduledExecutorService timer) {
+        long startTime = System.nanoTime();
+        PuzzleSolver solver = options.createSolver(input.getInitialGrid(), input.getGoalTile(), input.getSpawnPool());
+        if(options.getStatsInterval() > 0) {
+            solver.getStats().setSnapshotListener(System.err::println, options.getStatsInterval() * 1000L);
+        }
+        ScheduledFuture<?> alarm = null;
+        if(options.getTimeLimit() > 0) {
+            alarm = timer.schedule(solver::cancel, options.getTimeLimit(), TimeUnit.SECONDS);
+        }
+        try {
+            PuzzleGrid solution = solver.solve();
+            return new Result(solver, solution, System.nanoTime() - startTime);
+        } finally {
+            if(alarm != null) {
+                alarm.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Helper function to write the solution file of a finished solve and add it to the totals
+     * @param puzzleFile the puzzle that was solved
+     * @param result the outcome of the solve
+     */
+    private void finish(Path puzzleFile, Result result) {
+        SearchStats stats = result.solver.getStats();
+        nodesExpanded.addAndGet(stats.getNodesExpanded());
+        if(options.getPrintStats()) {
+            System.err.println(stats.toJson());
+        }
+
+        long msElapsed = result.nanos / 1000000;
+        if(result.solver.isCancelled()) {
+            timedOut.incrementAndGet();
+            report.println(puzzleFile + ": stopped at the time limit after " + msElapsed + " ms");
+            return;
+        }
+
+        Path solutionFile = solutionFileFor(puzzleFile);
+        try(PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(solutionFile)))) {
+            MainPuzzle.printResults(out, result.nanos / 1000, result.solution);
+        } catch(IOException e) {
+            throw new Error("Could not write " + solutionFile, e);
+        }
+
+        if(result.solution != null) {
+            solved.incrementAndGet();
+            report.println(puzzleFile + ": " + result.solution.getDepth() + " swipes in " + msElapsed + " ms");
+        } else {
+            unsolvable.incrementAndGet();
+            report.println(puzzleFile + ": no solution, found in " + msElapsed + " ms");
+        }
+    }
+
+    /**
+     * Helper function to report a puzzle that could not be read, solved, or written
+     * @param puzzleFile the puzzle
+     * @param cause what went wrong
+     */
+    private void fail(Path puzzleFile, Throwable cause) {
+        failed.incrementAndGet();
+        report.println(puzzleFile + ": failed: " + cause);
+    }
+
+    /**
+     * Helper function to name the solution file of a puzzle the way run.sh does
+     * @param puzzleFile the puzzle
+     * @return the puzzle's path with its extension replaced by .solution.txt
+     */
+    private static Path solutionFileFor(Path puzzleFile) {
+        String fileName = puzzleFile.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String stem = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return puzzleFile.resolveSibling(stem + SOLUTION_SUFFIX);
+    }
+
+    /**
+     * Helper function to print the totals and throughput of the batch
+     * @param numPuzzles the number of puzzles in the batch
+     * @param nanos the wall time of the whole batch
+     */
+    private void printSummary(int numPuzzles, long nanos) {
+        double seconds = nanos / 1e9;
+        report.println("Solved " + solved.get() + " of " + numPuzzles + " puzzles (" + unsolvable.get()
+                + " with no solution, " + timedOut.get() + " stopped at the time limit, " + failed.get()
+                + " failed) in " + String.format("%.3f", seconds) + " s on " + options.getNumWorkers() + " workers");
+        report.println(String.format("%.2f puzzles/s, %d nodes expanded, %.0f nodes/s",
+                numPuzzles / seconds, nodesExpanded.get(), nodesExpanded.get() / seconds));
+    }
+
+    /**
+     * Helper function to create the executor for reading and writing files
+     * Virtual threads are looked up reflectively so the solver still builds and runs on Java 17
+     * @return a virtual-thread-per-task executor if the JVM supports one, or a small fixed pool otherwise
+     */
+    private static ExecutorService newIoExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch(ReflectiveOperationException e) {
+            // before Java 21 the method is missing, or a preview feature that was not enabled
+            return Executors.newFixedThreadPool(FALLBACK_IO_THREADS, namedThreads("batch-io-", true));
+        }
+    }
+
+    /**
+     * Helper function to create threads with numbered names, so they can be told apart in thread dumps and recordings
+     * @param prefix the start of each thread's name
+     * @param daemon true if the threads should not keep the JVM alive
+     * @return the thread factory
+     */
+    static ThreadFactory namedThreads(String prefix, boolean daemon) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.getAndIncrement());
+            thread.setDaemon(daemon);
+            return thread;
+        };
+    }
+}
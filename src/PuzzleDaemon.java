@@ -0,0 +1,293 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running solver that answers puzzle requests over a local socket, so each puzzle costs only its search rather
+ * than compiling, starting a JVM, and running the search in the interpreter
+ * Listens on a loopback TCP port or a Unix-domain socket. A request is a line "solve" followed by the arguments
+ * run.sh takes after the puzzle file (the heuristic, then any options), the lines of the puzzle file, and a line "end";
+ * the answer is the output MainPuzzle prints for that puzzle, or a line starting with "error:", and then the daemon
+ * closes the connection. A line "stop" shuts the daemon down once the requests it is working on are answered
+ * A request must arrive in full within REQUEST_SECONDS of connecting, or it is answered with an error, so a client that
+ * connects and never finishes its request can't hold a worker
+ * Before listening, the daemon solves a built-in puzzle with its own options until the warm-up time is up, so the JIT
+ * has compiled the move, heuristic, and open-list code by the time the first request comes in
+ */
+public class PuzzleDaemon {
+
+    private static final String END_OF_PUZZLE = "end";
+    private static final int REQUEST_SECONDS = 10;  // time a client has to send its whole request
+    // the only options a request may set; anything naming a file or sizing a resource is the daemon's to choose
+    private static final String[] REQUEST_OPTIONS = {"--solver=", "--time-limit=", "--threads=", "--stats", "--no-pruning"};
+
+    private final SolverOptions options;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;  // cancels solves that run past their time limit
+    private ServerSocketChannel server;
+    private Path socketFile;  // null when listening on a TCP port
+    private volatile boolean stopping;
+
+    /**
+     * Constructor for a daemon
+     * @param options the options the daemon was started with: the address, the number of workers, the warm-up time,
+     * and the heuristic and solver to warm up with
+     */
+    public PuzzleDaemon(SolverOptions options) {
+        this.options = options;
+        this.workers = Executors.newFixedThreadPool(options.getNumWorkers(), PuzzleBatch.namedThreads("daemon-worker-", false));
+        this.timer = Executors.newSingleThreadScheduledExecutor(PuzzleBatch.namedThreads("daemon-timer-", true));
+    }
+
+    /**
+     * Warms up, then answers requests until a stop request comes in
+     */
+    public void run() {
+        warmUp();
+        server = bind(options.getListenAddress());
+        try {
+            System.err.println("Listening on " + server.getLocalAddress());
+            while(!stopping) {
+                SocketChannel client = server.accept();
+                workers.execute(() -> handle(client));
+            }
+        } catch(ClosedChannelException e) {
+            // closed by a stop request
+        } catch(IOException e) {
+            throw new Error("Could not accept requests on " + options.getListenAddress(), e);
+        } finally {
+            workers.shutdown();
+            timer.shutdownNow();
+            deleteSocketFile();
+        }
+    }
+
+    /**
+     * Helper function to solve the built-in puzzle repeatedly until the warm-up time is up
+     * A solve still running at the end of the warm-up is cancelled
+     */
+    private void warmUp() {
+        if(options.getWarmup() == 0) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.SECONDS.toNanos(options.getWarmup());
+        int solves = 0;
+        for(long now = startTime; now - deadline < 0; now = System.nanoTime()) {
+            // the puzzle of inputs/puzzle2.txt: small enough to solve quickly with every solver; never from the cache,
+            // since a cache hit warms nothing
+            int[][] initialGrid = {{0, 0, 0, 4}, {0, 0, 0, 0}, {0, 0, 0, 0}, {2, 0, 0, 0}};
+            PuzzleSolver solver = options.createUncachedSolver(initialGrid, 32, new int[] {2, 4});
+            ScheduledFuture<?> alarm = timer.schedule(solver::cancel, deadline - now, TimeUnit.NANOSECONDS);
+            solver.solve();
+            alarm.cancel(false);
+            solves++;
+        }
+        System.err.println("Warmed up with " + solves + " solves in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+    }
+
+    /**
+     * Helper function to open the listening socket
+     * @param address a port number for a loopback TCP port, or a path for a Unix-domain socket
+     * @return the bound server channel
+     */
+    private ServerSocketChannel bind(String address) {
+        try {
+            if(address.chars().allMatch(Character::isDigit)) {
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+                return channel;
+            }
+            Path path = Paths.get(address);
+            if(Files.exists(path)) {
+                throw new Error("Socket file " + path + " already exists; remove it if no daemon is using it");
+            }
+            ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.bind(UnixDomainSocketAddress.of(path));
+            socketFile = path;
+            Runtime.getRuntime().addShutdownHook(new Thread(this::deleteSocketFile));  // also on Ctrl-C
+            return channel;
+        } catch(IOException e) {
+            throw new Error("Could not listen on " + address, e);
+        }
+    }
+
+    /**
+     * Helper function to remove the Unix-domain socket file, if the daemon made one
+     */
+    private void deleteSocketFile() {
+        if(socketFile != null) {
+            try {
+                Files.deleteIfExists(socketFile);
+            } catch(IOException e) {
+                // nothing more to do while shutting down
+            }
+        }
+    }
+
+    /**
+     * Helper function to answer one connection on a worker
+     * Errors in the request, and in the solve, are sent back rather than stopping the daemon
+     * Once REQUEST_SECONDS have passed, the input of the connection is shut down, which ends a read still waiting on
+     * the request as if the client had stopped sending
+     * @param client the connection of the request
+     */
+    private void handle(SocketChannel client) {
+        try(SocketChannel channel = client) {
+            ScheduledFuture<?> requestAlarm = timer.schedule(() -> shutdownInput(channel), REQUEST_SECONDS,
+                    TimeUnit.SECONDS);
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                    StandardCharsets.US_ASCII));
+            PrintStream out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(channel)), false,
+                    StandardCharsets.US_ASCII);
+            try {
+                respond(in, out, requestAlarm);
+            } catch(Error | RuntimeException e) {
+                out.println("error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            }
+            out.flush();
+        } catch(IOException e) {
+            System.err.println("Lost a connection: " + e);
+        }
+    }
+
+    /**
+     * Helper function to read one request and write its answer
+     * @param in the lines of the request
+     * @param out the stream to answer on
+     * @param requestAlarm the task that ends the request once its time is up, cancelled when it has been read
+     * @throws IOException if the connection fails
+     */
+    private void respond(BufferedReader in, PrintStream out, ScheduledFuture<?> requestAlarm) throws IOException {
+        String header = in.readLine();
+        long startTime = System.nanoTime();  // like MainPuzzle, time the request from reading the puzzle onward
+        String[] words = header == null ? null : header.trim().split("\\s+");
+        byte[] puzzle = words == null || words[0].equals("stop") ? null : readPuzzle(in);
+        if(!requestAlarm.cancel(false)) {
+            throw new Error("The request did not arrive within " + REQUEST_SECONDS + " s");
+        }
+        if(header == null) {
+            return;
+        }
+        if(words[0].equals("stop")) {
+            stop();
+            out.println("stopping");
+            return;
+        }
+        // the whole request is read before checking it, so an error is never answered while the client still sends
+        if(!words[0].equals("solve")) {
+            throw new Error("Expected the request to start with solve or stop");
+        }
+
+        for(int i = 2; i < words.length; i++) {
+            checkRequestOption(words[i]);
+        }
+        SolverOptions requestOptions = new SolverOptions(Arrays.copyOfRange(words, 1, words.length));
+        requestOptions.limitThreads(options.getNumThreads());  // a request can't use more threads than the daemon has
+        InputScanner input = new InputScanner();
+        input.read(new ByteArrayInputStream(puzzle));
+
+        PuzzleSolver puzzleSolver;
+        if(options.getCacheFile() != null) {
+            // requests share the daemon's cache
+            puzzleSolver = new PuzzleSolverCached(() -> requestOptions.createUncachedSolver(input.getInitialGrid(),
+                    input.getGoalTile(), input.getSpawnPool()), SolutionCache.open(options.getCacheFile(),
+                    options.getCacheSize()), input.getInitialGrid(), input.getGoalTile(), input.getSpawnPool(),
+                    requestOptions.getSolverDescription());
+        } else {
+            puzzleSolver = requestOptions.createSolver(input.getInitialGrid(), input.getGoalTile(), input.getSpawnPool());
+        }
+        ScheduledFuture<?> alarm = null;
+        if(requestOptions.getTimeLimit() > 0) {
+            alarm = timer.schedule(puzzleSolver::cancel, requestOptions.getTimeLimit(), TimeUnit.SECONDS);
+        }
+        PuzzleGrid solution = puzzleSolver.solve();
+        if(alarm != null) {
+            alarm.cancel(false);
+        }
+        long usElapsed = (System.nanoTime() - startTime) / 1000;
+
+        if(requestOptions.getPrintStats() || options.getPrintStats()) {
+            System.err.println(puzzleSolver.getStats().toJson());  // the daemon's log, so the answer keeps its format
+        }
+        if(puzzleSolver.isCancelled()) {
+            throw new Error("Stopped at the time limit of " + requestOptions.getTimeLimit() + " s");
+        }
+        MainPuzzle.printResults(out, usElapsed, solution);
+    }
+
+    /**
+     * Helper function to reject an option a request may not set, such as a file for the daemon to read or write, or
+     * the size of a resource
+     * @param option an option of the request, after the heuristic
+     */
+    private static void checkRequestOption(String option) {
+        for(String allowed : REQUEST_OPTIONS) {
+            if(allowed.endsWith("=") ? option.startsWith(allowed) : option.equals(allowed)) {
+                return;
+            }
+        }
+        throw new Error(option + " cannot be sent to the daemon; a request may only set --solver, --time-limit, " +
+                "--threads, --stats, and --no-pruning");
+    }
+
+    /**
+     * Helper function to read the lines of the puzzle, up to the line that ends the request
+     * @param in the lines of the request, after the first
+     * @return the puzzle file's contents
+     * @throws IOException if the connection fails
+     */
+    private static byte[] readPuzzle(BufferedReader in) throws IOException {
+        StringBuilder puzzle = new StringBuilder();
+        for(String line = in.readLine(); line != null && !line.trim().equals(END_OF_PUZZLE); line = in.readLine()) {
+            puzzle.append(line).append('\n');
+        }
+        return puzzle.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Helper function to end the request of a connection whose time is up; the answer can still be written
+     * @param channel the connection
+     */
+    private static void shutdownInput(SocketChannel channel) {
+        try {
+            channel.shutdownInput();
+        } catch(IOException e) {
+            // the connection is already closed, so nothing is waiting on it
+        }
+    }
+
+    /**
+     * Helper function to stop accepting requests; the ones being answered are finished first
+     */
+    private void stop() {
+        stopping = true;
+        try {
+            server.close();
+        } catch(IOException e) {
+            // the daemon is shutting down either way
+        }
+    }
+}
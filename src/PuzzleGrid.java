@@ -1,3 +1,4 @@
+import java.io.PrintStream;
 import java.util.*;
 
 /**
@@ -5,14 +6,33 @@ import java.util.*;
  */
 public class PuzzleGrid {
 
-    private int[][] grid;
+    private PuzzleSpec spec;  // shared description of the puzzle (dimensions, goal, spawn pool, tile dictionary)
     private int numRows;
     private int numCols;
 
-    private Integer goalTile;
-    private ArrayList<Integer> spawnPool;
-    private ArrayList<String> corners;
-    private ArrayList<Character> moves;
+    // packed board: cell codes stored row-major, see PuzzleSpec for the layout
+    // boards of up to two words avoid the array entirely
+    private long word0;
+    private long word1;
+    private long[] extraWords;  // words beyond the first two, or null for small boards
+
+    private int spawnIndex;  // cursor into the spawn pool for the next tile to spawn
+    private long stateKey;  // Zobrist key of the board and spawn pool cursor, updated as cells change
+    private MoveHistory history;  // moves made through move(), shared with the grids this one was copied from
+    private int depth;  // number of moves made from the initial grid
+
+    static final int COUNT_FIELDS = 4;  // ints storeCounts writes: empty cells, largest tile code and count, goal tiles
+
+    // tile statistics, updated with every cell that changes so goal tests and heuristics never scan the board
+    private long tileSum;  // sum of all tiles; merges keep it, only spawns add to it
+    private int emptyCount;  // number of empty cells
+    private int maxCode;  // code of the largest power of 2 tile, or 0 if there is none
+    private int maxCount;  // number of tiles with that code
+    private int goalCount;  // number of goal tiles
+
+    // scores cached by Heuristic.evaluate when the grid is generated
+    private double hValue;
+    private double fValue;
     private boolean logging = false;
 
     /**
@@ -22,20 +42,26 @@ public class PuzzleGrid {
      * @param spawnPool list of tile numbers that spawn at the corners in order
      */
     public PuzzleGrid(int[][] initialGrid, Integer goalTile, int[] spawnPool) {
-        this.grid = initialGrid;
-        this.numRows = initialGrid.length;
-        this.numCols = initialGrid[0].length;
-        this.goalTile = goalTile;
+        this.spec = new PuzzleSpec(initialGrid, goalTile, spawnPool);
+        this.numRows = spec.getNumRows();
+        this.numCols = spec.getNumCols();
+        if(spec.getWordCount() > 2) {
+            this.extraWords = new long[spec.getWordCount() - 2];
+        }
 
-        // convert from int[] to ArrayList
-        this.spawnPool = new ArrayList<>(spawnPool.length);
-        for(int spawn : spawnPool) {
-            this.spawnPool.add(spawn);
+        // pack the initial tiles using the puzzle's dictionary; setCode also builds up the state key and tile statistics
+        this.stateKey = spec.getZobristTable().spawnKey(0);
+        this.emptyCount = numRows * numCols;
+        TileCodec codec = spec.getCodec();
+        for(int row = 0; row < numRows; row++) {
+            for(int col = 0; col < numCols; col++) {
+                setCode(row * numCols + col, codec.encode(initialGrid[row][col]));
+            }
         }
 
-        // track the current corner using list: top left, top right, bottom right, bottom left
-        this.corners = new ArrayList<>(List.of("TL", "TR", "BR", "BL"));
-        this.moves = new ArrayList<>();
+        this.spawnIndex = 0;
+        this.history = null;
+        this.depth = 0;
     }
 
     /**
@@ -55,24 +81,30 @@ public class PuzzleGrid {
      * @param puzzleGrid the PuzzleGrid to copy to another memory location
      */
     public PuzzleGrid(PuzzleGrid puzzleGrid) {
+        this.spec = puzzleGrid.spec;
         this.numRows = puzzleGrid.numRows;
         this.numCols = puzzleGrid.numCols;
 
         // copy to new memory locations
-        this.grid = new int[numRows][numCols];
-        int[][] srcGrid = puzzleGrid.getGrid();
-        for(int row = 0; row < numRows; row++) {
-            for(int col = 0; col < numCols; col++) {
-                this.grid[row][col] = srcGrid[row][col];
-            }
+        this.word0 = puzzleGrid.word0;
+        this.word1 = puzzleGrid.word1;
+        if(puzzleGrid.extraWords != null) {
+            this.extraWords = puzzleGrid.extraWords.clone();
         }
 
-        this.goalTile = puzzleGrid.goalTile;
-
-        // make clones to avoid using the same reference
-        this.spawnPool = (ArrayList<Integer>) puzzleGrid.spawnPool.clone();
-        this.corners = (ArrayList<String>) puzzleGrid.corners.clone();
-        this.moves = (ArrayList<Character>) puzzleGrid.moves.clone();
+        this.spawnIndex = puzzleGrid.spawnIndex;
+        this.stateKey = puzzleGrid.stateKey;
+        this.tileSum = puzzleGrid.tileSum;
+        this.emptyCount = puzzleGrid.emptyCount;
+        this.maxCode = puzzleGrid.maxCode;
+        this.maxCount = puzzleGrid.maxCount;
+        this.goalCount = puzzleGrid.goalCount;
+
+        // the history is immutable, so the copy can share it
+        this.history = puzzleGrid.history;
+        this.depth = puzzleGrid.depth;
+        this.hValue = puzzleGrid.hValue;
+        this.fValue = puzzleGrid.fValue;
         this.logging = puzzleGrid.logging;
     }
 
@@ -82,55 +114,46 @@ public class PuzzleGrid {
      * @return whether the attempted move actually changed the board
      */
     public boolean move(char direction) {
+        return swipe(direction, true);
+    }
 
-        // make a copy of the initial grid
-        int[][] beforeMove = new int[numRows][numCols];
-        for(int i = 0; i < this.grid.length; i++) {
-            for(int j = 0; j < this.grid[i].length; j++) {
-                beforeMove[i][j] = this.grid[i][j];
-            }
-        }
+    /**
+     * Helper function for completing a swipe, optionally extending the move history
+     * @param direction up (U), down (D), left (L), or right (R)
+     * @param recordHistory whether to add the move to the history (false for in-place search, which tracks its own path)
+     * @return whether the attempted move actually changed the board
+     */
+    private boolean swipe(char direction, boolean recordHistory) {
 
+        // every swipe slides each row or column toward a wall independently
+        boolean changed;
         switch(direction) {
             case 'U':
-                if(numRows > 1) {
-                    moveUp();
-                    mergeUp();
-                    moveUp();
-                }
+                changed = slideLines(numCols, 1, numCols, numRows, true, direction);
                 break;
             case 'D':
-                if(numRows > 1) {
-                    moveDown();
-                    mergeDown();
-                    moveDown();
-                }
+                changed = slideLines(numCols, 1, numCols, numRows, false, direction);
                 break;
             case 'L':
-                if(numCols > 1) {
-                    moveLeft();
-                    mergeLeft();
-                    moveLeft();
-                }
+                changed = slideLines(numRows, numCols, 1, numCols, true, direction);
                 break;
             case 'R':
-                if(numCols > 1) {
-                    moveRight();
-                    mergeRight();
-                    moveRight();
-                }
+                changed = slideLines(numRows, numCols, 1, numCols, false, direction);
                 break;
             default:
                 throw new Error("Received invalid move direction");
         }
 
-        // if the two arrays are different, then add a new tile
-        if(!Arrays.deepEquals(beforeMove, this.grid)) {
-            moves.add(direction);
+        // if the board changed, then add a new tile
+        if(changed) {
+            depth++;
+            if(recordHistory) {
+                history = new MoveHistory(history, direction);
+            }
             addNewTile();
 
             if(logging) {
-                System.out.println(moves);
+                System.out.println(getMoveString());
                 print();
                 System.out.println();
             }
@@ -149,200 +172,457 @@ public class PuzzleGrid {
     }
 
     /**
-     * Helper function for moving tiles up into empty spaces
+     * Helper function for sliding and merging every row or column toward one wall
+     * Short lines are resolved with the puzzle's MoveTables, longer lines with the puzzle's MoveEngine if it has one,
+     * otherwise with slideLine
+     * @param lineCount the number of rows or columns
+     * @param lineStep the distance between the first cells of consecutive lines
+     * @param cellStride the distance between consecutive cells of one line
+     * @param length the number of cells in each line
+     * @param towardLow true to slide toward the first cell of each line (up or left), false for down or right
+     * @param direction the swipe direction, used to pick the transition table
+     * @return whether any line changed
      */
-    private void moveUp() {
-        for(int col = 0; col < numCols; col++) {  // shift tiles up in each column independently
-            int row = 1;
-            while(row < numRows) {  // work top to bottom
-                while(row > 0 && !isEmpty(row, col) && isEmpty(row - 1, col)) {  // continually shift into empty spaces above
-                    this.grid[row - 1][col] = this.grid[row][col];
-                    this.grid[row][col] = 0;
-                    row--;
-                }
-                row++;
+    private boolean slideLines(int lineCount, int lineStep, int cellStride, int length, boolean towardLow, char direction) {
+        MoveTables moveTables = spec.getMoveTables();
+        int[] table = moveTables.getTable(direction);
+        MoveEngine moveEngine = spec.getMoveEngine();
+        if(table == null && moveEngine != null) {
+            return slideLinesWithEngine(moveEngine, lineCount, cellStride, length, towardLow);
+        }
+        boolean changed = false;
+
+        for(int line = 0; line < lineCount; line++) {
+            int start = line * lineStep;
+            if(table != null) {
+                changed |= slideLineWithTable(moveTables, table, start, cellStride, length, towardLow);
+            } else {
+                changed |= slideLine(start, cellStride, length, towardLow);
             }
         }
+        return changed;
     }
 
     /**
-     * Helper function for merging tiles when moving up
+     * Helper function for sliding and merging every line at once with a MoveEngine
+     * The packed words are unpacked position-major, transposing the board when the lines are rows, handed to the
+     * engine, and packed again a word at a time, folding only the cells the engine changed into the state key
+     * @param moveEngine the puzzle's move engine
+     * @param lineCount the number of rows or columns
+     * @param cellStride the distance between consecutive cells of one line
+     * @param length the number of cells in each line
+     * @param towardLow true to slide toward the first cell of each line (up or left), false for down or right
+     * @return whether any line changed
      */
-    private void mergeUp() {
-        for(int row = 1; row < numRows; row++) {  // work top to bottom
-            for(int col = 0; col < numCols; col++) {
-                if(this.grid[row - 1][col] == this.grid[row][col]) {
-                    // if the tile above is equal, merge them into the upper tile
-                    this.grid[row - 1][col] = 2 * this.grid[row][col];
-                    this.grid[row][col] = 0;
+    private boolean slideLinesWithEngine(MoveEngine moveEngine, int lineCount, int cellStride, int length, boolean towardLow) {
+        int numRows = spec.getNumRows();
+        int numCols = spec.getNumCols();
+        int numCells = numRows * numCols;
+        int bitsPerCell = spec.getBitsPerCell();
+        int cellsPerWord = 64 / bitsPerCell;
+        long cellMask = spec.getCellMask();
+        boolean rowLines = cellStride == 1;  // rows are lines for left and right swipes, so the board is transposed
+
+        int[] lines = moveEngine.getBuffer(numCells);
+        int row = 0;
+        int col = 0;
+        for(int index = 0; index < spec.getWordCount(); index++) {
+            long word = getWord(index);
+            int end = Math.min((index + 1) * cellsPerWord, numCells);
+            for(int cell = index * cellsPerWord; cell < end; cell++) {
+                lines[rowLines ? col * numRows + row : cell] = (int) (word & cellMask);
+                word >>>= bitsPerCell;
+                if(++col == numCols) {
+                    col = 0;
+                    row++;
                 }
             }
         }
-    }
 
-    /**
-     * Helper function for moving tiles down into empty spaces
-     */
-    private void moveDown() {
-        for(int col = 0; col < numCols; col++) {  // shift tiles down in each column independently
-            int row = numRows - 2;
-            while(row >= 0) {  // work bottom to top
-                while(row < numRows - 1 && !isEmpty(row, col) && isEmpty(row + 1, col)) {  // continually shift into empty spaces below
-                    this.grid[row + 1][col] = this.grid[row][col];
-                    this.grid[row][col] = 0;
+        moveEngine.slide(lines, lineCount, length, towardLow);
+
+        ZobristTable zobristTable = spec.getZobristTable();
+        boolean changed = false;
+        row = 0;
+        col = 0;
+        for(int index = 0; index < spec.getWordCount(); index++) {
+            long word = getWord(index);
+            long newWord = word;
+            int end = Math.min((index + 1) * cellsPerWord, numCells);
+            for(int cell = index * cellsPerWord; cell < end; cell++) {
+                int shift = (cell - index * cellsPerWord) * bitsPerCell;
+                int oldCode = (int) ((word >>> shift) & cellMask);
+                int newCode = lines[rowLines ? col * numRows + row : cell];
+                if(oldCode != newCode) {
+                    stateKey ^= zobristTable.cellKey(cell, oldCode) ^ zobristTable.cellKey(cell, newCode);
+                    updateStatistics(oldCode, newCode);
+                    newWord ^= (long) (oldCode ^ newCode) << shift;
+                }
+                if(++col == numCols) {
+                    col = 0;
                     row++;
                 }
-                row--;
+            }
+            if(newWord != word) {
+                setWord(index, newWord);
+                changed = true;
             }
         }
+        return changed;
     }
 
     /**
-     * Helper function for merging tiles when moving down
+     * Helper function for sliding and merging one line with a single table lookup
+     * @param moveTables the puzzle's transition tables
+     * @param table the table for this direction
+     * @param start the index of the first cell of the line
+     * @param cellStride the distance between consecutive cells of the line
+     * @param length the number of cells in the line
+     * @param towardLow true to slide toward the first cell, false to slide toward the last
+     * @return whether the line changed
      */
-    private void mergeDown() {
-        for(int row = numRows - 2; row >= 0; row--) {  // work bottom to top
-            for(int col = 0; col < numCols; col++) {
-                if(this.grid[row + 1][col] == this.grid[row][col]) {
-                    // if the tile below is equal, merge them into the lower tile
-                    this.grid[row + 1][col] = 2 * this.grid[row][col];
-                    this.grid[row][col] = 0;
+    private boolean slideLineWithTable(MoveTables moveTables, int[] table, int start, int cellStride, int length, boolean towardLow) {
+        int bitsPerCell = spec.getBitsPerCell();
+        int wordIndex = spec.getCellWord(start);
+
+        // rows that sit inside a single word can be read and written as one bit field
+        boolean contiguous = cellStride == 1 && wordIndex == spec.getCellWord(start + length - 1);
+        int lineMask = (1 << (length * bitsPerCell)) - 1;
+
+        int key = 0;
+        if(contiguous) {
+            key = (int) (getWord(wordIndex) >>> spec.getCellShift(start)) & lineMask;
+        } else {
+            for(int i = 0; i < length; i++) {
+                key |= getCode(start + i * cellStride) << (i * bitsPerCell);
+            }
+        }
+
+        int entry = moveTables.lookup(table, key, length, towardLow);
+        if(!MoveTables.isChanged(entry)) {
+            return false;
+        }
+
+        int result = MoveTables.getResult(entry);
+        if(contiguous) {
+            // fold the changed cells into the state key and statistics before writing the row back as one bit field
+            ZobristTable zobristTable = spec.getZobristTable();
+            int cellMask = (int) spec.getCellMask();
+            for(int i = 0; i < length; i++) {
+                int oldCode = (key >>> (i * bitsPerCell)) & cellMask;
+                int newCode = (result >>> (i * bitsPerCell)) & cellMask;
+                if(oldCode != newCode) {
+                    stateKey ^= zobristTable.cellKey(start + i, oldCode) ^ zobristTable.cellKey(start + i, newCode);
+                    updateStatistics(oldCode, newCode);
                 }
             }
+            int shift = spec.getCellShift(start);
+            long word = getWord(wordIndex) & ~((long) lineMask << shift);
+            setWord(wordIndex, word | ((long) result << shift));
+        } else {
+            int cellMask = (int) spec.getCellMask();
+            for(int i = 0; i < length; i++) {
+                setCode(start + i * cellStride, (result >>> (i * bitsPerCell)) & cellMask);
+            }
         }
+        return true;
     }
 
     /**
-     * Helper function for moving tiles left into empty spaces
+     * Helper function for sliding and merging one line cell by cell
+     * Moves tiles toward the wall, merges equal neighbors starting at the wall, then moves again, all in one pass;
+     * this gives the same result as separate move, merge, and move passes since a merged tile never merges again
+     * @param start the index of the first cell of the line
+     * @param cellStride the distance between consecutive cells of the line
+     * @param length the number of cells in the line
+     * @param towardLow true to slide toward the first cell, false to slide toward the last
+     * @return whether the line changed
      */
-    private void moveLeft() {
-        for(int row = 0; row < numRows; row++) {  // shift tiles left in each row independently
-            int col = 1;
-            while(col < numCols) {  // work left to right
-                while(col > 0 && !isEmpty(row, col) && isEmpty(row, col - 1)) {  // continually shift into empty spaces to the left
-                    this.grid[row][col - 1] = this.grid[row][col];
-                    this.grid[row][col] = 0;
-                    col--;
+    private boolean slideLine(int start, int cellStride, int length, boolean towardLow) {
+        TileCodec codec = spec.getCodec();
+        int step = towardLow ? cellStride : -cellStride;
+        int read = towardLow ? start : start + (length - 1) * cellStride;  // next cell to read, moving away from the wall
+        int write = read;  // next cell to fill; never passes read, so the line can be rewritten in place
+        int pending = 0;  // tile waiting to see whether the next tile merges with it
+        boolean changed = false;
+
+        for(int i = 0; i < length; i++) {
+            int code = getCode(read);
+            read += step;
+            if(code == 0) {
+                continue;
+            }
+            if(pending == code) {
+                changed |= putCode(write, codec.doubled(code));
+                write += step;
+                pending = 0;
+            } else {
+                if(pending != 0) {
+                    changed |= putCode(write, pending);
+                    write += step;
                 }
-                col++;
+                pending = code;
             }
         }
+        if(pending != 0) {
+            changed |= putCode(write, pending);
+            write += step;
+        }
+
+        // clear the cells left behind by the tiles that moved toward the wall
+        while(write != read) {
+            changed |= putCode(write, 0);
+            write += step;
+        }
+        return changed;
     }
 
     /**
-     * Helper function for merging tiles when moving left
+     * Helper function for writing a code only if it differs from the current one
+     * @param cell the row-major index of the cell
+     * @param code the code of the new tile
+     * @return whether the cell changed
      */
-    private void mergeLeft() {
-        for(int col = 1; col < numCols; col++) {  // work left to right
-            for(int row = 0; row < numRows; row++) {
-                if(this.grid[row][col - 1] == this.grid[row][col]) {
-                    // if the tile to the left is equal, merge them into the leftmost tile
-                    this.grid[row][col - 1] = 2 * this.grid[row][col];
-                    this.grid[row][col] = 0;
-                }
-            }
+    private boolean putCode(int cell, int code) {
+        if(getCode(cell) == code) {
+            return false;
         }
+        setCode(cell, code);
+        return true;
     }
 
     /**
-     * Helper function for moving tiles right into empty spaces
+     * Attempts to spawn the current tile in the spawn pool in one of the four corners
+     * Tries the corners clockwise beginning at the top left: top left, top right, bottom right, bottom left
+     * Advances the spawn pool cursor if the tile is spawned
+     * Updates the grid with 0 or 1 new entries per call (0 if all corners are filled)
      */
-    private void moveRight() {
-        for(int row = 0; row < numRows; row++) {  // shift tiles right in each row independently
-            int col = numCols - 2;
-            while(col >= 0) {  // work right to left
-                while(col < numCols - 1 && !isEmpty(row, col) && isEmpty(row, col + 1)) {  // continually shift into empty spaces to the right
-                    this.grid[row][col + 1] = this.grid[row][col];
-                    this.grid[row][col] = 0;
-                    col++;
-                }
-                col--;
+    private void addNewTile() {
+        int spawnCode = spec.getSpawnCode(spawnIndex);
+
+        // continue attempting to spawn until all 4 corners have been tried
+        for(int corner = 0; corner < 4; corner++) {
+            int cell = spec.getCornerCell(corner);
+            if(getCode(cell) == 0) {
+                setCode(cell, spawnCode);  // insert the current spawn tile
+                // rotate to the next spawn tile for the next time a tile is added
+                ZobristTable zobristTable = spec.getZobristTable();
+                stateKey ^= zobristTable.spawnKey(spawnIndex);
+                spawnIndex = (spawnIndex + 1) % spec.getSpawnPool().length;
+                stateKey ^= zobristTable.spawnKey(spawnIndex);
+                return;  // stop attempting to spawn tiles
             }
+            // tile is already filled, try the next corner
+        }
+        // otherwise, do not spawn a tile and do not rotate the spawn pool
+    }
+
+    /**
+     * Applies a swipe to this grid in place, recording enough to revert it with undoMove
+     * Behaves like move, except that the move is counted in the depth but not added to the move history,
+     * so it never allocates once the MoveUndo has been used; callers keep track of their own path
+     * @param direction up (U), down (D), left (L), or right (R)
+     * @param undo the record to fill in, typically reused for every move at the same search depth
+     * @return whether the attempted move actually changed the board
+     */
+    public boolean applyMove(char direction, MoveUndo undo) {
+        if(undo.words == null) {
+            undo.words = new long[spec.getWordCount()];
         }
+        saveWords(undo.words, 0);
+        undo.spawnIndex = spawnIndex;
+        undo.stateKey = stateKey;
+        undo.tileSum = tileSum;
+        undo.emptyCount = emptyCount;
+        undo.maxCode = maxCode;
+        undo.maxCount = maxCount;
+        undo.goalCount = goalCount;
+        undo.applied = swipe(direction, false);
+        return undo.applied;
     }
 
     /**
-     * Helper function for merging tiles when moving right
+     * Reverts the most recent applyMove that used the given record
+     * @param undo the record filled in by applyMove
      */
-    private void mergeRight() {
-        for(int col = numCols - 2; col >= 0; col--) {  // work right to left
-            for(int row = 0; row < numRows; row++) {
-                if(this.grid[row][col + 1] == this.grid[row][col]) {
-                    // if the tile to the right is equal, merge them into the rightmost tile
-                    this.grid[row][col + 1] = 2* this.grid[row][col];
-                    this.grid[row][col] = 0;
-                }
-            }
+    public void undoMove(MoveUndo undo) {
+        if(!undo.applied) {
+            return;  // the move left the grid unchanged
         }
+        restoreWords(undo.words, 0);
+        spawnIndex = undo.spawnIndex;
+        stateKey = undo.stateKey;
+        tileSum = undo.tileSum;
+        emptyCount = undo.emptyCount;
+        maxCode = undo.maxCode;
+        maxCount = undo.maxCount;
+        goalCount = undo.goalCount;
+        depth--;
+        undo.applied = false;
     }
 
     /**
-     * Attempts to spawn the first tile in the spawn pool in one of the four corners
-     * Begins with the last unused corner (initially top left) and works clockwise
-     * Rotates the tiles in the spawn pool if the first tile is spawned
-     * Updates the grid with 0 or 1 new entries per call (0 if all corners are filled)
+     * Copies the packed board, spawn pool cursor, and state key out of this grid, e.g. to write it to a file
+     * @param words the destination for the board, with room for getSpec().getWordCount() words at offset
+     * @param offset the index in words of the first word
      */
-    private void addNewTile() {
+    void storeState(long[] words, int offset) {
+        saveWords(words, offset);
+    }
 
-        // rotates the spawn pool and current corner to the left to move off of previous corner and pool tile
-        int spawnTile = spawnPool.get(0);
-        this.corners = new ArrayList<>(List.of("TL", "TR", "BR", "BL"));
-        int spawnAttempts = 0;
+    /**
+     * Copies the tile counts out of this grid, which with getTileSum let loadState restore a board without a scan
+     * @param counts the destination, with room for COUNT_FIELDS ints at offset
+     * @param offset the index in counts of the first int
+     */
+    void storeCounts(int[] counts, int offset) {
+        counts[offset] = emptyCount;
+        counts[offset + 1] = maxCode;
+        counts[offset + 2] = maxCount;
+        counts[offset + 3] = goalCount;
+    }
 
-        // continue attempting to spawn until all 4 corners have been tried
-        while(spawnAttempts < 4) {
-
-            // check the current corner and attempt to spawn there
-            if (corners.get(0).equals("TL")) {
-                spawnAttempts++;
-                if (isEmpty(0, 0)) {
-                    // insert the current spawn tile
-                    this.grid[0][0] = spawnTile;
-                    // rotate to the next spawn tile and corner for the next time a tile is added
-                    Collections.rotate(spawnPool, -1);
-                    Collections.rotate(corners, -1);
-                    return;  // stop attempting to spawn tiles
-                } else {  // tile is already filled, rotate to the next corner
-                    Collections.rotate(corners, -1);
-                }
-            }
+    /**
+     * Overwrites this grid with a board saved by storeState, as if the given moves had led to it
+     * The move history is cleared, so callers that need the moves keep track of them separately, and the tile
+     * statistics are counted again from the board
+     * @param words the source of the board
+     * @param offset the index in words of the first word
+     * @param spawnIndex the spawn pool cursor saved with the board
+     * @param stateKey the state key saved with the board
+     * @param depth the number of moves made from the initial grid
+     */
+    void loadState(long[] words, int offset, int spawnIndex, long stateKey, int depth) {
+        restoreWords(words, offset);
+        this.spawnIndex = spawnIndex;
+        this.stateKey = stateKey;
+        this.depth = depth;
+        this.history = null;
+        countStatistics();
+    }
 
-            if (corners.get(0).equals("TR")) {
-                spawnAttempts++;
-                if (isEmpty(0, numCols - 1)) {
-                    this.grid[0][numCols - 1] = spawnTile;
-                    Collections.rotate(spawnPool, -1);
-                    Collections.rotate(corners, -1);
-                    return;
-                } else {
-                    Collections.rotate(corners, -1);
-                }
-            }
+    /**
+     * Overwrites this grid with a board saved by storeState and the tile statistics saved with it, e.g. to expand
+     * a node of a NodeArena without scanning its board
+     * @param words the source of the board
+     * @param offset the index in words of the first word
+     * @param spawnIndex the spawn pool cursor saved with the board
+     * @param stateKey the state key saved with the board
+     * @param depth the number of moves made from the initial grid
+     * @param tileSum the sum of the tiles saved with the board
+     * @param counts the source of the tile counts saved by storeCounts
+     * @param countOffset the index in counts of the first int
+     */
+    void loadState(long[] words, int offset, int spawnIndex, long stateKey, int depth, long tileSum, int[] counts,
+                   int countOffset) {
+        restoreWords(words, offset);
+        this.spawnIndex = spawnIndex;
+        this.stateKey = stateKey;
+        this.depth = depth;
+        this.history = null;
+        this.tileSum = tileSum;
+        this.emptyCount = counts[countOffset];
+        this.maxCode = counts[countOffset + 1];
+        this.maxCount = counts[countOffset + 2];
+        this.goalCount = counts[countOffset + 3];
+    }
 
-            if (corners.get(0).equals("BR")) {
-                spawnAttempts++;
-                if (isEmpty(numRows - 1, numCols - 1)) {
-                    this.grid[numRows - 1][numCols - 1] = spawnTile;
-                    Collections.rotate(spawnPool, -1);
-                    Collections.rotate(corners, -1);
-                    return;
-                } else {
-                    Collections.rotate(corners, -1);
-                }
+    /**
+     * Helper function to recount the tile statistics from the whole board, after it was overwritten
+     */
+    private void countStatistics() {
+        tileSum = 0;
+        emptyCount = numRows * numCols;
+        maxCode = 0;
+        maxCount = 0;
+        goalCount = 0;
+        for(int cell = 0; cell < numRows * numCols; cell++) {
+            int code = getCode(cell);
+            if(code != 0) {
+                updateStatistics(0, code);
             }
+        }
+    }
 
-            if (corners.get(0).equals("BL")) {
-                spawnAttempts++;
-                if (isEmpty(numRows - 1, 0)) {
-                    this.grid[numRows - 1][0] = spawnTile;
-                    Collections.rotate(spawnPool, -1);
-                    Collections.rotate(corners, -1);
-                    return;
-                } else {
-                    Collections.rotate(corners, -1);
-                }
+    /**
+     * Helper function to update the tile statistics for one cell that changed
+     * The largest power of 2 tile only ever leaves the board by merging into a larger one, so removing one never
+     * requires a scan; its count may drop to 0 partway through a swipe, until the merged tile is written
+     * @param oldCode the code the cell held, where 0 is empty
+     * @param newCode the code the cell holds now
+     */
+    private void updateStatistics(int oldCode, int newCode) {
+        TileCodec codec = spec.getCodec();
+        tileSum += codec.decode(newCode) - (long) codec.decode(oldCode);
+        if(oldCode == 0) {
+            emptyCount--;
+        } else if(newCode == 0) {
+            emptyCount++;
+        }
+
+        int goalCode = spec.getGoalCode();
+        if(oldCode == goalCode) {
+            goalCount--;
+        } else if(newCode == goalCode) {
+            goalCount++;
+        }
+
+        if(oldCode == maxCode && oldCode != 0) {
+            maxCount--;
+        }
+        if(codec.isPowerOfTwo(newCode)) {
+            if(newCode > maxCode) {  // codes are in ascending order of tile value
+                maxCode = newCode;
+                maxCount = 1;
+            } else if(newCode == maxCode) {
+                maxCount++;
             }
-            // otherwise, do not spawn a tile and do not rotate the spawn pool
+        }
+    }
+
+    /**
+     * Getter for the shared move history, e.g. to save it in a checkpoint
+     * @return the most recent node of the history, or null if no moves were recorded
+     */
+    MoveHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Replaces the move history, e.g. after loadState restored a grid from a checkpoint
+     * @param history the most recent node of the history, or null for no moves
+     */
+    void setHistory(MoveHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Helper function to copy the packed board into an array
+     * @param words the destination, with room for getWordCount() words at offset
+     * @param offset the index in words of the first word
+     */
+    private void saveWords(long[] words, int offset) {
+        words[offset] = word0;
+        if(spec.getWordCount() > 1) {
+            words[offset + 1] = word1;
+        }
+        if(extraWords != null) {
+            System.arraycopy(extraWords, 0, words, offset + 2, extraWords.length);
+        }
+    }
+
+    /**
+     * Helper function to overwrite the packed board from an array
+     * @param words the source, as filled in by saveWords
+     * @param offset the index in words of the first word
+     */
+    private void restoreWords(long[] words, int offset) {
+        word0 = words[offset];
+        if(spec.getWordCount() > 1) {
+            word1 = words[offset + 1];
+        }
+        if(extraWords != null) {
+            System.arraycopy(words, offset + 2, extraWords, 0, extraWords.length);
         }
     }
 
@@ -351,30 +631,140 @@ public class PuzzleGrid {
      * @return true if the goal tile occurs at least once in the grid, false otherwise
      */
     public boolean checkGoal() {
-        for(int[] row : this.grid) {
-            for(Integer tile : row) {
-                if(tile.equals(this.goalTile)) {
-                    return true;
-                }
-            }
-        }
-        return false;  // goal tile does not exist in grid
+        return goalCount > 0;  // always 0 if the goal tile can never be produced in this puzzle
+    }
+
+    /**
+     * Getter for the sum of the tiles
+     * @return the sum of every tile on the grid
+     */
+    public long getTileSum() {
+        return tileSum;
+    }
+
+    /**
+     * Getter for the number of empty cells
+     * @return the number of cells without a tile
+     */
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * Getter for the largest power of 2 tile, the largest tile that can grow into a power of 2 goal
+     * @return the tile, or 0 if the grid has no power of 2 tile
+     */
+    public int getMaxPowerOfTwoTile() {
+        return spec.getCodec().decode(maxCode);
+    }
+
+    /**
+     * Getter for the number of copies of the largest power of 2 tile
+     * @return how many tiles equal getMaxPowerOfTwoTile, or 0 if the grid has no power of 2 tile
+     */
+    public int getMaxPowerOfTwoCount() {
+        return maxCount;
     }
 
     /**
-     * Getter for the grid member variable
-     * @return the 2048 grid
+     * Decodes the packed board into a 2D matrix
+     * @return a new copy of the 2048 grid
      */
     public int[][] getGrid() {
+        int[][] grid = new int[numRows][numCols];
+        for(int row = 0; row < numRows; row++) {
+            for(int col = 0; col < numCols; col++) {
+                grid[row][col] = getTile(row, col);
+            }
+        }
         return grid;
     }
 
     /**
-     * Getter for the moves member variable
-     * @return the list of moves performed on the puzzle at that time
+     * Getter for a single tile of the grid
+     * @param row the index of the row
+     * @param col the index of the column
+     * @return the tile at the given cell, or 0 if it is empty
+     */
+    public int getTile(int row, int col) {
+        return spec.getCodec().decode(getCode(cell(row, col)));
+    }
+
+    /**
+     * Getter for the number of rows
+     * @return the height of the grid
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Getter for the number of columns
+     * @return the width of the grid
+     */
+    public int getNumCols() {
+        return numCols;
+    }
+
+    /**
+     * Getter for the depth member variable
+     * @return the number of moves performed on the puzzle at that time
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Getter for the Zobrist key of this state
+     * Two grids of the same puzzle with the same tiles and the same spawn pool cursor always have the same key;
+     * different states collide with probability around 2^-64 per pair
+     * @return the 64-bit state key
+     */
+    public long getStateKey() {
+        return stateKey;
+    }
+
+    /**
+     * Getter for the spawn pool cursor
+     * @return the position in the spawn pool of the next tile to spawn
+     */
+    public int getSpawnIndex() {
+        return spawnIndex;
+    }
+
+    /**
+     * Caches the scores of this grid, called by Heuristic.evaluate
+     * @param hValue the heuristic value h(n)
+     * @param fValue the value the heuristic orders grids by, e.g. h(n) + g(n)
+     */
+    public void setScore(double hValue, double fValue) {
+        this.hValue = hValue;
+        this.fValue = fValue;
+    }
+
+    /**
+     * Getter for the cached heuristic value
+     * @return h(n) as of the last Heuristic.evaluate
+     */
+    public double getH() {
+        return hValue;
+    }
+
+    /**
+     * Getter for the cached ordering value
+     * @return f(n) as of the last Heuristic.evaluate
      */
-    public ArrayList<Character> getMoves() {
-        return moves;
+    public double getF() {
+        return fValue;
+    }
+
+    /**
+     * Materializes the moves performed on the puzzle, walking the shared history
+     * Takes time proportional to the depth, so it is meant for printing solutions rather than searching
+     * @return the moves in the order they were made, e.g. "LDURLDR"
+     */
+    public String getMoveString() {
+        return MoveHistory.toMoveString(history);
     }
 
     /**
@@ -382,31 +772,106 @@ public class PuzzleGrid {
      * @return the number of the goal tile
      */
     public Integer getGoalTile() {
-        return goalTile;
+        return spec.getGoalTile();
+    }
+
+    /**
+     * Getter for the puzzle description shared by every grid of this puzzle
+     * @return the PuzzleSpec of this grid
+     */
+    public PuzzleSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Converts a row and column to the row-major index used by the packed board
+     * @param row the index of the row
+     * @param col the index of the column
+     * @return the index of the cell
+     */
+    private int cell(int row, int col) {
+        return row * numCols + col;
     }
 
     /**
-     * Checks whether a given cell in the grid is empty
-     * @param row the index of the row to check
-     * @param col the index of the column to check
-     * @return true if the cell is empty (contains 0) and false otherwise (contains 2, 4, 8, ...)
+     * Reads one 64-bit word of the packed board
+     * @param index the index of the word
+     * @return the word
      */
-    private boolean isEmpty(int row, int col) {
-        return this.grid[row][col] == 0;
+    private long getWord(int index) {
+        if(index == 0) {
+            return word0;
+        } else if(index == 1) {
+            return word1;
+        }
+        return extraWords[index - 2];
+    }
+
+    /**
+     * Writes one 64-bit word of the packed board
+     * @param index the index of the word
+     * @param word the new contents of the word
+     */
+    private void setWord(int index, long word) {
+        if(index == 0) {
+            word0 = word;
+        } else if(index == 1) {
+            word1 = word;
+        } else {
+            extraWords[index - 2] = word;
+        }
+    }
+
+    /**
+     * Reads the code of a cell from the packed board
+     * @param cell the row-major index of the cell
+     * @return the code of the tile in the cell, where 0 is empty
+     */
+    int getCode(int cell) {
+        return (int) ((getWord(spec.getCellWord(cell)) >>> spec.getCellShift(cell)) & spec.getCellMask());
+    }
+
+    /**
+     * Writes the code of a cell into the packed board, keeping the state key and tile statistics in sync
+     * @param cell the row-major index of the cell
+     * @param code the code of the new tile, where 0 is empty
+     */
+    private void setCode(int cell, int code) {
+        int index = spec.getCellWord(cell);
+        int shift = spec.getCellShift(cell);
+        long word = getWord(index);
+        int oldCode = (int) ((word >>> shift) & spec.getCellMask());
+        if(oldCode != code) {
+            updateStatistics(oldCode, code);
+        }
+
+        ZobristTable zobristTable = spec.getZobristTable();
+        stateKey ^= zobristTable.cellKey(cell, oldCode) ^ zobristTable.cellKey(cell, code);
+
+        word &= ~(spec.getCellMask() << shift);
+        setWord(index, word | ((long) code << shift));
     }
 
     /**
      * Prints the 2048 grid in the standard format to stdout
      */
     public void print() {
-        for(int[] row : this.grid) {
-            for(int tile = 0; tile < row.length; tile++) {
-                System.out.print(row[tile]);
-                if(tile < row.length - 1) {
-                    System.out.print(" ");
+        print(System.out);
+    }
+
+    /**
+     * Prints the 2048 grid in the standard format
+     * @param out the stream to print to, such as a solution file
+     */
+    public void print(PrintStream out) {
+        for(int row = 0; row < numRows; row++) {
+            for(int col = 0; col < numCols; col++) {
+                out.print(getTile(row, col));
+                if(col < numCols - 1) {
+                    out.print(" ");
                 }
             }
-            System.out.println();
+            out.println();
         }
     }
 
@@ -433,6 +898,7 @@ public class PuzzleGrid {
 
     /**
      * Overrides Object.equals for PuzzleGrids, checking if two are equivalent based on their grids
+     * Compares the packed boards word by word, so both grids must belong to the same puzzle
      * @param obj The object (likely a PuzzleGrid) to compare to the calling object
      * @return whether the two PuzzleGrids have identical grids
      */
@@ -443,16 +909,24 @@ public class PuzzleGrid {
         }
 
         PuzzleGrid otherGrid = (PuzzleGrid) obj;  // cast Object to PuzzleGrid
-        return Arrays.deepEquals(grid, otherGrid.grid);  // determine whether grids are identical
+        return word0 == otherGrid.word0 && word1 == otherGrid.word1
+                && Arrays.equals(extraWords, otherGrid.extraWords);  // determine whether grids are identical
     }
 
     /**
-     * Overrides hashCode for PuzzleGrids, generating a unique hash code based on the grid
+     * Overrides hashCode for PuzzleGrids, generating a hash code based on the packed board
      * Used for hashing PuzzleGrids in a HashMap based only on grid state
-     * @return a unique hash code that corresponds to a unique grid; that is, every unique grid has its own unique hash code
+     * @return a hash code that mixes every word of the packed board
      */
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(grid);
+        long hash = word0 * 0x9E3779B97F4A7C15L + word1;
+        if(extraWords != null) {
+            for(long word : extraWords) {
+                hash = hash * 0x9E3779B97F4A7C15L + word;
+            }
+        }
+        hash ^= hash >>> 32;
+        return (int) hash;
     }
 }
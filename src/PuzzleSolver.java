@@ -7,15 +7,64 @@ public abstract class PuzzleSolver {
 
     protected boolean logging;
     protected PuzzleGrid puzzleGrid;
+    protected SearchStats stats;  // filled in by subclasses as they search
+    protected PruningStage pruning;  // run by subclasses on every new grid before it joins the frontier
 
     public PuzzleSolver(int[][] initialGrid, int goalTile, int[] spawnPool) {
         logging = false;
         this.puzzleGrid = new PuzzleGrid(initialGrid, goalTile, spawnPool);
+        this.stats = new SearchStats(getClass().getSimpleName());
+        setPruningStage(PruningStage.forPuzzle(puzzleGrid));
     }
 
     public PuzzleSolver(int[][] initialGrid, int goalTile, int[] spawnPool, boolean logging) {
         this.logging = logging;
         this.puzzleGrid = new PuzzleGrid(initialGrid, goalTile, spawnPool, logging);
+        this.stats = new SearchStats(getClass().getSimpleName());
+        setPruningStage(PruningStage.forPuzzle(puzzleGrid));
+    }
+
+    /**
+     * Constructor for solvers that hand the search to another solver, and so have no grid of their own
+     * Building a grid allocates the puzzle's move tables, which can take longer than such a solver's whole answer
+     */
+    protected PuzzleSolver() {
+        logging = false;
+        this.stats = new SearchStats(getClass().getSimpleName());
+        setPruningStage(new PruningStage());
+    }
+
+    /**
+     * Attempts to find a solution to the 2048 puzzle, timing the search chosen by subclasses
+     * @return the PuzzleGrid that achieved the goal tile with the minimum number of swipes, or
+     * null if there exists no solution that can achieve the goal tile or the search was cancelled
+     */
+    public PuzzleGrid solve() {
+        stats.start();
+        PuzzleGrid solution = null;
+        try {
+            solution = search();
+            return solution;
+        } catch(SearchStats.Cancelled e) {
+            return null;  // isCancelled tells this apart from a puzzle with no solution
+        } finally {
+            stats.finish(solution);
+        }
+    }
+
+    /**
+     * Asks a running solve to stop; it returns null soon after. May be called from any thread, even before solve
+     */
+    public void cancel() {
+        stats.cancel();
+    }
+
+    /**
+     * Checks whether the solve was cancelled
+     * @return true if cancel has been called
+     */
+    public boolean isCancelled() {
+        return stats.isCancelled();
     }
 
     /**
@@ -23,6 +72,23 @@ public abstract class PuzzleSolver {
      * @return the PuzzleGrid that achieved the goal tile with the minimum number of swipes, or
      * null if there exists no solution that can achieve the goal tile
      */
-    public abstract PuzzleGrid solve();
+    protected abstract PuzzleGrid search();
+
+    /**
+     * Replaces the dead-state tests run on new grids, e.g. with an empty stage to search without pruning
+     * @param pruning the stage to run; its counts are reported with the stats
+     */
+    public void setPruningStage(PruningStage pruning) {
+        this.pruning = pruning;
+        stats.setPruningStage(pruning);
+    }
+
+    /**
+     * Getter for the counters and timings of the last (or current) solve
+     * @return the search stats
+     */
+    public SearchStats getStats() {
+        return stats;
+    }
 
 }
@@ -1,11 +1,24 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * PuzzleSolver that utilizes breadth-first search to solve the 2048 puzzle
+ * Searches one depth at a time: every PuzzleGrid in the current layer is expanded in parallel by fork-join workers,
+ * and a shared set of state keys keeps each state in the first layer that reaches it
  */
 public class PuzzleSolverBFS extends PuzzleSolver {
 
-    private Queue<PuzzleGrid> queue;  // queue structure for BFS
+    private static final int CHUNK_SIZE = 512;  // grids expanded by one fork-join leaf task
+
+    private int numThreads;
+    private ConcurrentLongHashSet visitedStates;  // state keys of every grid generated so far
+
+    // output of the current layer's expansion, one slot per chunk of the layer
+    private PuzzleGrid[][] chunkChildren;
+    private int[] chunkCounts;
+    private PuzzleGrid[] chunkGoals;  // first child in each chunk that reached the goal, or null
+    private int[] chunkDuplicates;  // children dropped as already seen, for the stats
 
     /**
      * Constructor to create a PuzzleSolver for the 2048 puzzle
@@ -14,9 +27,7 @@ public class PuzzleSolverBFS extends PuzzleSolver {
      * @param spawnPool list of tile numbers that spawn at the corners in order
      */
     public PuzzleSolverBFS(int[][] initialGrid, int goalTile, int[] spawnPool) {
-        super(initialGrid, goalTile, spawnPool);
-        queue = new LinkedList<>();
-        queue.add(puzzleGrid);  // push the initial puzzle into the queue
+        this(initialGrid, goalTile, spawnPool, Runtime.getRuntime().availableProcessors());
     }
 
     /**
@@ -28,59 +39,172 @@ public class PuzzleSolverBFS extends PuzzleSolver {
      */
     public PuzzleSolverBFS(int[][] initialGrid, int goalTile, int[] spawnPool, boolean logging) {
         super(initialGrid, goalTile, spawnPool, logging);
-        queue = new LinkedList<>();
-        queue.add(puzzleGrid);  // push the initial puzzle into the queue
+        this.numThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle that expands each layer on a fixed number of threads
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param numThreads the number of fork-join worker threads
+     */
+    public PuzzleSolverBFS(int[][] initialGrid, int goalTile, int[] spawnPool, int numThreads) {
+        super(initialGrid, goalTile, spawnPool);
+        if(numThreads < 1) {
+            throw new Error("BFS needs at least one thread");
+        }
+        this.numThreads = numThreads;
     }
 
     /**
-     * Attempts to find a solution to the 2048 puzzle at the beginning of the queue using breadth-first search
-     * Appends the PuzzleGrids that result from swiping up, down, left, and right (if they are valid moves)
-     * Pops off the front PuzzleGrid once all its moves have been processed
+     * Attempts to find a solution to the 2048 puzzle using level-synchronous breadth-first search
+     * Expands the whole layer at depth d before any grid at depth d + 1, so the first layer that contains a goal
+     * gives a solution with the fewest swipes
      * @return the PuzzleGrid that achieved the goal tile with the minimum number of swipes, or
      * null if there exists no solution that can achieve the goal tile
      */
     @Override
-    public PuzzleGrid solve() {
-        while(!queue.isEmpty()) {  // continually process the first PuzzleGrid
+    protected PuzzleGrid search() {
+        if(puzzleGrid.checkGoal()) {
+            return puzzleGrid;
+        }
 
-            if(queue.element().getMoves().size() > 7) {
-                break;
-            }
+        visitedStates = new ConcurrentLongHashSet(1024, numThreads);
+        visitedStates.add(puzzleGrid.getStateKey());
+        PuzzleGrid[] layer = {puzzleGrid};
 
-            // if the goal tile is reached, return the solved grid
-            boolean goalTileAchieved = queue.element().checkGoal();
-            if(goalTileAchieved) {
-                return queue.element();
-            }
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            while(layer.length > 0) {
+                int numChunks = (layer.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                chunkChildren = new PuzzleGrid[numChunks][];
+                chunkCounts = new int[numChunks];
+                chunkGoals = new PuzzleGrid[numChunks];
+                chunkDuplicates = new int[numChunks];
 
-            // test the moves for up, down, left, and right, and append to BFS queue
-            PuzzleGrid moveUp = new PuzzleGrid(queue.element());
-            boolean upValid = moveUp.move('U');
-            if(upValid) {
-                queue.add(moveUp);
-            }
+                stats.beginStep();
+                pool.invoke(new ExpandTask(layer, 0, numChunks));
+                stats.checkCancelled();  // the tasks skip their chunks once cancelled, so the chunks may be incomplete
+                stats.lap(SearchStats.Phase.SUCCESSORS);  // wall time of the parallel expansion and closed-list adds
+                stats.countExpanded(layer.length);
 
-            PuzzleGrid moveDown = new PuzzleGrid(queue.element());
-            boolean downValid = moveDown.move('D');
-            if(downValid) {
-                queue.add(moveDown);
-            }
+                // take the goal from the earliest chunk so the answer doesn't depend on thread timing
+                for(PuzzleGrid goal : chunkGoals) {
+                    if(goal != null) {
+                        return goal;
+                    }
+                }
 
-            PuzzleGrid moveLeft = new PuzzleGrid(queue.element());
-            boolean leftValid = moveLeft.move('L');
-            if(leftValid) {
-                queue.add(moveLeft);
+                if(logging) {
+                    System.out.println("Expanded depth " + layer[0].getDepth() + ": " + layer.length + " grids");
+                }
+                layer = concatenateChunks();
+                stats.lap(SearchStats.Phase.LISTS);
+                stats.countGenerated(layer.length);
+                stats.recordSizes(layer.length, visitedStates.size());
             }
+        } finally {
+            pool.shutdown();
+            chunkChildren = null;
+        }
+
+        return null;  // game over; no solution exists
+    }
+
+    /**
+     * Helper function to gather the children of every chunk into the next layer, in chunk order
+     * @return the next layer of the search
+     */
+    private PuzzleGrid[] concatenateChunks() {
+        int total = 0;
+        for(int count : chunkCounts) {
+            total += count;
+        }
+        for(int duplicates : chunkDuplicates) {
+            stats.countDuplicates(duplicates);
+        }
+
+        PuzzleGrid[] nextLayer = new PuzzleGrid[total];
+        int offset = 0;
+        for(int chunk = 0; chunk < chunkChildren.length; chunk++) {
+            System.arraycopy(chunkChildren[chunk], 0, nextLayer, offset, chunkCounts[chunk]);
+            offset += chunkCounts[chunk];
+            chunkChildren[chunk] = null;  // let the chunk be collected while the next layer is built
+        }
+        return nextLayer;
+    }
+
+    /**
+     * Fork-join task that expands a range of chunks of the current layer
+     * Splits the range in half until it is a single chunk, which it expands directly
+     */
+    private class ExpandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
 
-            PuzzleGrid moveRight = new PuzzleGrid(queue.element());
-            boolean rightValid = moveRight.move('R');
-            if(rightValid) {
-                queue.add(moveRight);
+        private final PuzzleGrid[] layer;
+        private final int firstChunk;
+        private final int endChunk;
+
+        /**
+         * Constructor to create a task for a range of chunks
+         * @param layer the grids at the current depth
+         * @param firstChunk the first chunk to expand
+         * @param endChunk one past the last chunk to expand
+         */
+        ExpandTask(PuzzleGrid[] layer, int firstChunk, int endChunk) {
+            this.layer = layer;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if(stats.isCancelled()) {
+                return;  // a layer can take seconds, so stop between chunks rather than at the next layer
             }
+            if(endChunk - firstChunk == 1) {
+                expandChunk(layer, firstChunk);
+            } else {
+                int middle = (firstChunk + endChunk) >>> 1;
+                invokeAll(new ExpandTask(layer, firstChunk, middle), new ExpandTask(layer, middle, endChunk));
+            }
+        }
+    }
 
-            queue.remove();  // pop the first element of the BFS queue
+    /**
+     * Expands every grid in one chunk of the layer, keeping the children whose state has not been seen before
+     * @param layer the grids at the current depth
+     * @param chunk the index of the chunk to expand
+     */
+    private void expandChunk(PuzzleGrid[] layer, int chunk) {
+        int start = chunk * CHUNK_SIZE;
+        int end = Math.min(layer.length, start + CHUNK_SIZE);
+        PuzzleGrid[] children = new PuzzleGrid[(end - start) * 4];
+        int count = 0;
+        int duplicates = 0;
+
+        for(int i = start; i < end; i++) {
+            // test the moves for up, down, left, and right
+            for(PuzzleGrid neighbor : layer[i].getNeighbors()) {
+                if(neighbor.checkGoal()) {
+                    chunkGoals[chunk] = neighbor;
+                    return;  // the rest of the chunk can't hold an earlier goal
+                }
+                // a dead state stays visited, so it is never checked again
+                if(visitedStates.add(neighbor.getStateKey())) {
+                    if(!pruning.isDead(neighbor)) {
+                        children[count++] = neighbor;
+                    }
+                } else {
+                    duplicates++;
+                }
+            }
         }
 
-        return null;  // game over; no solution exists
+        chunkChildren[chunk] = children;
+        chunkCounts[chunk] = count;
+        chunkDuplicates[chunk] = duplicates;
     }
 }
@@ -0,0 +1,273 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * PuzzleSolver that utilizes beam search to solve the 2048 puzzle
+ * Searches one depth at a time like breadth-first search, but keeps only the best K grids of each layer according to
+ * a Heuristic, so it finds a good (not necessarily shortest) solution in time and memory proportional to K
+ * The beam is expanded and scored in parallel by fork-join workers; the best K are then chosen with a partial
+ * selection instead of a full sort
+ */
+public class PuzzleSolverBeam extends PuzzleSolver {
+
+    private static final int CHUNK_SIZE = 64;  // grids expanded by one fork-join leaf task
+
+    private Heuristic heuristic;
+    private int beamWidth;
+    private int numThreads;
+
+    // output of the current layer's expansion, one slot per chunk of the beam
+    private PuzzleGrid[][] chunkChildren;
+    private int[] chunkCounts;
+    private PuzzleGrid[] chunkGoals;  // first child in each chunk that reached the goal, or null
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using beam search on every core
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param beamWidth the number of grids K kept at each depth
+     * @param heuristic the Heuristic that ranks the grids of each layer
+     */
+    public PuzzleSolverBeam(int[][] initialGrid, int goalTile, int[] spawnPool, int beamWidth, Heuristic heuristic) {
+        this(initialGrid, goalTile, spawnPool, beamWidth, heuristic, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using beam search on a fixed number of threads
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param beamWidth the number of grids K kept at each depth
+     * @param heuristic the Heuristic that ranks the grids of each layer
+     * @param numThreads the number of fork-join worker threads
+     */
+    public PuzzleSolverBeam(int[][] initialGrid, int goalTile, int[] spawnPool, int beamWidth, Heuristic heuristic,
+                            int numThreads) {
+        super(initialGrid, goalTile, spawnPool);
+        if(beamWidth < 1) {
+            throw new Error("Beam search needs a width of at least 1");
+        }
+        if(numThreads < 1) {
+            throw new Error("Beam search needs at least one thread");
+        }
+        this.heuristic = heuristic;
+        stats.setHeuristic(heuristic);
+        this.beamWidth = beamWidth;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Attempts to find a solution to the 2048 puzzle using beam search
+     * A grid kept in an earlier layer is never kept again, so the search can't cycle and ends once the beam is empty
+     * @return the PuzzleGrid that achieved the goal tile, or null if the beam ran out of grids before reaching it
+     */
+    @Override
+    protected PuzzleGrid search() {
+        if(puzzleGrid.checkGoal()) {
+            return puzzleGrid;
+        }
+
+        LongHashSet keptStates = new LongHashSet(beamWidth * 4);  // state keys of every grid kept in a beam
+        keptStates.add(puzzleGrid.getStateKey());
+        PuzzleGrid[] beam = {puzzleGrid};
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            while(beam.length > 0) {
+                int numChunks = (beam.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                chunkChildren = new PuzzleGrid[numChunks][];
+                chunkCounts = new int[numChunks];
+                chunkGoals = new PuzzleGrid[numChunks];
+
+                stats.beginStep();
+                pool.invoke(new ExpandTask(beam, 0, numChunks));
+                stats.checkCancelled();  // the tasks skip their chunks once cancelled, so the chunks may be incomplete
+                stats.lap(SearchStats.Phase.SUCCESSORS);  // wall time of the parallel expansion, scoring included
+                stats.countExpanded(beam.length);
+
+                // take the goal from the earliest chunk so the answer doesn't depend on thread timing
+                for(PuzzleGrid goal : chunkGoals) {
+                    if(goal != null) {
+                        return goal;
+                    }
+                }
+
+                // gather the children in chunk order, dropping states already kept in this or an earlier layer
+                int total = 0;
+                for(int count : chunkCounts) {
+                    total += count;
+                }
+                PuzzleGrid[] candidates = new PuzzleGrid[total];
+                LongHashSet layerStates = new LongHashSet(total);
+                int numCandidates = 0;
+                for(int chunk = 0; chunk < numChunks; chunk++) {
+                    for(int i = 0; i < chunkCounts[chunk]; i++) {
+                        PuzzleGrid child = chunkChildren[chunk][i];
+                        long key = child.getStateKey();
+                        if(!keptStates.contains(key) && layerStates.add(key)) {
+                            candidates[numCandidates++] = child;
+                        }
+                    }
+                }
+
+                int width = Math.min(beamWidth, numCandidates);
+                selectBest(candidates, numCandidates, width);
+                beam = Arrays.copyOf(candidates, width);
+                for(PuzzleGrid grid : beam) {
+                    keptStates.add(grid.getStateKey());
+                }
+                stats.lap(SearchStats.Phase.LISTS);
+                stats.countGenerated(width);
+                stats.countDuplicates(total - numCandidates);
+                stats.recordSizes(numCandidates, keptStates.size());
+
+                if(logging && width > 0) {
+                    System.out.println("Depth " + beam[0].getDepth() + ": kept " + width + " of " + numCandidates + " grids");
+                }
+            }
+        } finally {
+            pool.shutdown();
+            chunkChildren = null;
+        }
+
+        return null;  // the beam ran out before reaching the goal tile
+    }
+
+    /**
+     * Fork-join task that expands and scores a range of chunks of the beam
+     * Splits the range in half until it is a single chunk, which it expands directly
+     */
+    private class ExpandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PuzzleGrid[] beam;
+        private final int firstChunk;
+        private final int endChunk;
+
+        /**
+         * Constructor to create a task for a range of chunks
+         * @param beam the grids at the current depth
+         * @param firstChunk the first chunk to expand
+         * @param endChunk one past the last chunk to expand
+         */
+        ExpandTask(PuzzleGrid[] beam, int firstChunk, int endChunk) {
+            this.beam = beam;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if(stats.isCancelled()) {
+                return;  // a layer can take seconds, so stop between chunks rather than at the next layer
+            }
+            if(endChunk - firstChunk == 1) {
+                expandChunk(beam, firstChunk);
+            } else {
+                int middle = (firstChunk + endChunk) >>> 1;
+                invokeAll(new ExpandTask(beam, firstChunk, middle), new ExpandTask(beam, middle, endChunk));
+            }
+        }
+    }
+
+    /**
+     * Expands every grid in one chunk of the beam and scores the children
+     * @param beam the grids at the current depth
+     * @param chunk the index of the chunk to expand
+     */
+    private void expandChunk(PuzzleGrid[] beam, int chunk) {
+        int start = chunk * CHUNK_SIZE;
+        int end = Math.min(beam.length, start + CHUNK_SIZE);
+        PuzzleGrid[] children = new PuzzleGrid[(end - start) * 4];
+        int count = 0;
+
+        for(int i = start; i < end; i++) {
+            for(PuzzleGrid neighbor : beam[i].getNeighbors()) {
+                if(neighbor.checkGoal()) {
+                    chunkGoals[chunk] = neighbor;
+                    return;  // the rest of the chunk can't hold an earlier goal
+                }
+                if(!pruning.isDead(neighbor)) {
+                    heuristic.evaluate(neighbor);
+                    children[count++] = neighbor;
+                }
+            }
+        }
+
+        chunkChildren[chunk] = children;
+        chunkCounts[chunk] = count;
+    }
+
+    /**
+     * Rearranges grids so the best k, as ranked by the heuristic, come first (in no particular order)
+     * Uses quickselect, which takes linear time on average instead of the n log n of a full sort
+     * @param grids the scored grids
+     * @param length the number of grids in use at the start of the array
+     * @param k the number of best grids to move to the front
+     */
+    private void selectBest(PuzzleGrid[] grids, int length, int k) {
+        int low = 0;
+        int high = length - 1;
+        while(low < high && k > low && k <= high) {
+            // partition around the median of three so ordered input doesn't degrade to quadratic time
+            int middle = (low + high) >>> 1;
+            PuzzleGrid pivot = medianOfThree(grids[low], grids[middle], grids[high]);
+            int left = low;
+            int right = high;
+            while(left <= right) {
+                while(heuristic.compare(grids[left], pivot) < 0) {
+                    left++;
+                }
+                while(heuristic.compare(grids[right], pivot) > 0) {
+                    right--;
+                }
+                if(left <= right) {
+                    PuzzleGrid temp = grids[left];
+                    grids[left] = grids[right];
+                    grids[right] = temp;
+                    left++;
+                    right--;
+                }
+            }
+            // now grids[low..right] are no worse than the pivot and grids[left..high] no better
+            if(k <= right) {
+                high = right;
+            } else if(k >= left) {
+                low = left;
+            } else {
+                return;  // the boundary falls among grids equal to the pivot
+            }
+        }
+    }
+
+    /**
+     * Helper function to choose a pivot for selectBest
+     * @param a the first grid
+     * @param b the middle grid
+     * @param c the last grid
+     * @return the grid ranked between the other two
+     */
+    private PuzzleGrid medianOfThree(PuzzleGrid a, PuzzleGrid b, PuzzleGrid c) {
+        if(heuristic.compare(a, b) < 0) {
+            if(heuristic.compare(b, c) < 0) {
+                return b;
+            }
+            return heuristic.compare(a, c) < 0 ? c : a;
+        }
+        if(heuristic.compare(a, c) < 0) {
+            return a;
+        }
+        return heuristic.compare(b, c) < 0 ? c : b;
+    }
+
+    /**
+     * Getter for the beam width
+     * @return the number of grids K kept at each depth
+     */
+    public int getBeamWidth() {
+        return beamWidth;
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.function.Supplier;
+
+/**
+ * Decorator that answers from a SolutionCache when the same puzzle has already been solved with the same options, and
+ * otherwise creates and runs the solver it wraps and stores the answer; a cancelled solve is not stored
+ * The wrapped solver is only created on a cache miss, since creating a solver allocates its search structures; the
+ * puzzle's initial grid is built once up front and reused to replay every solution the cache returns
+ * The stats are those of the wrapped solver when it ran, and the decorator's own (no nodes, just the lookup time) when
+ * the answer came from the cache
+ */
+public class PuzzleSolverCached extends PuzzleSolver {
+
+    private final Supplier<PuzzleSolver> solverFactory;
+    private final SolutionCache cache;
+    private final PuzzleGrid initialState;  // replayed from, never changed
+    private final SolutionCache.Fingerprint fingerprint;
+    private volatile PuzzleSolver solver;  // null until a cache miss
+
+    /**
+     * Constructor to put a cache in front of a solver
+     * @param solverFactory creates the solver to run on a cache miss
+     * @param cache the cache to answer from
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param solverDescription the options that chose the solver, see SolverOptions.getSolverDescription
+     */
+    public PuzzleSolverCached(Supplier<PuzzleSolver> solverFactory, SolutionCache cache, int[][] initialGrid,
+                              int goalTile, int[] spawnPool, String solverDescription) {
+        this.solverFactory = solverFactory;
+        this.cache = cache;
+        this.initialState = new PuzzleGrid(initialGrid, goalTile, spawnPool);
+        this.fingerprint = SolutionCache.fingerprint(initialGrid, goalTile, spawnPool, solverDescription);
+    }
+
+    /**
+     * Looks the puzzle up in the cache, and solves and stores it on a miss
+     * @return the PuzzleGrid that achieved the goal tile, or null if there is no solution or the solve was cancelled
+     */
+    @Override
+    protected PuzzleGrid search() {
+        SolutionCache.CachedSolution entry = cache.lookup(fingerprint, initialState);
+        if(entry != null) {
+            return entry.getSolution();
+        }
+
+        PuzzleSolver missSolver = solverFactory.get();
+        missSolver.getStats().shareSnapshotListener(stats);
+        solver = missSolver;
+        if(super.isCancelled()) {
+            missSolver.cancel();  // cancelled while the solver was being created
+        }
+        PuzzleGrid solution = missSolver.solve();
+        if(!missSolver.isCancelled()) {
+            cache.store(fingerprint, solution);
+        }
+        return solution;
+    }
+
+    /**
+     * Asks the solve to stop, whether it is looking up the cache or running the wrapped solver
+     */
+    @Override
+    public void cancel() {
+        super.cancel();
+        PuzzleSolver running = solver;
+        if(running != null) {
+            running.cancel();
+        }
+    }
+
+    /**
+     * Getter for the counters and timings of the solve
+     * @return the wrapped solver's stats if it ran, and the decorator's own otherwise
+     */
+    @Override
+    public SearchStats getStats() {
+        PuzzleSolver running = solver;
+        return running != null ? running.getStats() : stats;
+    }
+}
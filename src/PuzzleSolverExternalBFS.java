@@ -0,0 +1,456 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * PuzzleSolver that utilizes external-memory breadth-first search to solve the 2048 puzzle
+ * Each depth layer is kept in a RecordFile of packed states rather than on the heap; duplicates are removed late,
+ * by sorting the children of a layer into runs that fit in memory and merging the runs against a sorted file of
+ * every state key seen so far
+ * The heap only holds one run and one record per open file, so the search is bounded by local disk instead of heap,
+ * and every file is read and written sequentially except for the few lookups that rebuild the solution
+ */
+public class PuzzleSolverExternalBFS extends PuzzleSolver {
+
+    // directions in the order children are generated
+    private static final char[] DIRECTIONS = {'U', 'D', 'L', 'R'};
+
+    private static final int DEFAULT_RUN_RECORDS = 1 << 20;  // children sorted in memory at once
+    private static final int LAYER_WINDOW_RECORDS = 1 << 16;  // records mapped at once when scanning a layer
+    private static final int RUN_WINDOW_RECORDS = 1 << 12;  // records mapped at once per run while merging
+    private static final int CANCEL_CHECK_RECORDS = 1 << 12;  // records read between checks for cancellation
+
+    // layout of a record: state key, packed board, index of the parent in the previous layer, then the spawn pool
+    // cursor and move index packed together
+    private static final int KEY = 0;
+    private static final int WORDS = 1;
+
+    private Path scratchDirectory;  // null to create a temporary directory for each solve
+    private int runRecords;
+
+    private int wordCount;
+    private int recordLongs;
+    private int parentField;  // index of the parent index within a record
+    private int metaField;  // index of the packed cursor and move within a record
+
+    private Path workDirectory;
+    private List<RecordFile> layers;  // layer d holds the states first reached after d moves, sorted by key
+    private long statesGenerated;
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle that keeps its layers in a temporary directory
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    public PuzzleSolverExternalBFS(int[][] initialGrid, int goalTile, int[] spawnPool) {
+        this(initialGrid, goalTile, spawnPool, null, DEFAULT_RUN_RECORDS);
+    }
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle that keeps its layers in a given directory
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param scratchDirectory the directory to create the search files in, or null for a temporary directory
+     * @param runRecords the number of children to sort in memory at once, which sets the heap used by the search
+     */
+    public PuzzleSolverExternalBFS(int[][] initialGrid, int goalTile, int[] spawnPool, Path scratchDirectory, int runRecords) {
+        super(initialGrid, goalTile, spawnPool);
+        if(runRecords < 1) {
+            throw new Error("External BFS needs room to sort at least one record");
+        }
+        this.scratchDirectory = scratchDirectory;
+        this.runRecords = runRecords;
+    }
+
+    /**
+     * Attempts to find a solution to the 2048 puzzle using external-memory breadth-first search
+     * Every file the search creates is deleted before it returns
+     * @return the PuzzleGrid that achieved the goal tile with the minimum number of swipes, or
+     * null if there exists no solution that can achieve the goal tile
+     */
+    @Override
+    protected PuzzleGrid search() {
+        if(puzzleGrid.checkGoal()) {
+            return puzzleGrid;
+        }
+
+        wordCount = puzzleGrid.getSpec().getWordCount();
+        recordLongs = WORDS + wordCount + 2;
+        parentField = WORDS + wordCount;
+        metaField = parentField + 1;
+        layers = new ArrayList<>();
+        statesGenerated = 0;
+
+        try {
+            workDirectory = scratchDirectory == null
+                    ? Files.createTempDirectory("puzzle-search")
+                    : Files.createDirectories(scratchDirectory).resolve("puzzle-search-" + System.nanoTime());
+            Files.createDirectories(workDirectory);
+        } catch(IOException e) {
+            throw new Error("Could not create a directory for the search files", e);
+        }
+
+        RecordFile visited = null;  // sorted keys of every state in the layers so far
+        // files of the layer being built, which a cancelled search can leave behind in the middle of a step
+        List<RecordFile> runs = new ArrayList<>();
+        RecordFile nextLayer = null;
+        RecordFile nextVisited = null;
+        try {
+            // layer 0 and the visited file both start with just the initial grid
+            long[] record = new long[recordLongs];
+            record[KEY] = puzzleGrid.getStateKey();
+            puzzleGrid.storeState(record, WORDS);
+            record[parentField] = -1;
+            record[metaField] = pack(puzzleGrid.getSpawnIndex(), 0);
+            RecordFile root = new RecordFile(workDirectory.resolve("layer-0"), recordLongs);
+            try(RecordFile.Writer writer = root.newWriter(1)) {
+                writer.append(record, 0);
+            }
+            layers.add(root);
+            visited = new RecordFile(workDirectory.resolve("visited-0"), 1);
+            try(RecordFile.Writer writer = visited.newWriter(1)) {
+                writer.append(record, KEY);
+            }
+
+            while(true) {
+                int depth = layers.size() - 1;
+                long generatedBefore = statesGenerated;
+                stats.beginStep();
+                PuzzleGrid solution = expandLayer(depth, runs);
+                stats.lap(SearchStats.Phase.SUCCESSORS);  // includes sorting and writing the runs
+                stats.countExpanded(layers.get(depth).getNumRecords());
+                if(solution != null) {
+                    return solution;
+                }
+
+                nextLayer = new RecordFile(workDirectory.resolve("layer-" + (depth + 1)), recordLongs);
+                nextVisited = new RecordFile(workDirectory.resolve("visited-" + (depth + 1)), 1);
+                mergeRuns(runs, visited, nextLayer, nextVisited);
+                deleteAll(runs);
+                runs.clear();
+                visited.delete();
+                visited = nextVisited;
+                nextVisited = null;
+                stats.lap(SearchStats.Phase.LISTS);
+                stats.countGenerated(nextLayer.getNumRecords());
+                stats.countDuplicates(statesGenerated - generatedBefore - nextLayer.getNumRecords());
+                stats.recordSizes(nextLayer.getNumRecords(), visited.getNumRecords());
+
+                if(logging) {
+                    System.out.println("Depth " + (depth + 1) + ": " + nextLayer.getNumRecords() + " new states, "
+                            + visited.getNumRecords() + " seen");
+                }
+                if(nextLayer.getNumRecords() == 0) {
+                    return null;  // game over; no solution exists
+                }
+                layers.add(nextLayer);
+                nextLayer = null;
+            }
+        } finally {
+            deleteAll(runs);
+            if(nextLayer != null) {
+                nextLayer.delete();
+            }
+            if(nextVisited != null) {
+                nextVisited.delete();
+            }
+            if(visited != null) {
+                visited.delete();
+            }
+            deleteAll(layers);
+            try {
+                Files.deleteIfExists(workDirectory);
+            } catch(IOException e) {
+                // leave the empty directory behind rather than hide the result of the search
+            }
+        }
+    }
+
+    /**
+     * Generates the children of every state in a layer, writing them to sorted runs with duplicates in a run removed
+     * @param depth the depth of the layer to expand
+     * @param runs the list to add each run file to, in the order the runs were written
+     * @return the solution if a child reached the goal tile, otherwise null
+     */
+    private PuzzleGrid expandLayer(int depth, List<RecordFile> runs) {
+        PuzzleGrid workingGrid = new PuzzleGrid(puzzleGrid);
+        MoveUndo undo = new MoveUndo();
+        long[] record = new long[recordLongs];
+        long[] runBuffer = new long[runRecords * recordLongs];
+        int runSize = 0;
+
+        try(RecordFile.Reader reader = layers.get(depth).newReader(LAYER_WINDOW_RECORDS)) {
+            for(long index = 0; reader.next(record, 0); index++) {
+                if((index & (CANCEL_CHECK_RECORDS - 1)) == 0) {
+                    stats.checkCancelled();  // a layer can take seconds, so don't wait for the next one
+                }
+                workingGrid.loadState(record, WORDS, spawnIndexOf(record[metaField]), record[KEY], depth);
+                for(int move = 0; move < DIRECTIONS.length; move++) {
+                    if(!workingGrid.applyMove(DIRECTIONS[move], undo)) {
+                        continue;
+                    }
+                    statesGenerated++;
+                    if(workingGrid.checkGoal()) {
+                        return rebuildSolution(depth, index, move);
+                    }
+                    if(pruning.isDead(workingGrid)) {
+                        workingGrid.undoMove(undo);
+                        continue;
+                    }
+
+                    int offset = runSize * recordLongs;
+                    runBuffer[offset + KEY] = workingGrid.getStateKey();
+                    workingGrid.storeState(runBuffer, offset + WORDS);
+                    runBuffer[offset + parentField] = index;
+                    runBuffer[offset + metaField] = pack(workingGrid.getSpawnIndex(), move);
+                    workingGrid.undoMove(undo);
+
+                    if(++runSize == runRecords) {
+                        runs.add(writeRun(runBuffer, runSize, depth, runs.size()));
+                        runSize = 0;
+                    }
+                }
+            }
+        }
+        if(runSize > 0) {
+            runs.add(writeRun(runBuffer, runSize, depth, runs.size()));
+        }
+        return null;
+    }
+
+    /**
+     * Sorts a buffer of child records by state key and writes it to a run file, keeping the first of each key
+     * The sort is stable, so among duplicates the child generated first (from the earliest parent) is kept
+     * @param runBuffer the child records
+     * @param runSize the number of records in the buffer
+     * @param depth the depth of the layer being expanded, to name the file
+     * @param runIndex the number of runs already written for this layer, to name the file
+     * @return the run file
+     */
+    private RecordFile writeRun(long[] runBuffer, int runSize, int depth, int runIndex) {
+        long[] keys = new long[runSize];
+        int[] order = new int[runSize];
+        for(int i = 0; i < runSize; i++) {
+            keys[i] = runBuffer[i * recordLongs + KEY];
+            order[i] = i;
+        }
+        sortByKey(order, keys);
+
+        RecordFile run = new RecordFile(workDirectory.resolve("run-" + depth + "-" + runIndex), recordLongs);
+        try(RecordFile.Writer writer = run.newWriter(RUN_WINDOW_RECORDS)) {
+            for(int i = 0; i < runSize; i++) {
+                if(i == 0 || keys[order[i]] != keys[order[i - 1]]) {
+                    writer.append(runBuffer, order[i] * recordLongs);
+                }
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Merges the sorted runs of a layer into the next layer, dropping states that are in the visited file, and
+     * writes the merged visited file with the next layer's keys added
+     * @param runs the sorted run files, in the order they were written
+     * @param visited the sorted keys of every state in the layers so far
+     * @param nextLayer the file to write the new states to, in key order
+     * @param nextVisited the file to write the merged keys to
+     */
+    private void mergeRuns(List<RecordFile> runs, RecordFile visited, RecordFile nextLayer, RecordFile nextVisited) {
+        PriorityQueue<RunCursor> cursors = new PriorityQueue<>();
+        List<RunCursor> opened = new ArrayList<>();
+        long[] seenKey = new long[1];
+
+        try(RecordFile.Reader visitedReader = visited.newReader(LAYER_WINDOW_RECORDS);
+            RecordFile.Writer layerWriter = nextLayer.newWriter(LAYER_WINDOW_RECORDS);
+            RecordFile.Writer visitedWriter = nextVisited.newWriter(LAYER_WINDOW_RECORDS)) {
+
+            for(int i = 0; i < runs.size(); i++) {
+                RunCursor cursor = new RunCursor(runs.get(i).newReader(RUN_WINDOW_RECORDS), i, recordLongs);
+                opened.add(cursor);
+                if(cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+
+            boolean hasSeen = visitedReader.next(seenKey, 0);
+            boolean hasLast = false;
+            long lastKey = 0;
+            long merged = 0;
+            while(!cursors.isEmpty()) {
+                if((merged++ & (CANCEL_CHECK_RECORDS - 1)) == 0) {
+                    stats.checkCancelled();
+                }
+                RunCursor cursor = cursors.poll();
+                long key = cursor.record[KEY];
+                if(!hasLast || key != lastKey) {  // runs are polled in order, so the first of a key comes first
+                    hasLast = true;
+                    lastKey = key;
+                    // copy the visited keys below this one to the merged file
+                    while(hasSeen && seenKey[0] < key) {
+                        visitedWriter.append(seenKey, 0);
+                        hasSeen = visitedReader.next(seenKey, 0);
+                    }
+                    if(!hasSeen || seenKey[0] != key) {  // a state no earlier layer contains
+                        layerWriter.append(cursor.record, 0);
+                        visitedWriter.append(cursor.record, KEY);
+                    }
+                }
+                if(cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+            while(hasSeen) {
+                if((merged++ & (CANCEL_CHECK_RECORDS - 1)) == 0) {
+                    stats.checkCancelled();
+                }
+                visitedWriter.append(seenKey, 0);
+                hasSeen = visitedReader.next(seenKey, 0);
+            }
+        } finally {
+            for(RunCursor cursor : opened) {
+                cursor.reader.close();
+            }
+        }
+    }
+
+    /**
+     * Position in one sorted run during a merge, ordered by its current key and then by when the run was written
+     */
+    private static class RunCursor implements Comparable<RunCursor> {
+
+        final RecordFile.Reader reader;
+        final int runIndex;
+        final long[] record;
+
+        /**
+         * Constructor to create a cursor before the first record of a run
+         * @param reader a reader of the run
+         * @param runIndex the order the run was written in
+         * @param recordLongs the number of longs in a record
+         */
+        RunCursor(RecordFile.Reader reader, int runIndex, int recordLongs) {
+            this.reader = reader;
+            this.runIndex = runIndex;
+            this.record = new long[recordLongs];
+        }
+
+        /**
+         * Moves to the next record of the run
+         * @return false if the run is exhausted
+         */
+        boolean advance() {
+            return reader.next(record, 0);
+        }
+
+        @Override
+        public int compareTo(RunCursor other) {
+            int cmp = Long.compare(record[KEY], other.record[KEY]);
+            return cmp != 0 ? cmp : Integer.compare(runIndex, other.runIndex);
+        }
+    }
+
+    /**
+     * Follows the parent indices of a goal back through the layer files and replays the moves from the initial grid
+     * @param depth the depth of the layer the goal's parent is in
+     * @param parentIndex the index of the goal's parent in that layer
+     * @param lastMove the index of the move from the parent to the goal
+     * @return a PuzzleGrid that carries the moves of the solution
+     */
+    private PuzzleGrid rebuildSolution(int depth, long parentIndex, int lastMove) {
+        char[] moves = new char[depth + 1];
+        moves[depth] = DIRECTIONS[lastMove];
+        long[] record = new long[recordLongs];
+        long index = parentIndex;
+        for(int d = depth; d > 0; d--) {
+            try(RecordFile.Reader reader = layers.get(d).newReader(1)) {
+                reader.read(index, record, 0);
+            }
+            moves[d - 1] = DIRECTIONS[moveOf(record[metaField])];
+            index = record[parentField];
+        }
+
+        PuzzleGrid solution = new PuzzleGrid(puzzleGrid);
+        for(char move : moves) {
+            solution.move(move);
+        }
+        return solution;
+    }
+
+    /**
+     * Sorts indices by their keys with a stable merge sort
+     * @param order the indices to sort
+     * @param keys the key of each index
+     */
+    private static void sortByKey(int[] order, long[] keys) {
+        int[] buffer = new int[order.length];
+        for(int width = 1; width < order.length; width *= 2) {
+            for(int low = 0; low < order.length - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, order.length);
+                int left = low;
+                int right = middle;
+                int out = low;
+                while(left < middle && right < high) {
+                    // take from the left on ties so equal keys keep their order
+                    buffer[out++] = keys[order[right]] < keys[order[left]] ? order[right++] : order[left++];
+                }
+                while(left < middle) {
+                    buffer[out++] = order[left++];
+                }
+                while(right < high) {
+                    buffer[out++] = order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+    }
+
+    /**
+     * Helper function to delete a list of files
+     * @param files the files to delete
+     */
+    private static void deleteAll(List<RecordFile> files) {
+        for(RecordFile file : files) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Helper function to pack the spawn pool cursor and move of a record into one long
+     * @param spawnIndex the spawn pool cursor of the state
+     * @param move the index of the move that led to the state
+     * @return the packed value
+     */
+    private static long pack(int spawnIndex, int move) {
+        return ((long) spawnIndex << 2) | move;
+    }
+
+    /**
+     * Helper function to unpack the spawn pool cursor of a record
+     * @param meta the value written by pack
+     * @return the spawn pool cursor
+     */
+    private static int spawnIndexOf(long meta) {
+        return (int) (meta >>> 2);
+    }
+
+    /**
+     * Helper function to unpack the move of a record
+     * @param meta the value written by pack
+     * @return the index of the move in DIRECTIONS
+     */
+    private static int moveOf(long meta) {
+        return (int) (meta & 3);
+    }
+
+    /**
+     * Getter for the number of children generated by the last solve, duplicates included
+     * @return the number of states generated
+     */
+    public long getStatesGenerated() {
+        return statesGenerated;
+    }
+}
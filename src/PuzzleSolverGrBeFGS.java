@@ -1,12 +1,18 @@
-import java.util.*;
+import java.nio.file.Path;
 
 /**
  * PuzzleSolver that utilizes greedy best-first graph search to solve the 2048 puzzle
  */
 public class PuzzleSolverGrBeFGS extends PuzzleSolver {
 
-    private PriorityQueue<PuzzleGrid> frontier;  // priority queue structure to represent frontier
-    private HashMap<PuzzleGrid, Boolean> visitedStates;  // map structure to track visited states in O(1) time
+    private static final char[] DIRECTIONS = {'U', 'D', 'L', 'R'};  // the order getNeighbors generates successors in
+
+    private Heuristic heuristic;  // scores each grid once as it is generated
+    private NodeArena nodes;  // the frontier's boards and the moves of every grid generated, in primitive arrays
+    private OpenList frontier;  // priority queue of the handles of the nodes to expand
+    private LongHashSet visitedStates;  // set of Zobrist state keys to track visited states in O(1) time
+    private long statesGenerated;  // kept across a checkpoint and resume
+    private SearchCheckpoint checkpoint;  // null unless checkpoints are enabled
 
     /**
      * Constructor to create a PuzzleSolver for the 2048 puzzle
@@ -16,10 +22,14 @@ public class PuzzleSolverGrBeFGS extends PuzzleSolver {
      */
     public PuzzleSolverGrBeFGS(int[][] initialGrid, int goalTile, int[] spawnPool) {
         super(initialGrid, goalTile, spawnPool);
-        frontier = new PriorityQueue<>(10, new GrBeFGSHeuristic());
-        frontier.add(puzzleGrid);  // add the initial PuzzleGrid to the priority queue
-        visitedStates = new HashMap<>();
-        visitedStates.put(puzzleGrid, true);
+        heuristic = new GrBeFGSHeuristic();
+        frontier = OpenList.forHeuristic(heuristic);
+        stats.setHeuristic(heuristic);
+        heuristic.evaluate(puzzleGrid);
+        nodes = new NodeArena(puzzleGrid.getSpec(), 1024);
+        frontier.add(nodes.add(puzzleGrid, NodeArena.NO_NODE, (char) 0), puzzleGrid.getF());  // add the initial grid
+        visitedStates = new LongHashSet(1024);
+        visitedStates.add(puzzleGrid.getStateKey());
     }
 
     /**
@@ -31,10 +41,14 @@ public class PuzzleSolverGrBeFGS extends PuzzleSolver {
      */
     public PuzzleSolverGrBeFGS(int[][] initialGrid, int goalTile, int[] spawnPool, boolean logging) {
         super(initialGrid, goalTile, spawnPool, logging);
-        frontier = new PriorityQueue<>(10, new GrBeFGSHeuristic());
-        frontier.add(puzzleGrid);  // add the initial PuzzleGrid to the priority queue
-        visitedStates = new HashMap<>();
-        visitedStates.put(puzzleGrid, true);
+        heuristic = new GrBeFGSHeuristic();
+        frontier = OpenList.forHeuristic(heuristic);
+        stats.setHeuristic(heuristic);
+        heuristic.evaluate(puzzleGrid);
+        nodes = new NodeArena(puzzleGrid.getSpec(), 1024);
+        frontier.add(nodes.add(puzzleGrid, NodeArena.NO_NODE, (char) 0), puzzleGrid.getF());  // add the initial grid
+        visitedStates = new LongHashSet(1024);
+        visitedStates.add(puzzleGrid.getStateKey());
     }
 
     /**
@@ -43,38 +57,91 @@ public class PuzzleSolverGrBeFGS extends PuzzleSolver {
      * null if there exists no solution that can achieve the goal tile
      */
     @Override
-    public PuzzleGrid solve() {
-        int statesGenerated = 0;
+    protected PuzzleGrid search() {
+        try {
+            return searchFrontier();
+        } finally {
+            if(checkpoint != null) {
+                checkpoint.close();  // let the last snapshot finish writing
+            }
+        }
+    }
 
+    /**
+     * Helper function for the search loop of solve, which may be interrupted by checkpoints
+     * @return the PuzzleGrid that achieved the goal tile, or null if there exists no solution
+     */
+    private PuzzleGrid searchFrontier() {
+        PuzzleGrid expanding = new PuzzleGrid(puzzleGrid);  // unpacks each node polled from the frontier
+        MoveUndo undo = new MoveUndo();
         while(!frontier.isEmpty()) {
-            PuzzleGrid bestGrid = frontier.poll();  // access and pop the top PuzzleGrid from the frontier
+            stats.beginIteration();
+            int bestNode = frontier.poll();  // access and pop the best node from the frontier
+            int bestStep = nodes.take(bestNode, expanding);
+            stats.lap(SearchStats.Phase.LISTS);
 
-            if(bestGrid.checkGoal()) {
+            if(expanding.checkGoal()) {
                 if(logging) {
                     System.out.println(statesGenerated + " states checked");
                 }
-                return bestGrid;
+                expanding.setHistory(nodes.getHistory(bestStep));
+                return expanding;
             } else {
-                ArrayList<PuzzleGrid> neighbors = bestGrid.getNeighbors();
-                for(PuzzleGrid neighbor : neighbors) {
-                    if(!stateVisited(neighbor)) {  // prevent loops by avoiding board states already generated
-                        frontier.add(neighbor);  // add the neighbor to the frontier
-                        statesGenerated++;
-                        visitedStates.put(neighbor, true);  // mark that this state has been visited
-                    } // else, this neighbor is a duplicate board state
+                stats.countExpanded();
+                // generate each successor in place, keeping only the ones that join the frontier
+                for(char direction : DIRECTIONS) {
+                    if(!expanding.applyMove(direction, undo)) {
+                        continue;
+                    }
+                    stats.lap(SearchStats.Phase.SUCCESSORS);
+                    // prevent loops by avoiding states already generated; add marks the state visited
+                    if(visitedStates.add(expanding.getStateKey())) {
+                        if(!pruning.isDead(expanding)) {  // a dead state stays visited, so it is never checked again
+                            stats.lap(SearchStats.Phase.LISTS);
+                            heuristic.evaluate(expanding);  // score once here rather than on every comparison
+                            stats.lap(SearchStats.Phase.HEURISTIC);
+                            frontier.add(nodes.add(expanding, bestStep, direction), expanding.getF());
+                            statesGenerated++;
+                            stats.countGenerated();
+                        }
+                    } else {
+                        stats.countDuplicate();  // this neighbor is a duplicate state
+                    }
+                    expanding.undoMove(undo);
                 }
+                stats.lap(SearchStats.Phase.LISTS);
+                stats.recordSizes(frontier.size(), visitedStates.size());
+            }
+
+            if(checkpoint != null && checkpoint.isDue()) {
+                checkpoint.capture(frontier, nodes, visitedStates, statesGenerated);
             }
         }
         return null;  // game over; no solution exists
     }
 
     /**
-     * Checks whether a board state has been visited using the visitedStates HashMap
-     * @param puzzleGrid The PuzzleGrid to check; existence in the map is determined by the grid alone,
-     *                   so an identical grid means a repeated state
-     * @return whether this grid state has been previously generated/visited
+     * Saves the search state to a file at a fixed interval while solve runs, so a long search can be resumed
+     * @param file the checkpoint file, replaced by each new snapshot
+     * @param intervalMillis the time between snapshots in milliseconds
+     */
+    public void enableCheckpoints(Path file, long intervalMillis) {
+        checkpoint = new SearchCheckpoint(file, intervalMillis, puzzleGrid, getClass().getName(), heuristic);
+    }
+
+    /**
+     * Replaces the search state with one saved by an earlier run with checkpoints enabled, so solve picks up where
+     * that run left off
+     * @param file the checkpoint file, which must have been saved by the same solver for the same puzzle and heuristic
      */
-    private boolean stateVisited(PuzzleGrid puzzleGrid) {
-        return visitedStates.get(puzzleGrid) != null;
+    public void resume(Path file) {
+        SearchCheckpoint.Snapshot snapshot = SearchCheckpoint.read(file, puzzleGrid, getClass().getName(), heuristic);
+        nodes = snapshot.getNodes();
+        frontier = OpenList.forHeuristic(heuristic);
+        for(int node : snapshot.getOpenNodes()) {
+            frontier.add(node, nodes.getF(node));
+        }
+        visitedStates = snapshot.getVisitedStates();
+        statesGenerated = snapshot.getStatesGenerated();
     }
 }
@@ -0,0 +1,339 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * PuzzleSolver that utilizes hash-distributed A* (HDA*) to solve the 2048 puzzle on several threads
+ * Every state is owned by one worker, chosen by its Zobrist key; each worker keeps its own frontier and closed list,
+ * and successors are sent to their owner through a lock-free queue
+ * With the admissible heuristic the search keeps running until no queued state could beat the best solution found,
+ * so it returns a solution with the minimum number of swipes; with the non-admissible heuristic it stops at the first
+ */
+public class PuzzleSolverHDAStar extends PuzzleSolver {
+
+    private static final int STATS_POLL_MILLIS = 100;  // how often solve gathers the workers' stats while it waits
+
+    private HeuristicType heuristicType;
+    private int numThreads;
+
+    private MpscQueue<PuzzleGrid>[] inboxes;  // one queue of incoming states per worker
+    private AtomicLong pendingStates;  // states sent but not yet expanded or discarded, 0 once the search is exhausted
+    private AtomicReference<PuzzleGrid> bestSolution;  // the solution with the fewest swipes so far, or null
+    private volatile boolean finished;
+    private volatile Throwable failure;  // first error thrown by a worker, rethrown by solve
+    private SearchStats[] workerStats;  // counted by each worker on its own, combined into stats by solve
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using HDA*
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param heuristicType a HeuristicType (ADMISSIBLE or NONADMISSIBLE) that defines which heuristic to apply
+     * @param numThreads the number of worker threads
+     */
+    public PuzzleSolverHDAStar(int[][] initialGrid, int goalTile, int[] spawnPool, HeuristicType heuristicType, int numThreads) {
+        super(initialGrid, goalTile, spawnPool);
+        if(numThreads < 1) {
+            throw new Error("HDA* needs at least one thread");
+        }
+        this.heuristicType = heuristicType;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Attempts to find a solution to the 2048 puzzle using hash-distributed A* search
+     * @return the PuzzleGrid that achieved the goal tile, with the minimum number of swipes when the heuristic is
+     * admissible, or null if there exists no solution that can achieve the goal tile
+     */
+    @Override
+    protected PuzzleGrid search() {
+        if(puzzleGrid.checkGoal()) {
+            return puzzleGrid;
+        }
+
+        inboxes = createInboxes(numThreads);
+        pendingStates = new AtomicLong();
+        bestSolution = new AtomicReference<>();
+        finished = false;
+        failure = null;
+
+        Heuristic rootHeuristic = createHeuristic();
+        rootHeuristic.evaluate(puzzleGrid);
+        stats.setHeuristic(rootHeuristic);
+        workerStats = new SearchStats[numThreads];
+        for(int i = 0; i < numThreads; i++) {
+            workerStats[i] = new SearchStats(stats.getSolverName());
+        }
+        send(puzzleGrid);
+
+        Thread[] workers = new Thread[numThreads];
+        for(int i = 0; i < numThreads; i++) {
+            int id = i;
+            workers[i] = new Thread(() -> runWorker(id), "hda-worker-" + i);
+            workers[i].start();
+        }
+        for(Thread worker : workers) {
+            try {
+                // wake up now and then to gather the workers' counters, which are read without synchronization
+                // and so may lag behind a little until the worker has been joined
+                while(worker.isAlive()) {
+                    worker.join(STATS_POLL_MILLIS);
+                    stats.combine(workerStats);
+                    stats.reportIfDue();
+                    if(stats.isCancelled()) {
+                        finished = true;  // the workers stop at their next loop
+                    }
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finished = true;
+            }
+        }
+        stats.combine(workerStats);
+        stats.checkCancelled();
+
+        if(failure != null) {
+            throw new Error("HDA* worker failed", failure);
+        }
+        return bestSolution.get();  // null if no solution exists
+    }
+
+    /**
+     * Main loop of one worker: accept incoming states, expand the best local state, and stop once no
+     * state is pending anywhere
+     * @param id the index of the worker, which owns the states that hash to it
+     */
+    private void runWorker(int id) {
+        try {
+            Heuristic heuristic = createHeuristic();
+            GridFrontier frontier = new GridFrontier(heuristic);
+            LongIntHashMap bestDepths = new LongIntHashMap(1024);  // closed list: fewest swipes seen for each owned state
+            MpscQueue<PuzzleGrid> inbox = inboxes[id];
+            SearchStats localStats = workerStats[id];
+            int idleRounds = 0;
+
+            while(!finished) {
+                localStats.beginIteration();
+                // move incoming states into the local frontier, dropping ones already reached as cheaply
+                PuzzleGrid incoming;
+                while((incoming = inbox.poll()) != null) {
+                    long key = incoming.getStateKey();
+                    if(incoming.getDepth() < bestDepths.get(key, Integer.MAX_VALUE) && !canPrune(incoming)) {
+                        bestDepths.put(key, incoming.getDepth());
+                        frontier.add(incoming);
+                        localStats.countGenerated();
+                    } else {
+                        pendingStates.decrementAndGet();
+                        localStats.countDuplicate();
+                    }
+                }
+                localStats.recordSizes(frontier.size(), bestDepths.size());
+
+                PuzzleGrid bestGrid = frontier.poll();
+                localStats.lap(SearchStats.Phase.LISTS);
+                if(bestGrid == null) {
+                    if(pendingStates.get() == 0) {
+                        break;  // every worker is idle and nothing is in flight, so the search is exhausted
+                    }
+                    idle(++idleRounds);
+                    continue;
+                }
+                idleRounds = 0;
+
+                // skip states that were reached more cheaply after being queued, or can no longer win
+                boolean stale = bestGrid.getDepth() > bestDepths.get(bestGrid.getStateKey(), Integer.MAX_VALUE);
+                if(!stale && !canPrune(bestGrid)) {
+                    expand(bestGrid, heuristic, localStats);
+                }
+                pendingStates.decrementAndGet();  // children were counted before the parent is released
+            }
+        } catch(Throwable e) {
+            failure = e;
+            finished = true;
+        }
+    }
+
+    /**
+     * Generates the neighbors of a state, recording any that reach the goal and sending the rest to their owners
+     * @param puzzleGrid the state to expand
+     * @param heuristic the worker's heuristic, used to score each neighbor
+     * @param localStats the worker's stats
+     */
+    private void expand(PuzzleGrid puzzleGrid, Heuristic heuristic, SearchStats localStats) {
+        localStats.countExpanded();
+        ArrayList<PuzzleGrid> neighbors = puzzleGrid.getNeighbors();
+        localStats.lap(SearchStats.Phase.SUCCESSORS);
+        for(PuzzleGrid neighbor : neighbors) {
+            if(neighbor.checkGoal()) {
+                recordSolution(neighbor);
+            } else {
+                heuristic.evaluate(neighbor);
+                localStats.lap(SearchStats.Phase.HEURISTIC);
+                if(!canPrune(neighbor) && !pruning.isDead(neighbor)) {
+                    send(neighbor);
+                }
+                localStats.lap(SearchStats.Phase.LISTS);
+            }
+        }
+    }
+
+    /**
+     * Sends a scored state to the worker that owns it
+     * @param puzzleGrid the state to send
+     */
+    private void send(PuzzleGrid puzzleGrid) {
+        pendingStates.incrementAndGet();  // counted before it becomes visible so the search can't appear exhausted
+        inboxes[owner(puzzleGrid.getStateKey())].offer(puzzleGrid);
+    }
+
+    /**
+     * Finds the worker that owns a state
+     * Uses the high bits of the key, since the hash tables index by a mix that favors the low bits
+     * @param stateKey the Zobrist key of the state
+     * @return the index of the owning worker
+     */
+    private int owner(long stateKey) {
+        return (int) ((stateKey >>> 32) * numThreads >>> 32);
+    }
+
+    /**
+     * Records a goal state if it beats the best solution so far
+     * With the non-admissible heuristic the first solution ends the search
+     * The grid itself is swapped in, so its cost and the grid can never come from two different solutions
+     * @param solution a PuzzleGrid that contains the goal tile
+     */
+    private void recordSolution(PuzzleGrid solution) {
+        PuzzleGrid current = bestSolution.get();
+        while((current == null || solution.getDepth() < current.getDepth()) &&
+                !bestSolution.compareAndSet(current, solution)) {
+            current = bestSolution.get();
+        }
+        if(heuristicType != HeuristicType.ADMISSIBLE) {
+            finished = true;
+        }
+    }
+
+    /**
+     * Checks whether a state can no longer lead to a better solution than the best found so far
+     * With the admissible heuristic f(n) never overestimates the number of swipes of a solution through n;
+     * otherwise only the swipes already made can be relied on
+     * @param puzzleGrid a scored state
+     * @return true if the state can be discarded
+     */
+    private boolean canPrune(PuzzleGrid puzzleGrid) {
+        PuzzleGrid best = bestSolution.get();
+        if(best == null) {
+            return false;
+        }
+        int cost = best.getDepth();
+        if(heuristicType == HeuristicType.ADMISSIBLE) {
+            return puzzleGrid.getF() >= cost;
+        }
+        return puzzleGrid.getDepth() + 1 >= cost;
+    }
+
+    /**
+     * Helper function to back off while waiting for states from other workers
+     * @param idleRounds the number of consecutive rounds without work
+     */
+    private void idle(int idleRounds) {
+        if(idleRounds < 64) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(20_000);
+        }
+    }
+
+    /**
+     * Helper function to create an empty inbox for every worker
+     * Java can't create an array of a generic type, so the array is created unparameterized and cast; it is only
+     * ever filled with queues of grids
+     * @param count the number of workers
+     * @return an array of new queues
+     */
+    @SuppressWarnings("unchecked")
+    private static MpscQueue<PuzzleGrid>[] createInboxes(int count) {
+        MpscQueue<PuzzleGrid>[] queues = (MpscQueue<PuzzleGrid>[]) new MpscQueue<?>[count];
+        for(int i = 0; i < count; i++) {
+            queues[i] = new MpscQueue<>();
+        }
+        return queues;
+    }
+
+    /**
+     * Helper function to create the heuristic chosen for this solver
+     * @return a new Heuristic of the chosen type
+     */
+    private Heuristic createHeuristic() {
+        if(heuristicType == HeuristicType.ADMISSIBLE) {
+            return new AStarHeuristicAdmissible();
+        }
+        return new AStarHeuristic();
+    }
+
+    /**
+     * A worker's frontier, holding grids rather than NodeArena nodes since states arrive from every worker with
+     * move histories of their own; the grids sit in a table whose indexes are the handles the OpenList orders
+     */
+    private static class GridFrontier {
+
+        private final OpenList order;
+        private PuzzleGrid[] grids = new PuzzleGrid[64];  // queued grids by handle, null where a handle is free
+        private int[] freeHandles = new int[64];  // handles of polled grids, to reuse before adding new ones
+        private int numFree = 0;
+        private int numHandles = 0;
+
+        /**
+         * Constructor to create an empty frontier
+         * @param heuristic the heuristic that scores the grids
+         */
+        GridFrontier(Heuristic heuristic) {
+            this.order = OpenList.forHeuristic(heuristic);
+        }
+
+        /**
+         * Adds a scored grid to the frontier
+         * @param puzzleGrid the grid, which must have been scored with Heuristic.evaluate
+         */
+        void add(PuzzleGrid puzzleGrid) {
+            int handle;
+            if(numFree > 0) {
+                handle = freeHandles[--numFree];
+            } else {
+                if(numHandles == grids.length) {
+                    grids = Arrays.copyOf(grids, numHandles * 2);
+                }
+                handle = numHandles++;
+            }
+            grids[handle] = puzzleGrid;
+            order.add(handle, puzzleGrid.getF());
+        }
+
+        /**
+         * Removes the best grid from the frontier
+         * @return the best grid according to the heuristic, or null if the frontier is empty
+         */
+        PuzzleGrid poll() {
+            int handle = order.poll();
+            if(handle == NodeArena.NO_NODE) {
+                return null;
+            }
+            PuzzleGrid puzzleGrid = grids[handle];
+            grids[handle] = null;  // release the grid for garbage collection
+            if(numFree == freeHandles.length) {
+                freeHandles = Arrays.copyOf(freeHandles, numFree * 2);
+            }
+            freeHandles[numFree++] = handle;
+            return puzzleGrid;
+        }
+
+        /**
+         * Getter for the number of grids in the frontier
+         * @return the size of the frontier
+         */
+        int size() {
+            return order.size();
+        }
+    }
+}
@@ -5,7 +5,21 @@ import java.util.*;
  */
 public class PuzzleSolverID extends PuzzleSolver {
 
-    private Stack<PuzzleGrid> frontier;  // stack structure for iterative deepening
+    // directions in the order a stack of U, D, L, R neighbors would pop them
+    private static final char[] DIRECTIONS = {'R', 'L', 'D', 'U'};
+
+    private PuzzleGrid workingGrid;  // single grid that every bounded DFS moves and undoes in place
+    private MoveUndo[] undoStack;  // one undo record per depth, reused across iterations
+    private char[] path;  // moves from the initial grid to the grid currently being searched
+
+    /**
+     * Outcome of a single bounded depth-first search
+     */
+    private enum DepthResult {
+        FOUND,  // the goal tile was reached at the depth limit
+        DEPTH_REACHED,  // no solution at the depth limit, but deeper grids exist
+        DEPTH_NOT_REACHED  // no grid reaches the depth limit, so deeper searches are pointless
+    }
 
     /**
      * Constructor to create a PuzzleSolver for the 2048 puzzle
@@ -15,8 +29,6 @@ public class PuzzleSolverID extends PuzzleSolver {
      */
     public PuzzleSolverID(int[][] initialGrid, int goalTile, int[] spawnPool) {
         super(initialGrid, goalTile, spawnPool);
-        frontier = new Stack<>();
-        frontier.push(puzzleGrid);  // push the initial puzzle onto the stack
     }
 
     /**
@@ -28,8 +40,6 @@ public class PuzzleSolverID extends PuzzleSolver {
      */
     public PuzzleSolverID(int[][] initialGrid, int goalTile, int[] spawnPool, boolean logging) {
         super(initialGrid, goalTile, spawnPool, logging);
-        frontier = new Stack<>();
-        frontier.push(puzzleGrid);  // push the initial puzzle onto the stack
     }
 
     /**
@@ -38,60 +48,108 @@ public class PuzzleSolverID extends PuzzleSolver {
      * null if there exists no solution that can achieve the goal tile
      */
     @Override
-    public PuzzleGrid solve() {
+    protected PuzzleGrid search() {
+
+        workingGrid = new PuzzleGrid(puzzleGrid);
+        undoStack = new MoveUndo[0];
+        path = new char[0];
 
         int currentDepth = 0;
-        ArrayList<PuzzleGrid> res = new ArrayList<>();
+        DepthResult res;
 
         do {
-            res = boundedDFS(puzzleGrid, currentDepth);
-            if(res != null && !res.isEmpty()) {
-                return res.get(res.size() - 1);
+            SearchEvents.DeepeningIteration iteration = SearchEvents.iterationStarted();
+            res = boundedDFS(currentDepth);
+            SearchEvents.iterationFinished(stats, iteration, currentDepth);
+            if(res == DepthResult.FOUND) {
+                // replay the path on a fresh copy so the solution carries its own moves
+                PuzzleGrid solution = new PuzzleGrid(puzzleGrid);
+                for(int depth = 0; depth < currentDepth; depth++) {
+                    solution.move(path[depth]);
+                }
+                return solution;
             }
             currentDepth++;
-        } while(res != null);
+        } while(res == DepthResult.DEPTH_REACHED);
 
         return null;  // game over; no solution exists
     }
 
     /**
-     * Performs a bounded depth-first search up to the given depth limit
-     * @param start the initial state from which to generate states
+     * Performs a bounded depth-first search from the initial state up to the given depth limit
      * @param depthLimit the limit at which the goal condition is checked
-     * @return the path of the solution, or an empty array if no solution was
-     * found at the given depth, or null if the depth was never reached
+     * @return FOUND if a solution was found (its moves are left in path), DEPTH_REACHED if no solution was
+     * found at the given depth, or DEPTH_NOT_REACHED if the depth was never reached
      */
-    public ArrayList<PuzzleGrid> boundedDFS(PuzzleGrid start, int depthLimit) {
+    private DepthResult boundedDFS(int depthLimit) {
+        if(undoStack.length <= depthLimit) {
+            // grow the per-depth buffers once per iteration rather than per node
+            undoStack = Arrays.copyOf(undoStack, depthLimit + 1);
+            for(int depth = 0; depth <= depthLimit; depth++) {
+                if(undoStack[depth] == null) {
+                    undoStack[depth] = new MoveUndo();
+                }
+            }
+            path = Arrays.copyOf(path, depthLimit);
+        }
+        return boundedDFS(0, depthLimit);
+    }
+
+    /**
+     * Recursive helper for the bounded depth-first search, moving workingGrid in place and undoing each move
+     * @param depth the number of moves applied to workingGrid so far
+     * @param depthLimit the limit at which the goal condition is checked
+     * @return the outcome of searching below the current grid
+     */
+    private DepthResult boundedDFS(int depth, int depthLimit) {
+
+        if(depth == depthLimit) {  // if depth limit is reached
+            if(workingGrid.checkGoal()) {
+                return DepthResult.FOUND;  // found a path that obtains the goal tile
+            } else if(hasNeighbor(undoStack[depth])) {
+                return DepthResult.DEPTH_REACHED;  // flag that the depth limit has been reached
+            }
+            return DepthResult.DEPTH_NOT_REACHED;
+        }
 
         boolean depthReached = false;
-        frontier = new Stack<>();
-        frontier.push(start);  // push the initial puzzle onto the stack
-
-        while(!frontier.empty()) {
-            ArrayList<PuzzleGrid> path = new ArrayList<>();
-            path.add(frontier.peek());
-            frontier.pop();
-
-            // get the most recent grid added to the path
-            PuzzleGrid latestGrid = path.get(path.size() - 1);
-            ArrayList<PuzzleGrid> neighbors = latestGrid.getNeighbors();
-
-            if(latestGrid.getMoves().size() == depthLimit) {  // if depth limit is reached
-                if(latestGrid.checkGoal()) {
-                    return path;  // found a path that obtains the goal tile
-                } else if(!neighbors.isEmpty()) {
-                    depthReached = true;  // flag that the depth limit has been reached
+        MoveUndo undo = undoStack[depth];
+        stats.beginIteration();
+        stats.countExpanded();
+        stats.recordSizes(depth + 1, 0);  // the frontier of a depth-first search is its path
+        for(char direction : DIRECTIONS) {
+            if(workingGrid.applyMove(direction, undo)) {  // search below each valid neighbor
+                stats.lap(SearchStats.Phase.SUCCESSORS);
+                if(pruning.isDead(workingGrid)) {
+                    workingGrid.undoMove(undo);
+                    continue;  // nothing below it can reach the goal at any depth
                 }
-            } else {
-                for(PuzzleGrid neighbor : neighbors) {
-                    frontier.push(neighbor);  // push the valid neighbors of the path onto the stack
+                stats.countGenerated();
+                path[depth] = direction;
+                DepthResult res = boundedDFS(depth + 1, depthLimit);
+                if(res == DepthResult.FOUND) {
+                    workingGrid.undoMove(undo);
+                    return res;
                 }
+                depthReached |= res == DepthResult.DEPTH_REACHED;
+                workingGrid.undoMove(undo);
             }
         }
-        if(depthReached) {
-            return new ArrayList<>();  // no solution found at depth
-        } else {
-            return null;  // no solution found, depth not reached
+        return depthReached ? DepthResult.DEPTH_REACHED : DepthResult.DEPTH_NOT_REACHED;
+    }
+
+    /**
+     * Checks whether workingGrid has at least one valid move, leaving it unchanged
+     * @param undo a record that is not in use by any shallower depth
+     * @return true if some swipe changes the grid
+     */
+    private boolean hasNeighbor(MoveUndo undo) {
+        for(char direction : DIRECTIONS) {
+            if(workingGrid.applyMove(direction, undo)) {
+                workingGrid.undoMove(undo);
+                return true;
+            }
         }
+        return false;
     }
 }
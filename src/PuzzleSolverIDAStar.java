@@ -0,0 +1,207 @@
+import java.util.*;
+
+/**
+ * PuzzleSolver that utilizes iterative deepening A* (IDA*) to solve the 2048 puzzle
+ * Each iteration is a depth-first search that cuts off grids whose f(n) from AStarHeuristicAdmissible exceeds a
+ * threshold, raising the threshold to the smallest value that was cut off until a solution is found
+ * Only the current path is kept, plus a fixed-size TranspositionTable that skips states reached again in the same
+ * iteration, so memory stays proportional to the depth of the solution
+ */
+public class PuzzleSolverIDAStar extends PuzzleSolver {
+
+    // directions in the order ties between equally promising moves are tried
+    private static final char[] DIRECTIONS = {'U', 'D', 'L', 'R'};
+
+    private static final int DEFAULT_TABLE_SIZE = 1 << 20;  // about 16 MB of transposition entries
+
+    private Heuristic heuristic;
+    private TranspositionTable transpositions;
+
+    private PuzzleGrid workingGrid;  // single grid that every iteration moves and undoes in place
+    private MoveUndo[] undoStack;  // one undo record per depth, reused across iterations
+    private char[] path;  // moves from the initial grid to the grid currently being searched
+    private char[][] orderedMoves;  // valid moves at each depth, most promising first
+    private double[][] orderedScores;  // f(n) of the grid each ordered move leads to
+    private int nextThreshold;  // smallest bound that exceeded the threshold in the current iteration
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using IDA*
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    public PuzzleSolverIDAStar(int[][] initialGrid, int goalTile, int[] spawnPool) {
+        this(initialGrid, goalTile, spawnPool, DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using IDA* with a transposition table of a given size
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param tableSize the number of transposition table entries, rounded up to a power of two
+     */
+    public PuzzleSolverIDAStar(int[][] initialGrid, int goalTile, int[] spawnPool, int tableSize) {
+        super(initialGrid, goalTile, spawnPool);
+        this.heuristic = new AStarHeuristicAdmissible();
+        stats.setHeuristic(heuristic);
+        this.transpositions = new TranspositionTable(tableSize);
+    }
+
+    /**
+     * Overloaded constructor for debug/logging
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param logging whether to log details about each iteration
+     */
+    public PuzzleSolverIDAStar(int[][] initialGrid, int goalTile, int[] spawnPool, boolean logging) {
+        super(initialGrid, goalTile, spawnPool, logging);
+        this.heuristic = new AStarHeuristicAdmissible();
+        stats.setHeuristic(heuristic);
+        this.transpositions = new TranspositionTable(DEFAULT_TABLE_SIZE);
+    }
+
+    /**
+     * Attempts to find a solution to the 2048 puzzle using iterative deepening A*
+     * @return the PuzzleGrid that achieved the goal tile with the minimum number of swipes, or
+     * null if there exists no solution that can achieve the goal tile
+     */
+    @Override
+    protected PuzzleGrid search() {
+        if(puzzleGrid.checkGoal()) {
+            return puzzleGrid;
+        }
+
+        workingGrid = new PuzzleGrid(puzzleGrid);
+        undoStack = new MoveUndo[0];
+        path = new char[0];
+        orderedMoves = new char[0][];
+        orderedScores = new double[0][];
+
+        heuristic.evaluate(workingGrid);
+        int threshold = bound(workingGrid);
+
+        while(threshold != Integer.MAX_VALUE) {
+            transpositions.newIteration();
+            transpositions.visit(workingGrid.getStateKey(), 0);
+            nextThreshold = Integer.MAX_VALUE;
+
+            SearchEvents.DeepeningIteration iteration = SearchEvents.iterationStarted();
+            int solutionDepth = search(0, threshold);
+            SearchEvents.iterationFinished(stats, iteration, threshold);
+            if(solutionDepth >= 0) {
+                // replay the path on a fresh copy so the solution carries its own moves
+                PuzzleGrid solution = new PuzzleGrid(puzzleGrid);
+                for(int depth = 0; depth < solutionDepth; depth++) {
+                    solution.move(path[depth]);
+                }
+                return solution;
+            }
+
+            if(logging) {
+                System.out.println("Threshold " + threshold + " exhausted, next threshold " + nextThreshold);
+            }
+            threshold = nextThreshold;  // stays at MAX_VALUE if nothing was cut off
+        }
+
+        return null;  // game over; no solution exists
+    }
+
+    /**
+     * Recursive depth-first search below workingGrid, moving it in place and undoing each move
+     * Scores every valid move first, then searches the moves within the threshold in order of f(n)
+     * @param depth the number of moves applied to workingGrid so far
+     * @param threshold the largest bound a grid may have and still be searched
+     * @return the length of the solution whose moves are left in path, or -1 if none is within the threshold
+     */
+    private int search(int depth, int threshold) {
+        if(depth == undoStack.length) {
+            growBuffers(depth * 2 + 16);
+        }
+        MoveUndo undo = undoStack[depth];
+        char[] moves = orderedMoves[depth];
+        double[] scores = orderedScores[depth];
+        int numMoves = 0;
+        stats.beginIteration();
+        stats.countExpanded();
+        stats.recordSizes(depth + 1, 0);  // the frontier of a depth-first search is its path
+
+        for(char direction : DIRECTIONS) {
+            if(!workingGrid.applyMove(direction, undo)) {
+                continue;
+            }
+            if(workingGrid.checkGoal()) {
+                workingGrid.undoMove(undo);
+                path[depth] = direction;
+                return depth + 1;
+            }
+            stats.lap(SearchStats.Phase.SUCCESSORS);
+            if(pruning.isDead(workingGrid)) {
+                workingGrid.undoMove(undo);
+                continue;  // no threshold would let it reach the goal
+            }
+
+            heuristic.evaluate(workingGrid);
+            int bound = bound(workingGrid);
+            stats.lap(SearchStats.Phase.HEURISTIC);
+            if(bound > threshold) {
+                nextThreshold = Math.min(nextThreshold, bound);
+            } else if(!transpositions.visit(workingGrid.getStateKey(), depth + 1)) {
+                stats.countDuplicate();
+            } else {
+                stats.countGenerated();
+                // insert the move so the list stays sorted by f(n), keeping direction order among ties
+                double score = workingGrid.getF();
+                int position = numMoves++;
+                while(position > 0 && scores[position - 1] > score) {
+                    moves[position] = moves[position - 1];
+                    scores[position] = scores[position - 1];
+                    position--;
+                }
+                moves[position] = direction;
+                scores[position] = score;
+            }
+            workingGrid.undoMove(undo);
+            stats.lap(SearchStats.Phase.LISTS);
+        }
+
+        for(int i = 0; i < numMoves; i++) {
+            workingGrid.applyMove(moves[i], undo);
+            path[depth] = moves[i];
+            int solutionDepth = search(depth + 1, threshold);
+            workingGrid.undoMove(undo);
+            if(solutionDepth >= 0) {
+                return solutionDepth;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lower bound on the number of swipes of any solution through a grid that is not itself a goal
+     * Solutions are a whole number of swipes, so f(n) is rounded up, which keeps one iteration per extra swipe
+     * @param puzzleGrid a scored grid
+     * @return the bound compared against the threshold
+     */
+    private int bound(PuzzleGrid puzzleGrid) {
+        return (int) Math.min(Math.ceil(puzzleGrid.getF()), Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Helper function to grow the per-depth buffers, doubling so reallocation is rare
+     * @param length the number of depths to make room for
+     */
+    private void growBuffers(int length) {
+        int oldLength = undoStack.length;
+        undoStack = Arrays.copyOf(undoStack, length);
+        orderedMoves = Arrays.copyOf(orderedMoves, length);
+        orderedScores = Arrays.copyOf(orderedScores, length);
+        for(int depth = oldLength; depth < length; depth++) {
+            undoStack[depth] = new MoveUndo();
+            orderedMoves[depth] = new char[DIRECTIONS.length];
+            orderedScores[depth] = new double[DIRECTIONS.length];
+        }
+        path = Arrays.copyOf(path, length);
+    }
+}
@@ -1,16 +1,405 @@
+import java.util.*;
 
+/**
+ * PuzzleSolver that utilizes recursive best-first search (RBFS) to solve the 2048 puzzle
+ * Searches the same order as greedy best-first graph search, but keeps only the current path and the siblings of
+ * each grid on it: when every child of a grid is worse than the best alternative elsewhere, the grid's subtree is
+ * forgotten and its best child value is backed up, so the subtree can be regenerated later if it becomes the best again
+ * Memory is O(depth * branching factor) instead of every visited state, at the cost of re-expanding some grids
+ * The recursion is kept in per-depth arrays rather than on the call stack, since greedy solutions run thousands of
+ * swipes deep
+ */
 public class PuzzleSolverRGrBeFGS extends PuzzleSolver {
 
+    // directions in the order ties between equally good children are tried
+    private static final char[] DIRECTIONS = {'U', 'D', 'L', 'R'};
+
+    private static final double UNBOUNDED = Double.POSITIVE_INFINITY;
+
+    private static final int DEFAULT_CACHE_SIZE = 1 << 20;  // at most about 16 MB of forgotten costs
+    private static final int INITIAL_CACHE_SIZE = 1 << 10;  // the cache starts this small and doubles as it fills
+
+    private Heuristic heuristic;
+    private boolean negateScores;  // whether the heuristic prefers higher values, which RBFS must turn into costs
+
+    private PuzzleGrid workingGrid;  // single grid that is moved and undone in place along the current path
+    private LongHashSet pathStates;  // state keys of the grids on the current path, to avoid cycles
+
+    // bounded, direct-mapped cache of the backed-up cost of forgotten grids, so a grid reached again along another
+    // path starts from what is already known about its subtree instead of searching it from scratch; allocated by the
+    // first grid forgotten, so a short solve never pays for the largest size
+    // a cost is kept as how far it is above the grid's own cost, which the path cost g(n) in an f-value cancels out of,
+    // so a grid reached again at another depth gets its own g(n) back
+    private int maxCacheSize;
+    private long[] forgottenKeys = null;
+    private double[] forgottenExcesses;
+    private int cacheMask;
+    private int numRemembered;  // costs stored since the cache last grew
+
+    // one frame per depth of the current path; frame d describes the grid reached after d moves
+    private MoveUndo[] undoStack = new MoveUndo[0];  // undo record of the move from depth d to its chosen child
+    private char[][] childMoves = new char[0][];  // moves to each child of the grid at depth d
+    private double[][] childCosts = new double[0][];  // backed-up cost of each child
+    private double[][] childStaticCosts = new double[0][];  // cost of each child from the heuristic alone
+    private int[] numChildren = new int[0];
+    private int[] chosenChild = new int[0];  // child currently being searched below depth d
+    private double[] costLimits = new double[0];  // cost a child may reach before the search returns to depth d - 1
+    private long[] frameKeys = new long[0];  // state key of the grid at depth d
+    private double[] frameCosts = new double[0];  // cost of the grid at depth d from the heuristic alone
+    private int[] excludedDepths = new int[0];  // shallowest depth of a path grid a swipe below depth d led back to
+
+    private long expansions;  // number of grids whose children were generated
+    private long reExpansions;  // expansions of grids whose subtree had been forgotten before
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using RBFS with the greedy best-first heuristic
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
     public PuzzleSolverRGrBeFGS(int[][] initialGrid, int goalTile, int[] spawnPool) {
+        this(initialGrid, goalTile, spawnPool, new GrBeFGSHeuristic());
+    }
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using RBFS with any heuristic
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param heuristic the Heuristic whose f(n) orders the search
+     */
+    public PuzzleSolverRGrBeFGS(int[][] initialGrid, int goalTile, int[] spawnPool, Heuristic heuristic) {
+        this(initialGrid, goalTile, spawnPool, heuristic, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using RBFS with a cache of forgotten costs of a given size
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param heuristic the Heuristic whose f(n) orders the search
+     * @param cacheSize the most forgotten costs to remember, rounded up to a power of two
+     */
+    public PuzzleSolverRGrBeFGS(int[][] initialGrid, int goalTile, int[] spawnPool, Heuristic heuristic, int cacheSize) {
         super(initialGrid, goalTile, spawnPool);
+        this.heuristic = heuristic;
+        stats.setHeuristic(heuristic);
+        this.negateScores = heuristic.prefersHigherValues();
+        this.maxCacheSize = Integer.highestOneBit(Math.max(16, cacheSize - 1)) << 1;
+    }
+
+    /**
+     * Overloaded constructor for debug/logging
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param logging whether to log details about the search
+     */
+    public PuzzleSolverRGrBeFGS(int[][] initialGrid, int goalTile, int[] spawnPool, boolean logging) {
+        super(initialGrid, goalTile, spawnPool, logging);
+        this.heuristic = new GrBeFGSHeuristic();
+        stats.setHeuristic(heuristic);
+        this.negateScores = heuristic.prefersHigherValues();
+        this.maxCacheSize = DEFAULT_CACHE_SIZE;
     }
 
+    /**
+     * Attempts to find a solution to the 2048 puzzle using recursive best-first search
+     * @return the PuzzleGrid that achieved the goal tile, or null if there exists no solution that can
+     * achieve the goal tile
+     */
     @Override
-    public PuzzleGrid solve() {
+    protected PuzzleGrid search() {
+        if(puzzleGrid.checkGoal()) {
+            return puzzleGrid;
+        }
+
+        workingGrid = new PuzzleGrid(puzzleGrid);
+        pathStates = new LongHashSet(64);
+        expansions = 0;
+        reExpansions = 0;
+        forgottenKeys = null;  // nothing is known about the subtrees of another solve
+        forgottenExcesses = null;
+        if(undoStack.length == 0) {
+            allocateFrames(64);
+        }
+
+        heuristic.evaluate(workingGrid);
+        double rootCost = cost(workingGrid);
+        costLimits[0] = UNBOUNDED;
+        int depth = 0;
+        int solutionDepth = enter(0, rootCost, rootCost);
+
+        while(solutionDepth < 0) {
+            double backedUpCost;
+            int best = bestChild(depth);
+            if(best < 0 || childCosts[depth][best] == UNBOUNDED) {
+                backedUpCost = UNBOUNDED;  // dead end: no child is left that could lead to the goal
+            } else if(childCosts[depth][best] > costLimits[depth]) {
+                backedUpCost = childCosts[depth][best];  // an alternative higher up is now better
+            } else {
+                // descend into the best child, bounded by the best alternative seen so far
+                double limit = Math.min(costLimits[depth], secondBestCost(depth, best));
+                chosenChild[depth] = best;
+                workingGrid.applyMove(childMoves[depth][best], undoStack[depth]);
+                depth++;
+                if(depth == undoStack.length) {
+                    allocateFrames(depth * 2);
+                }
+                costLimits[depth] = limit;
+                solutionDepth = enter(depth, childCosts[depth - 1][best], childStaticCosts[depth - 1][best]);
+                continue;
+            }
+
+            // forget the subtree below this grid and back its best cost up into the parent; the cost is not
+            // remembered if a swipe below it was skipped for leading back to a grid above it, since reached along
+            // another path that swipe may lead somewhere cheaper, or out of what is here a dead end
+            pathStates.remove(frameKeys[depth]);
+            if(excludedDepths[depth] >= depth) {
+                rememberForgotten(frameKeys[depth], backedUpCost - frameCosts[depth]);
+            }
+            if(depth == 0) {
+                break;  // the root was exhausted
+            }
+            depth--;
+            excludedDepths[depth] = Math.min(excludedDepths[depth], excludedDepths[depth + 1]);
+            workingGrid.undoMove(undoStack[depth]);
+            childCosts[depth][chosenChild[depth]] = backedUpCost;
+        }
+
+        if(logging) {
+            System.out.println("RBFS expanded " + expansions + " grids, " + reExpansions + " of them again");
+        }
+        if(solutionDepth < 0) {
+            return null;  // game over; no solution exists
+        }
+
+        // replay the chosen moves on a fresh copy so the solution carries its own moves
+        PuzzleGrid solution = new PuzzleGrid(puzzleGrid);
+        for(int d = 0; d < solutionDepth; d++) {
+            solution.move(childMoves[d][chosenChild[d]]);
+        }
+        return solution;
+    }
+
+    /**
+     * Pushes workingGrid as the frame at a depth and generates its children
+     * A grid whose backed-up cost is above its own was expanded and forgotten before, so its children inherit
+     * the backed-up cost: everything below them is already known to be at least that bad
+     * @param depth the depth of workingGrid
+     * @param backedUpCost the cost the parent holds for this grid
+     * @param staticCost the cost of this grid from the heuristic alone
+     * @return the length of the solution if a child reached the goal (its move is left as chosenChild), or -1
+     */
+    private int enter(int depth, double backedUpCost, double staticCost) {
+        stats.beginIteration();
+        frameKeys[depth] = workingGrid.getStateKey();
+        frameCosts[depth] = staticCost;
+        excludedDepths[depth] = Integer.MAX_VALUE;
+        pathStates.add(frameKeys[depth]);
+        stats.recordSizes(depth + 1, pathStates.size());  // the frames on the path are all RBFS keeps
+        stats.countExpanded();
+        expansions++;
+        boolean inherit = backedUpCost > staticCost;
+        if(inherit) {
+            reExpansions++;
+        }
 
-        int currentDepth = 0;
-        return null;
+        MoveUndo undo = undoStack[depth];
+        int count = 0;
+        for(char direction : DIRECTIONS) {
+            if(!workingGrid.applyMove(direction, undo)) {
+                continue;
+            }
+            if(workingGrid.checkGoal()) {
+                workingGrid.undoMove(undo);
+                childMoves[depth][0] = direction;
+                chosenChild[depth] = 0;
+                return depth + 1;
+            }
+            stats.lap(SearchStats.Phase.SUCCESSORS);
+            long childKey = workingGrid.getStateKey();
+            if(pathStates.contains(childKey)) {
+                stats.countDuplicate();  // a swipe back to a grid on the path
+                excludedDepths[depth] = Math.min(excludedDepths[depth], pathDepth(childKey, depth));
+            } else if(!pruning.isDead(workingGrid)) {
+                stats.lap(SearchStats.Phase.LISTS);
+                heuristic.evaluate(workingGrid);
+                double childCost = cost(workingGrid);
+                stats.lap(SearchStats.Phase.HEURISTIC);
+                double knownCost = Math.max(childCost, childCost + lookupForgotten(childKey));
+                stats.countGenerated();
+                childMoves[depth][count] = direction;
+                childStaticCosts[depth][count] = childCost;
+                childCosts[depth][count] = inherit ? Math.max(knownCost, backedUpCost) : knownCost;
+                count++;
+            }
+            workingGrid.undoMove(undo);
+            stats.lap(SearchStats.Phase.LISTS);
+        }
+        numChildren[depth] = count;
+        return -1;
+    }
+
+    /**
+     * Helper function to find the child with the lowest backed-up cost
+     * @param depth the frame to search
+     * @return the index of the best child, the first one among ties, or -1 if the frame has no children
+     */
+    private int bestChild(int depth) {
+        int best = -1;
+        for(int i = 0; i < numChildren[depth]; i++) {
+            if(best < 0 || childCosts[depth][i] < childCosts[depth][best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Helper function to find the lowest backed-up cost among the children other than the best
+     * @param depth the frame to search
+     * @param best the index of the best child
+     * @return the cost of the best alternative, or UNBOUNDED if there is none
+     */
+    private double secondBestCost(int depth, int best) {
+        double second = UNBOUNDED;
+        for(int i = 0; i < numChildren[depth]; i++) {
+            if(i != best && childCosts[depth][i] < second) {
+                second = childCosts[depth][i];
+            }
+        }
+        return second;
+    }
+
+    /**
+     * Helper function to find where a grid is on the current path
+     * @param stateKey the state key of a grid on the path
+     * @param depth the deepest frame to search from
+     * @return the depth of the grid, searched from the bottom since a swipe usually leads back only a few moves
+     */
+    private int pathDepth(long stateKey, int depth) {
+        while(depth > 0 && frameKeys[depth] != stateKey) {
+            depth--;
+        }
+        return depth;
+    }
+
+    /**
+     * Helper function to remember the backed-up cost of a grid whose subtree is being forgotten
+     * @param stateKey the state key of the grid
+     * @param excess how far the best cost known below the grid is above the grid's own cost
+     */
+    private void rememberForgotten(long stateKey, double excess) {
+        if(forgottenKeys == null) {
+            allocateCache(Math.min(INITIAL_CACHE_SIZE, maxCacheSize));
+        } else if(numRemembered > forgottenKeys.length && forgottenKeys.length < maxCacheSize) {
+            growCache();
+        }
+        numRemembered++;
+        int slot = cacheSlot(stateKey);
+        forgottenKeys[slot] = stateKey;
+        forgottenExcesses[slot] = excess;
+    }
+
+    /**
+     * Helper function to look up the backed-up cost of a forgotten grid
+     * @param stateKey the state key of the grid
+     * @return how far the remembered cost is above the grid's own cost, or negative infinity if the grid has not been
+     * forgotten or was evicted
+     */
+    private double lookupForgotten(long stateKey) {
+        if(forgottenKeys == null) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        int slot = cacheSlot(stateKey);
+        return forgottenKeys[slot] == stateKey ? forgottenExcesses[slot] : Double.NEGATIVE_INFINITY;
+    }
 
+    /**
+     * Helper function to find the cache slot of a state key
+     * @param stateKey the state key
+     * @return the index of the slot the key maps to
+     */
+    private int cacheSlot(long stateKey) {
+        long hash = stateKey * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & cacheMask;
     }
 
+    /**
+     * Helper function to allocate an empty cache of forgotten costs
+     * @param size the number of slots, a power of two
+     */
+    private void allocateCache(int size) {
+        forgottenKeys = new long[size];
+        forgottenExcesses = new double[size];
+        Arrays.fill(forgottenExcesses, Double.NEGATIVE_INFINITY);  // so an empty slot never matches the key 0
+        cacheMask = size - 1;
+        numRemembered = 0;
+    }
+
+    /**
+     * Helper function to double the cache once more costs have been stored than it has slots, keeping what it holds
+     */
+    private void growCache() {
+        long[] oldKeys = forgottenKeys;
+        double[] oldExcesses = forgottenExcesses;
+        allocateCache(oldKeys.length * 2);
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldExcesses[i] != Double.NEGATIVE_INFINITY) {
+                int slot = cacheSlot(oldKeys[i]);
+                forgottenKeys[slot] = oldKeys[i];
+                forgottenExcesses[slot] = oldExcesses[i];
+            }
+        }
+    }
+
+    /**
+     * Converts a grid's f(n) into a cost where lower is better, as RBFS requires
+     * @param puzzleGrid a scored grid
+     * @return the cost of the grid
+     */
+    private double cost(PuzzleGrid puzzleGrid) {
+        return negateScores ? -puzzleGrid.getF() : puzzleGrid.getF();
+    }
+
+    /**
+     * Helper function to grow the per-depth frames, keeping the ones already on the path
+     * @param length the number of frames to make room for
+     */
+    private void allocateFrames(int length) {
+        int oldLength = undoStack.length;
+        undoStack = Arrays.copyOf(undoStack, length);
+        childMoves = Arrays.copyOf(childMoves, length);
+        childCosts = Arrays.copyOf(childCosts, length);
+        childStaticCosts = Arrays.copyOf(childStaticCosts, length);
+        numChildren = Arrays.copyOf(numChildren, length);
+        chosenChild = Arrays.copyOf(chosenChild, length);
+        costLimits = Arrays.copyOf(costLimits, length);
+        frameKeys = Arrays.copyOf(frameKeys, length);
+        frameCosts = Arrays.copyOf(frameCosts, length);
+        excludedDepths = Arrays.copyOf(excludedDepths, length);
+        for(int depth = oldLength; depth < length; depth++) {
+            undoStack[depth] = new MoveUndo();
+            childMoves[depth] = new char[DIRECTIONS.length];
+            childCosts[depth] = new double[DIRECTIONS.length];
+            childStaticCosts[depth] = new double[DIRECTIONS.length];
+        }
+    }
+
+    /**
+     * Getter for the number of grids expanded by the last solve
+     * @return the number of expansions, counting re-expansions
+     */
+    public long getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * Getter for how often the last solve regenerated a subtree it had forgotten
+     * @return the number of re-expansions
+     */
+    public long getReExpansions() {
+        return reExpansions;
+    }
 }
@@ -0,0 +1,462 @@
+import java.util.*;
+
+/**
+ * PuzzleSolver that utilizes simplified memory-bounded A* (SMA*) to solve the 2048 puzzle
+ * Behaves like A* with AStarHeuristicAdmissible until the search tree holds its node budget; after that, adding a
+ * grid first forgets the leaf with the worst f(n), remembering its f(n) in the parent so the leaf can be regenerated
+ * if everything else turns out worse
+ * The solution has the minimum number of swipes whenever the optimal path fits in the budget
+ */
+public class PuzzleSolverSMAStar extends PuzzleSolver {
+
+    // directions in the order each grid's successors are generated
+    private static final char[] DIRECTIONS = {'U', 'D', 'L', 'R'};
+
+    // rough heap cost of one node: the node, its grid and move history, its entries in the sets, and its slots in the
+    // state map and node table
+    private static final long ESTIMATED_BYTES_PER_NODE = 440;
+
+    private static final int NO_NODE = -1;
+
+    private static final double UNBOUNDED = Double.POSITIVE_INFINITY;
+
+    /**
+     * What a node knows about the successor in one direction
+     */
+    private enum SlotState {
+        UNTRIED,  // not generated yet
+        INVALID,  // the swipe doesn't change the grid
+        DUPLICATE,  // the successor's state is already in the tree with no more swipes, which stands in for it
+        DEAD,  // the successor can never reach the goal, as found by the pruning stage
+        IN_MEMORY,  // the successor is in the search tree
+        FORGOTTEN  // the successor was generated and later dropped; its f(n) is kept in forgottenF
+    }
+
+    /**
+     * Node of the search tree: a grid, its backed-up f(n), and the state of each of its successors
+     */
+    private static class Node {
+        final PuzzleGrid grid;
+        final Node parent;
+        final int parentSlot;  // direction index of this node in its parent
+        final long id;  // creation order, to keep the orderings total and deterministic
+        int index;  // slot of the node in the node table while it is in memory
+        final boolean goal;
+        double f;  // lower bound on the cost of a solution through this node, raised as successors are explored
+        final SlotState[] slots = {SlotState.UNTRIED, SlotState.UNTRIED, SlotState.UNTRIED, SlotState.UNTRIED};
+        final Node[] children = new Node[DIRECTIONS.length];
+        final double[] forgottenF = new double[DIRECTIONS.length];
+        int childrenInMemory;
+        boolean inOpen;
+        boolean inLeaves;
+
+        /**
+         * Constructor to create a node for a grid
+         * @param grid the grid, already moved from its parent's grid
+         * @param parent the node it was generated from, or null for the root
+         * @param parentSlot the direction index of the grid in its parent
+         * @param id the creation order of the node
+         * @param f the initial lower bound on the cost of a solution through the grid
+         */
+        Node(PuzzleGrid grid, Node parent, int parentSlot, long id, double f) {
+            this.grid = grid;
+            this.parent = parent;
+            this.parentSlot = parentSlot;
+            this.id = id;
+            this.goal = grid.checkGoal();
+            this.f = f;
+        }
+
+        /**
+         * Checks whether the node can still generate a successor
+         * @return true if some successor is untried or forgotten
+         */
+        boolean hasSuccessorToGenerate() {
+            for(SlotState slot : slots) {
+                if(slot == SlotState.UNTRIED || slot == SlotState.FORGOTTEN) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // best node first: lowest f(n), then deepest, then oldest
+    private static final Comparator<Node> OPEN_ORDER = (node1, node2) -> {
+        int cmp = Double.compare(node1.f, node2.f);
+        if(cmp == 0) {
+            cmp = Integer.compare(node2.grid.getDepth(), node1.grid.getDepth());
+        }
+        return cmp != 0 ? cmp : Long.compare(node1.id, node2.id);
+    };
+
+    // worst leaf first: highest f(n), then shallowest, then oldest
+    private static final Comparator<Node> FORGET_ORDER = (node1, node2) -> {
+        int cmp = Double.compare(node2.f, node1.f);
+        if(cmp == 0) {
+            cmp = Integer.compare(node1.grid.getDepth(), node2.grid.getDepth());
+        }
+        return cmp != 0 ? cmp : Long.compare(node1.id, node2.id);
+    };
+
+    private Heuristic heuristic;
+    private int maxNodes;  // node budget of the search tree
+
+    private TreeSet<Node> open;  // nodes that are goals or can still generate a successor
+    private TreeSet<Node> leaves;  // nodes without successors in memory, candidates to forget
+    private LongIntHashMap statesInMemory;  // index of the node with the fewest swipes for each state in the tree
+    private Node[] nodeTable;  // nodes in memory by index
+    private int[] freeIndexes;  // indexes of forgotten nodes, to be reused before the table grows
+    private int numFreeIndexes;
+    private int nodesInMemory;
+    private long nextId;
+    private long forgottenNodes;  // number of nodes dropped to stay within the budget
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using SMA* with a fixed node budget
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param maxNodes the largest number of grids the search tree may hold, at least 2
+     */
+    public PuzzleSolverSMAStar(int[][] initialGrid, int goalTile, int[] spawnPool, int maxNodes) {
+        super(initialGrid, goalTile, spawnPool);
+        if(maxNodes < 2) {
+            throw new Error("SMA* needs room for at least 2 nodes");
+        }
+        this.heuristic = new AStarHeuristicAdmissible();
+        stats.setHeuristic(heuristic);
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Constructor to create a PuzzleSolver for the 2048 puzzle using SMA* with a budget sized from the heap
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param heapFraction the fraction (between 0 and 1) of the maximum heap size the search tree may use
+     */
+    public PuzzleSolverSMAStar(int[][] initialGrid, int goalTile, int[] spawnPool, double heapFraction) {
+        this(initialGrid, goalTile, spawnPool, nodesForHeapFraction(heapFraction));
+    }
+
+    /**
+     * Converts a fraction of the maximum heap size into a node budget
+     * @param heapFraction the fraction (between 0 and 1) of the maximum heap size to use
+     * @return the estimated number of nodes that fit
+     */
+    public static int nodesForHeapFraction(double heapFraction) {
+        if(!(heapFraction > 0 && heapFraction <= 1)) {
+            throw new Error("Expected the heap fraction to be between 0 and 1");
+        }
+        long bytes = (long) (Runtime.getRuntime().maxMemory() * heapFraction);
+        return (int) Math.max(2, Math.min(Integer.MAX_VALUE, bytes / ESTIMATED_BYTES_PER_NODE));
+    }
+
+    /**
+     * Attempts to find a solution to the 2048 puzzle using SMA* search
+     * @return the PuzzleGrid that achieved the goal tile with the minimum number of swipes, or null if no
+     * solution exists or none fits within the node budget
+     */
+    @Override
+    protected PuzzleGrid search() {
+        open = new TreeSet<>(OPEN_ORDER);
+        leaves = new TreeSet<>(FORGET_ORDER);
+        statesInMemory = new LongIntHashMap(Math.min(maxNodes, 1 << 16));
+        nodeTable = new Node[Math.min(maxNodes + 1, 1 << 16)];  // the budget may be exceeded by one
+        freeIndexes = new int[16];
+        numFreeIndexes = 0;
+        nodesInMemory = 0;
+        nextId = 0;
+        forgottenNodes = 0;
+
+        heuristic.evaluate(puzzleGrid);
+        Node root = new Node(puzzleGrid, null, -1, nextId++, puzzleGrid.getF());
+        addToMemory(root);
+        addToOpen(root);
+        addToLeaves(root);
+
+        while(!open.isEmpty()) {
+            stats.beginIteration();
+            Node best = open.first();
+            stats.lap(SearchStats.Phase.LISTS);
+            if(best.f == UNBOUNDED) {
+                break;  // everything left either can't reach the goal or doesn't fit in the budget
+            }
+            if(best.goal) {
+                if(logging) {
+                    System.out.println("SMA* forgot " + forgottenNodes + " nodes");
+                }
+                return best.grid;
+            }
+
+            int slot = nextSlot(best);
+            Node child = null;
+            if(slot >= 0) {
+                stats.countExpanded();  // SMA* generates one successor per step
+                child = generate(best, slot);
+            }
+            if(child != null) {
+                stats.countGenerated();
+                if(nodesInMemory >= maxNodes) {
+                    forgetWorstLeaf(best);
+                }
+                best.slots[slot] = SlotState.IN_MEMORY;
+                best.children[slot] = child;
+                best.childrenInMemory++;
+                addToMemory(child);
+                removeFromLeaves(best);
+                addToLeaves(child);
+                addToOpen(child);
+            }
+            if(!best.hasSuccessorToGenerate()) {
+                removeFromOpen(best);  // stays out until one of its successors is forgotten
+            }
+            backUp(best);
+            stats.lap(SearchStats.Phase.LISTS);
+            stats.recordSizes(open.size(), nodesInMemory);
+        }
+
+        return null;  // game over; no solution exists within the budget
+    }
+
+    /**
+     * Helper function to pick the next successor of a node to generate
+     * Untried successors come first, in direction order; after that, the forgotten successor with the lowest f(n)
+     * Marks untried swipes that don't change the grid as invalid along the way
+     * @param node the node to expand
+     * @return the direction index of the successor, or -1 if there is none left
+     */
+    private int nextSlot(Node node) {
+        for(int slot = 0; slot < DIRECTIONS.length; slot++) {
+            if(node.slots[slot] == SlotState.UNTRIED) {
+                return slot;
+            }
+        }
+        int best = -1;
+        for(int slot = 0; slot < DIRECTIONS.length; slot++) {
+            if(node.slots[slot] == SlotState.FORGOTTEN && (best < 0 || node.forgottenF[slot] < node.forgottenF[best])) {
+                best = slot;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Generates the successor of a node in one direction
+     * Its f(n) is never below its parent's, nor below what was learned before it was last forgotten, and it is
+     * unbounded if the node budget can't hold a path any deeper
+     * @param parent the node to generate from
+     * @param slot the direction index of the successor
+     * @return the new node, or null if the swipe doesn't change the grid, reaches a state already in the tree
+     * with no more swipes, or reaches a dead state (the slot is then marked invalid, duplicate, or dead)
+     */
+    private Node generate(Node parent, int slot) {
+        PuzzleGrid childGrid = new PuzzleGrid(parent.grid);
+        boolean moved = childGrid.move(DIRECTIONS[slot]);
+        stats.lap(SearchStats.Phase.SUCCESSORS);
+        if(!moved) {
+            parent.slots[slot] = SlotState.INVALID;
+            return null;
+        }
+        // the existing node stays reachable from the root even if it is forgotten later, so this copy can't do better
+        int existing = statesInMemory.get(childGrid.getStateKey(), NO_NODE);
+        stats.lap(SearchStats.Phase.LISTS);
+        if(existing != NO_NODE && nodeTable[existing].grid.getDepth() <= childGrid.getDepth()) {
+            parent.slots[slot] = SlotState.DUPLICATE;
+            stats.countDuplicate();
+            return null;
+        }
+        if(pruning.isDead(childGrid)) {
+            parent.slots[slot] = SlotState.DEAD;
+            return null;
+        }
+
+        double f;
+        if(childGrid.checkGoal()) {
+            f = childGrid.getDepth();  // the cost of a goal is exact
+        } else if(childGrid.getDepth() >= maxNodes - 1) {
+            f = UNBOUNDED;  // the path to any deeper goal can't fit in memory
+        } else {
+            heuristic.evaluate(childGrid);
+            f = Math.max(parent.f, childGrid.getF());
+            stats.lap(SearchStats.Phase.HEURISTIC);
+        }
+        if(parent.slots[slot] == SlotState.FORGOTTEN) {
+            f = Math.max(f, parent.forgottenF[slot]);
+        }
+        return new Node(childGrid, parent, slot, nextId++, f);
+    }
+
+    /**
+     * Drops the leaf with the worst f(n), remembering its f(n) in its parent
+     * @param keep the node being expanded, which must stay in memory
+     */
+    private void forgetWorstLeaf(Node keep) {
+        Node victim = null;
+        for(Node leaf : leaves) {
+            if(leaf != keep && leaf.parent != null) {
+                victim = leaf;
+                break;
+            }
+        }
+        if(victim == null) {
+            return;  // only the root and the node being expanded are left; the budget is exceeded by one
+        }
+
+        removeFromLeaves(victim);
+        removeFromOpen(victim);
+        removeFromMemory(victim);
+        forgottenNodes++;
+
+        Node parent = victim.parent;
+        parent.slots[victim.parentSlot] = SlotState.FORGOTTEN;
+        parent.children[victim.parentSlot] = null;
+        parent.forgottenF[victim.parentSlot] = victim.f;
+        parent.childrenInMemory--;
+        if(parent.childrenInMemory == 0) {
+            addToLeaves(parent);
+        }
+        addToOpen(parent);  // the parent can regenerate the forgotten successor
+    }
+
+    /**
+     * Helper function to give a node a slot in the node table and make it the node for its state
+     * Replaces a deeper node of the same state in the state map; that node stays in the tree until it is forgotten
+     * @param node the node entering the search tree
+     */
+    private void addToMemory(Node node) {
+        if(numFreeIndexes > 0) {
+            node.index = freeIndexes[--numFreeIndexes];
+        } else {
+            if(nodesInMemory == nodeTable.length) {
+                nodeTable = Arrays.copyOf(nodeTable, (int) Math.min((long) maxNodes + 1, 2L * nodeTable.length));
+            }
+            node.index = nodesInMemory;
+        }
+        nodeTable[node.index] = node;
+        statesInMemory.put(node.grid.getStateKey(), node.index);
+        nodesInMemory++;
+    }
+
+    /**
+     * Helper function to free a forgotten node's slot in the node table, and its state unless a shallower node of the
+     * same state has replaced it in the state map
+     * @param node the node leaving the search tree
+     */
+    private void removeFromMemory(Node node) {
+        long stateKey = node.grid.getStateKey();
+        if(statesInMemory.get(stateKey, NO_NODE) == node.index) {
+            statesInMemory.remove(stateKey);
+        }
+        nodeTable[node.index] = null;
+        if(numFreeIndexes == freeIndexes.length) {
+            freeIndexes = Arrays.copyOf(freeIndexes, freeIndexes.length * 2);
+        }
+        freeIndexes[numFreeIndexes++] = node.index;
+        nodesInMemory--;
+    }
+
+    /**
+     * Raises f(n) of a fully generated node to the lowest f(n) among its successors, and repeats up the tree
+     * @param node the node whose successors changed
+     */
+    private void backUp(Node node) {
+        while(node != null) {
+            double lowest = UNBOUNDED;
+            for(int slot = 0; slot < DIRECTIONS.length; slot++) {
+                if(node.slots[slot] == SlotState.UNTRIED) {
+                    return;  // not every successor has been seen, so f(n) stays an estimate
+                } else if(node.slots[slot] == SlotState.IN_MEMORY) {
+                    lowest = Math.min(lowest, node.children[slot].f);
+                } else if(node.slots[slot] == SlotState.FORGOTTEN) {
+                    lowest = Math.min(lowest, node.forgottenF[slot]);
+                }
+            }
+            if(lowest == node.f) {
+                return;
+            }
+            setF(node, lowest);
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Helper function to change a node's f(n), keeping it in order in the sets that contain it
+     * @param node the node to update
+     * @param f the new f(n)
+     */
+    private void setF(Node node, double f) {
+        boolean wasOpen = node.inOpen;
+        boolean wasLeaf = node.inLeaves;
+        removeFromOpen(node);
+        removeFromLeaves(node);
+        node.f = f;
+        if(wasOpen) {
+            addToOpen(node);
+        }
+        if(wasLeaf) {
+            addToLeaves(node);
+        }
+    }
+
+    /**
+     * Helper function to add a node to the open set if it isn't there already
+     * @param node the node to add
+     */
+    private void addToOpen(Node node) {
+        if(!node.inOpen) {
+            open.add(node);
+            node.inOpen = true;
+        }
+    }
+
+    /**
+     * Helper function to remove a node from the open set if it is there
+     * @param node the node to remove
+     */
+    private void removeFromOpen(Node node) {
+        if(node.inOpen) {
+            open.remove(node);
+            node.inOpen = false;
+        }
+    }
+
+    /**
+     * Helper function to add a node to the set of leaves if it isn't there already
+     * @param node the node to add
+     */
+    private void addToLeaves(Node node) {
+        if(!node.inLeaves) {
+            leaves.add(node);
+            node.inLeaves = true;
+        }
+    }
+
+    /**
+     * Helper function to remove a node from the set of leaves if it is there
+     * @param node the node to remove
+     */
+    private void removeFromLeaves(Node node) {
+        if(node.inLeaves) {
+            leaves.remove(node);
+            node.inLeaves = false;
+        }
+    }
+
+    /**
+     * Getter for the node budget
+     * @return the largest number of grids the search tree may hold
+     */
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Getter for how many nodes the last solve dropped to stay within the budget
+     * @return the number of forgotten nodes
+     */
+    public long getForgottenNodes() {
+        return forgottenNodes;
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Immutable description of a single 2048 puzzle that is shared by every PuzzleGrid generated while solving it
+ * Holds the board dimensions, goal tile, spawn pool, tile dictionary, and the layout of the packed board encoding
+ */
+public class PuzzleSpec {
+
+    private final int numRows;
+    private final int numCols;
+    private final int goalTile;
+    private final int goalCode;  // code of the goal tile, or -1 if the goal tile can never appear
+    private final int[] spawnPool;
+    private final int[] spawnCodes;
+    private final int[] cornerCells;  // top left, top right, bottom right, bottom left
+    private final TileCodec codec;
+    private final MoveTables moveTables;
+    private final MoveEngine moveEngine;  // null to slide the lines the tables cannot hold cell by cell
+    private final ZobristTable zobristTable;
+
+    // packed board layout: cells are stored row-major, a fixed number of codes per 64-bit word,
+    // and a code never straddles two words
+    private final int bitsPerCell;
+    private final long cellMask;
+    private final int wordCount;
+    private final int[] cellWord;
+    private final int[] cellShift;
+
+    /**
+     * Constructor to describe a puzzle
+     * @param initialGrid a 2D matrix representing the grid
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    public PuzzleSpec(int[][] initialGrid, int goalTile, int[] spawnPool) {
+        this.numRows = initialGrid.length;
+        this.numCols = initialGrid[0].length;
+        this.goalTile = goalTile;
+        this.spawnPool = spawnPool.clone();
+        this.codec = new TileCodec(initialGrid, spawnPool);
+        this.goalCode = codec.encode(goalTile);
+
+        this.spawnCodes = new int[spawnPool.length];
+        for(int i = 0; i < spawnPool.length; i++) {
+            spawnCodes[i] = codec.encode(spawnPool[i]);
+        }
+
+        this.cornerCells = new int[] {0, numCols - 1, numRows * numCols - 1, (numRows - 1) * numCols};
+
+        this.bitsPerCell = codec.getBitsPerCell();
+        this.cellMask = (1L << bitsPerCell) - 1;
+        int cellsPerWord = 64 / bitsPerCell;
+        int numCells = numRows * numCols;
+        this.wordCount = (numCells + cellsPerWord - 1) / cellsPerWord;
+
+        // precompute where every cell lives so lookups avoid division
+        this.cellWord = new int[numCells];
+        this.cellShift = new int[numCells];
+        for(int cell = 0; cell < numCells; cell++) {
+            cellWord[cell] = cell / cellsPerWord;
+            cellShift[cell] = (cell % cellsPerWord) * bitsPerCell;
+        }
+
+        this.moveTables = new MoveTables(numRows, numCols, codec);
+        this.moveEngine = MoveEngine.forPuzzle(codec);
+        this.zobristTable = new ZobristTable(numCells, codec.getNumCodes(), spawnPool.length);
+    }
+
+    /**
+     * Getter for the number of rows
+     * @return the height of the grid
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Getter for the number of columns
+     * @return the width of the grid
+     */
+    public int getNumCols() {
+        return numCols;
+    }
+
+    /**
+     * Getter for the number of cells
+     * @return the number of tiles the grid can hold
+     */
+    public int getNumCells() {
+        return numRows * numCols;
+    }
+
+    /**
+     * Getter for the goal tile
+     * @return the number of the goal tile
+     */
+    public int getGoalTile() {
+        return goalTile;
+    }
+
+    /**
+     * Getter for the code of the goal tile
+     * @return the code of the goal tile, or -1 if the goal tile can never appear in the grid
+     */
+    public int getGoalCode() {
+        return goalCode;
+    }
+
+    /**
+     * Getter for the spawn pool
+     * @return list of tile numbers that spawn at the corners in order
+     */
+    public int[] getSpawnPool() {
+        return spawnPool;
+    }
+
+    /**
+     * Getter for the code of a tile in the spawn pool
+     * @param index the position in the spawn pool
+     * @return the code of the tile that spawns at that position
+     */
+    public int getSpawnCode(int index) {
+        return spawnCodes[index];
+    }
+
+    /**
+     * Getter for the cell index of a corner
+     * @param corner 0 for top left, 1 for top right, 2 for bottom right, or 3 for bottom left
+     * @return the row-major index of the corner cell
+     */
+    public int getCornerCell(int corner) {
+        return cornerCells[corner];
+    }
+
+    /**
+     * Getter for the tile dictionary
+     * @return the TileCodec shared by every grid of this puzzle
+     */
+    public TileCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Getter for the row and column transition tables
+     * @return the MoveTables shared by every grid of this puzzle
+     */
+    public MoveTables getMoveTables() {
+        return moveTables;
+    }
+
+    /**
+     * Getter for the engine that slides the lines too long for the transition tables
+     * @return the MoveEngine selected with --moves, or null to slide those lines cell by cell
+     */
+    public MoveEngine getMoveEngine() {
+        return moveEngine;
+    }
+
+    /**
+     * Getter for the Zobrist keys
+     * @return the ZobristTable shared by every grid of this puzzle
+     */
+    public ZobristTable getZobristTable() {
+        return zobristTable;
+    }
+
+    /**
+     * Getter for the number of bits used by each cell in a packed board
+     * @return bits per cell
+     */
+    public int getBitsPerCell() {
+        return bitsPerCell;
+    }
+
+    /**
+     * Getter for the mask that extracts one cell from a word
+     * @return a mask with the lowest bitsPerCell bits set
+     */
+    public long getCellMask() {
+        return cellMask;
+    }
+
+    /**
+     * Getter for the number of 64-bit words in a packed board
+     * @return the number of words needed to store every cell
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Finds the word that holds a cell
+     * @param cell the row-major index of the cell
+     * @return the index of the word containing the cell
+     */
+    public int getCellWord(int cell) {
+        return cellWord[cell];
+    }
+
+    /**
+     * Finds the bit offset of a cell within its word
+     * @param cell the row-major index of the cell
+     * @return the number of bits to shift the word right by to reach the cell
+     */
+    public int getCellShift(int cell) {
+        return cellShift[cell];
+    }
+}
@@ -1,11 +1,53 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
 /**
  * Test suite for using debug mode on the PuzzleSolver
  * Logs intermediate steps in reaching a solution
+ * With --check and a list of puzzle files, instead runs these checks on each puzzle and prints a PASS, FAIL, or SKIP
+ * line per case, exiting with status 1 if any case failed:
+ * - every solver's solution is replayed move by move and must reach the goal, and a complete solver that finds no
+ *   solution fails if another solver found one; a solve that runs past the time limit is skipped
+ * - the solvers that always find a shortest solution must all find one of the same length
+ * - HDA* with the admissible heuristic finds a solution as short as A*'s on several threads, solve after solve
+ * - boards packed by TileCodec and PuzzleSpec unpack to the same tiles
+ * - swipes through the MoveTables match swipes cell by cell with PuzzleGrid.slideLine
+ * - A* and greedy searches resumed from a checkpoint find the same solution as an uninterrupted search
+ * - a solution stored in a SolutionCache is found again by a cache that opens the file afresh
+ * - storeState, storeCounts and loadState, as the NodeArena uses them, round-trip a board and its tile statistics
  */
 public class PuzzleTester {
 
+    // every --solver, with the heuristics worth telling apart; the others ignore the heuristic
+    private static final String[][] SOLVERS = {
+            {"astar", "0"}, {"astar", "1"}, {"greedy", "0"}, {"hda", "0"}, {"hda", "1"}, {"bfs", "0"}, {"id", "0"},
+            {"ida", "0"}, {"rbfs", "0"}, {"rbfs", "1"}, {"sma", "0"}, {"beam", "0"}, {"beam", "1"}, {"external", "0"}
+    };
+    private static final Set<String> INCOMPLETE_SOLVERS = Set.of("beam");  // may miss a solution that exists
+    // solver/heuristic cases that always find a shortest solution, so must agree on its length
+    private static final Set<String> SHORTEST_SOLVERS = Set.of(
+            "astar/1", "hda/1", "bfs/0", "id/0", "ida/0", "rbfs/1", "sma/0", "external/0");
+    private static final int SOLVE_SECONDS = 5;  // a solve running longer is skipped
+    private static final int[] HDA_THREADS = {2, 4, 8};  // thread counts of the parallel HDA* check
+    private static final int HDA_REPEATS = 3;  // solves per thread count, since a race shows up only now and then
+    private static final int RANDOM_BOARDS = 200;  // random boards per puzzle for the board checks
+    private static final char[] DIRECTIONS = {'U', 'D', 'L', 'R'};
+
+    private static int passed = 0;
+    private static int failed = 0;
+    private static int skipped = 0;
+
     public static void main(String[] args) {
 
+        if(args.length > 0 && args[0].equals("--check")) {
+            runChecks(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         InputScanner input = new InputScanner();
         input.read();
         int[][] initialGrid = input.getInitialGrid();
@@ -14,13 +56,13 @@ public class PuzzleTester {
 
         PuzzleSolver puzzleSolver = new PuzzleSolverAStar(initialGrid, goalTile, spawnPool, HeuristicType.NONADMISSIBLE, false);
         PuzzleGrid solution = puzzleSolver.solve();
-        System.out.println("\nSolution from A*: Completed in " + solution.getMoves().size() + " moves");
+        System.out.println("\nSolution from A*: Completed in " + solution.getDepth() + " moves");
         solution.print();
 
         System.out.println("---- Steps: ----");
 
         PuzzleGrid testGrid = new PuzzleGrid(initialGrid, goalTile, spawnPool, false);
-        for(Character move : solution.getMoves()) {
+        for(char move : solution.getMoveString().toCharArray()) {
             System.out.println("\nMoving " + move);
             testGrid.move(move);
         }
@@ -29,4 +71,442 @@ public class PuzzleTester {
 
     }
 
+    /**
+     * Runs every check on every puzzle and reports the totals
+     * @param files the puzzle input files
+     */
+    private static void runChecks(String[] files) {
+        for(String file : files) {
+            InputScanner input = new InputScanner();
+            try(InputStream source = new FileInputStream(file)) {
+                input.read(source);
+            } catch(IOException e) {
+                throw new Error("Could not read " + file, e);
+            }
+            int[][] initialGrid = input.getInitialGrid();
+            int goalTile = input.getGoalTile();
+            int[] spawnPool = input.getSpawnPool();
+
+            checkSolvers(file, initialGrid, goalTile, spawnPool);
+            checkParallelHDAStar(file, initialGrid, goalTile, spawnPool);
+            checkPacking(file, initialGrid, goalTile, spawnPool);
+            checkMoveTables(file, initialGrid, goalTile, spawnPool);
+            checkResume(file, initialGrid, goalTile, spawnPool);
+            checkCacheReload(file, initialGrid, goalTile, spawnPool);
+            checkArenaState(file, initialGrid, goalTile, spawnPool);
+        }
+        System.out.println(passed + " passed, " + failed + " failed, " + skipped + " skipped");
+        if(failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Solves a puzzle with every solver and replays each solution on a fresh grid
+     * The lengths found by the SHORTEST_SOLVERS are compared once every solver has run, since a bound cut too low or a
+     * transposition table that keeps a grid's worse depth shows up as a longer solution than the others find
+     * @param file the name of the puzzle, for the report
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    private static void checkSolvers(String file, int[][] initialGrid, int goalTile, int[] spawnPool) {
+        boolean solvable = false;
+        List<String> unsolved = new ArrayList<>();  // cases of complete solvers that finished without a solution
+        Map<String, Integer> shortestLengths = new TreeMap<>();  // solution lengths of the SHORTEST_SOLVERS
+        for(String[] solver : SOLVERS) {
+            String name = "solve " + file + " " + solver[0] + "/" + solver[1];
+            SolverOptions options = new SolverOptions(new String[] {solver[1], "--solver=" + solver[0]});
+            PuzzleSolver puzzleSolver = options.createSolver(initialGrid, goalTile, spawnPool);
+            PuzzleGrid solution;
+            try {
+                solution = solveWithTimeLimit(puzzleSolver);
+            } catch(OutOfMemoryError e) {
+                report(name, null, "out of memory");
+                continue;
+            }
+            if(puzzleSolver.isCancelled()) {
+                report(name, null, "over " + SOLVE_SECONDS + " s");
+            } else if(solution == null) {
+                if(INCOMPLETE_SOLVERS.contains(solver[0])) {
+                    report(name, true, "no solution");
+                } else {
+                    unsolved.add(name);  // reported once every solver has run
+                }
+            } else {
+                solvable = true;
+                String moves = solution.getMoveString();
+                PuzzleGrid replayed = SolutionCache.replay(new PuzzleGrid(initialGrid, goalTile, spawnPool), moves);
+                report(name, replayed != null && solution.getDepth() == moves.length() &&
+                        Arrays.deepEquals(replayed.getGrid(), solution.getGrid()), moves.length() + " moves");
+                if(SHORTEST_SOLVERS.contains(solver[0] + "/" + solver[1])) {
+                    shortestLengths.put(solver[0] + "/" + solver[1], moves.length());
+                }
+            }
+        }
+        for(String name : unsolved) {
+            report(name, !solvable, solvable ? "no solution, but another solver found one" : "no solution");
+        }
+        if(shortestLengths.size() < 2) {
+            report("shortest " + file, null, "fewer than two shortest solutions");
+        } else {
+            boolean agree = new HashSet<>(shortestLengths.values()).size() == 1;
+            report("shortest " + file, agree, agree ? shortestLengths.values().iterator().next() + " moves from " +
+                    shortestLengths.size() + " solvers" : "lengths " + shortestLengths);
+        }
+    }
+
+    /**
+     * Solves a puzzle with A* and then repeatedly with HDA* on several threads, both with the admissible heuristic, and
+     * compares the numbers of swipes; the workers find solutions in an order that changes from run to run, so a
+     * longer solution overwriting a shorter one shows up here even on a machine with few cores
+     * @param file the name of the puzzle, for the report
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    private static void checkParallelHDAStar(String file, int[][] initialGrid, int goalTile, int[] spawnPool) {
+        String name = "parallel " + file + " hda/1";
+        PuzzleSolver aStar = new SolverOptions(new String[] {"1", "--solver=astar"}).createSolver(initialGrid,
+                goalTile, spawnPool);
+        PuzzleGrid expected = solveWithTimeLimit(aStar);
+        if(aStar.isCancelled() || expected == null) {
+            report(name, null, aStar.isCancelled() ? "A* over " + SOLVE_SECONDS + " s" : "no solution");
+            return;
+        }
+        for(int numThreads : HDA_THREADS) {
+            for(int i = 0; i < HDA_REPEATS; i++) {
+                PuzzleSolver hdaStar = new SolverOptions(new String[] {"1", "--solver=hda", "--threads=" + numThreads})
+                        .createSolver(initialGrid, goalTile, spawnPool);
+                PuzzleGrid solution = solveWithTimeLimit(hdaStar);
+                if(hdaStar.isCancelled()) {
+                    report(name, null, "over " + SOLVE_SECONDS + " s on " + numThreads + " threads");
+                    return;
+                }
+                if(solution == null || solution.getDepth() != expected.getDepth()) {
+                    report(name, false, (solution == null ? "no solution" : solution.getDepth() + " moves") +
+                            " on " + numThreads + " threads, but A* found " + expected.getDepth());
+                    return;
+                }
+            }
+        }
+        report(name, true, expected.getDepth() + " moves on " + Arrays.toString(HDA_THREADS) + " threads");
+    }
+
+    /**
+     * Packs the initial board and random boards of a puzzle's tiles and checks that they unpack unchanged
+     * @param file the name of the puzzle, for the report
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    private static void checkPacking(String file, int[][] initialGrid, int goalTile, int[] spawnPool) {
+        PuzzleSpec spec = new PuzzleSpec(initialGrid, goalTile, spawnPool);
+        TileCodec codec = spec.getCodec();
+        boolean codesMatch = true;
+        for(int code = 1; code < codec.getNumCodes(); code++) {
+            codesMatch &= codec.encode(codec.decode(code)) == code;
+        }
+        report("codec " + file, codesMatch, codec.getNumCodes() + " codes");
+
+        Random random = new Random(file.hashCode());
+        boolean roundTrips = true;
+        for(int i = 0; i <= RANDOM_BOARDS && roundTrips; i++) {
+            int[][] board = i == 0 ? initialGrid : randomBoard(random, codec, initialGrid.length, initialGrid[0].length);
+            roundTrips = Arrays.deepEquals(new PuzzleGrid(board, goalTile, spawnPool).getGrid(), board);
+        }
+        report("packing " + file, roundTrips, (RANDOM_BOARDS + 1) + " boards");
+    }
+
+    /**
+     * Swipes the initial board and random boards of a puzzle with the MoveTables and cell by cell and compares them
+     * Cell by cell swipes come from the same boards in a puzzle whose spawn pool also has many odd tiles, which
+     * widens the codes until a line no longer fits a table; the extra tiles come after the puzzle's own in the pool,
+     * so the one tile spawned after the first swipe is the same in both
+     * @param file the name of the puzzle, for the report
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    private static void checkMoveTables(String file, int[][] initialGrid, int goalTile, int[] spawnPool) {
+        int[] widePool = Arrays.copyOf(spawnPool, spawnPool.length + 80);
+        for(int i = 0; i < 80; i++) {
+            widePool[spawnPool.length + i] = 2 * i + 101;
+        }
+        TileCodec codec = new PuzzleSpec(initialGrid, goalTile, spawnPool).getCodec();
+        Random random = new Random(file.hashCode());
+        for(char direction : DIRECTIONS) {
+            String name = "tables " + file + " " + direction;
+            boolean matches = true;
+            int compared = 0;
+            for(int i = 0; i <= RANDOM_BOARDS && matches; i++) {
+                int[][] board = i == 0 ? initialGrid : randomBoard(random, codec, initialGrid.length,
+                        initialGrid[0].length);
+                PuzzleGrid tables = new PuzzleGrid(board, goalTile, spawnPool);
+                PuzzleGrid cells = new PuzzleGrid(board, goalTile, widePool);
+                if(tables.getSpec().getMoveTables().getTable(direction) == null ||
+                        cells.getSpec().getMoveTables().getTable(direction) != null) {
+                    continue;  // the lines are too long for a table, or still short enough for one
+                }
+                matches = tables.move(direction) == cells.move(direction) &&
+                        Arrays.deepEquals(tables.getGrid(), cells.getGrid());
+                compared++;
+            }
+            report(name, compared == 0 ? null : matches, compared == 0 ? "no lines short enough for a table" :
+                    compared + " boards");
+        }
+    }
+
+    /**
+     * Solves a puzzle with A* and greedy search while taking a checkpoint at every expansion, then resumes a new
+     * search from the last checkpoint and compares its solution with an uninterrupted search's
+     * @param file the name of the puzzle, for the report
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    private static void checkResume(String file, int[][] initialGrid, int goalTile, int[] spawnPool) {
+        for(String solver : new String[] {"astar", "greedy"}) {
+            String name = "resume " + file + " " + solver;
+            Path checkpoint = createTempFile("checkpoint");
+            try {
+                PuzzleSolver checkpointed = createCheckpointSolver(solver, initialGrid, goalTile, spawnPool);
+                if(solver.equals("astar")) {
+                    ((PuzzleSolverAStar) checkpointed).enableCheckpoints(checkpoint, 0);
+                } else {
+                    ((PuzzleSolverGrBeFGS) checkpointed).enableCheckpoints(checkpoint, 0);
+                }
+                PuzzleGrid expected = solveWithTimeLimit(checkpointed);
+                if(checkpointed.isCancelled() || Files.size(checkpoint) == 0) {
+                    report(name, null, checkpointed.isCancelled() ? "over " + SOLVE_SECONDS + " s" : "no checkpoint");
+                    continue;
+                }
+
+                PuzzleSolver resumed = createCheckpointSolver(solver, initialGrid, goalTile, spawnPool);
+                if(solver.equals("astar")) {
+                    ((PuzzleSolverAStar) resumed).resume(checkpoint);
+                } else {
+                    ((PuzzleSolverGrBeFGS) resumed).resume(checkpoint);
+                }
+                PuzzleGrid solution = solveWithTimeLimit(resumed);
+                String expectedMoves = expected == null ? null : expected.getMoveString();
+                String moves = solution == null ? null : solution.getMoveString();
+                report(name, !resumed.isCancelled() && Objects.equals(expectedMoves, moves),
+                        moves == null ? "no solution" : moves.length() + " moves");
+            } catch(IOException e) {
+                throw new Error("Could not read checkpoint " + checkpoint, e);
+            } finally {
+                deleteQuietly(checkpoint);
+            }
+        }
+    }
+
+    /**
+     * Solves a puzzle through a solution cache, then opens the cache file again as another run would and looks the
+     * puzzle up
+     * The second cache opens the file through a hard link, since a cache already open for a path is shared
+     * @param file the name of the puzzle, for the report
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    private static void checkCacheReload(String file, int[][] initialGrid, int goalTile, int[] spawnPool) {
+        String name = "cache " + file;
+        Path cacheFile = createTempFile("cache");
+        Path link = cacheFile.resolveSibling(cacheFile.getFileName() + ".link");
+        try {
+            SolverOptions options = new SolverOptions(new String[] {"0", "--solver=greedy", "--cache=" + cacheFile});
+            PuzzleSolver puzzleSolver = options.createSolver(initialGrid, goalTile, spawnPool);
+            PuzzleGrid solution = solveWithTimeLimit(puzzleSolver);
+            if(puzzleSolver.isCancelled()) {
+                report(name, null, "over " + SOLVE_SECONDS + " s");
+                return;
+            }
+            try {
+                Files.createLink(link, cacheFile);
+            } catch(IOException | UnsupportedOperationException e) {
+                report(name, null, "no hard links");
+                return;
+            }
+
+            SolutionCache reopened = SolutionCache.open(link, 16);
+            PuzzleGrid initialState = new PuzzleGrid(initialGrid, goalTile, spawnPool);
+            SolutionCache.CachedSolution cached = reopened.lookup(SolutionCache.fingerprint(initialGrid, goalTile,
+                    spawnPool, options.getSolverDescription()), initialState);
+            SolutionCache.CachedSolution missing = reopened.lookup(SolutionCache.fingerprint(initialGrid, goalTile,
+                    spawnPool, options.getSolverDescription() + " other"), initialState);
+            String moves = solution == null ? null : solution.getMoveString();
+            boolean found = cached != null && Objects.equals(moves,
+                    cached.getSolution() == null ? null : cached.getSolution().getMoveString());
+            report(name, found && missing == null, moves == null ? "no solution" : moves.length() + " moves");
+        } finally {
+            deleteQuietly(link);
+            deleteQuietly(cacheFile);
+        }
+    }
+
+    /**
+     * Saves the initial board and random boards of a puzzle's tiles as the NodeArena does and loads them back, over a
+     * grid of the same puzzle that has been swiped away from them, through both loadState overloads
+     * @param file the name of the puzzle, for the report
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    private static void checkArenaState(String file, int[][] initialGrid, int goalTile, int[] spawnPool) {
+        TileCodec codec = new PuzzleSpec(initialGrid, goalTile, spawnPool).getCodec();
+        Random random = new Random(file.hashCode());
+        boolean roundTrips = true;
+        int[] counts = new int[PuzzleGrid.COUNT_FIELDS];
+        for(int i = 0; i <= RANDOM_BOARDS && roundTrips; i++) {
+            int[][] board = i == 0 ? initialGrid : randomBoard(random, codec, initialGrid.length, initialGrid[0].length);
+            PuzzleGrid packed = new PuzzleGrid(board, goalTile, spawnPool);
+            long[] words = new long[packed.getSpec().getWordCount()];
+            packed.storeState(words, 0);
+            packed.storeCounts(counts, 0);
+            PuzzleGrid scanned = swipedCopy(packed);
+            scanned.loadState(words, 0, packed.getSpawnIndex(), packed.getStateKey(), packed.getDepth());
+            PuzzleGrid restored = swipedCopy(packed);
+            restored.loadState(words, 0, packed.getSpawnIndex(), packed.getStateKey(), packed.getDepth(),
+                    packed.getTileSum(), counts, 0);
+            roundTrips = sameGrid(packed, scanned) && sameGrid(packed, restored);
+        }
+        report("arena " + file, roundTrips, (RANDOM_BOARDS + 1) + " boards");
+    }
+
+    /**
+     * Helper function to create the A* or greedy solver for the resume check
+     * @param solver astar or greedy
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @return a new solver
+     */
+    private static PuzzleSolver createCheckpointSolver(String solver, int[][] initialGrid, int goalTile, int[] spawnPool) {
+        if(solver.equals("astar")) {
+            return new PuzzleSolverAStar(initialGrid, goalTile, spawnPool, HeuristicType.NONADMISSIBLE);
+        }
+        return new PuzzleSolverGrBeFGS(initialGrid, goalTile, spawnPool);
+    }
+
+    /**
+     * Helper function to solve a puzzle, cancelling the solve after SOLVE_SECONDS
+     * @param puzzleSolver the solver
+     * @return the solution, or null if there is none or the solve was cancelled
+     */
+    private static PuzzleGrid solveWithTimeLimit(PuzzleSolver puzzleSolver) {
+        Timer timeLimit = new Timer("time-limit", true);
+        timeLimit.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                puzzleSolver.cancel();
+            }
+        }, SOLVE_SECONDS * 1000L);
+        try {
+            return puzzleSolver.solve();
+        } finally {
+            timeLimit.cancel();
+        }
+    }
+
+    /**
+     * Helper function to make a random board of a puzzle's size from the tiles its codec knows
+     * @param random the source of the tiles
+     * @param codec the tile dictionary of the puzzle
+     * @param numRows the height of the board
+     * @param numCols the width of the board
+     * @return a board with about a quarter of its cells empty, and mostly small tiles so that many of them merge
+     */
+    private static int[][] randomBoard(Random random, TileCodec codec, int numRows, int numCols) {
+        int[][] board = new int[numRows][numCols];
+        int smallCodes = Math.min(codec.getNumCodes() - 1, 6);
+        for(int row = 0; row < numRows; row++) {
+            for(int col = 0; col < numCols; col++) {
+                if(random.nextInt(4) != 0) {
+                    int code = random.nextInt(8) == 0 ? 1 + random.nextInt(codec.getNumCodes() - 1) :
+                            1 + random.nextInt(smallCodes);
+                    board[row][col] = codec.decode(code);
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Helper function to copy a grid and swipe the copy until it differs, to load another board of the puzzle over
+     * @param puzzleGrid the grid to copy
+     * @return the swiped copy, or an unchanged copy if no swipe changes the grid
+     */
+    private static PuzzleGrid swipedCopy(PuzzleGrid puzzleGrid) {
+        PuzzleGrid copy = new PuzzleGrid(puzzleGrid);
+        for(char direction : DIRECTIONS) {
+            if(copy.move(direction)) {
+                break;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Helper function to compare everything a grid restored from packed words must share with the original
+     * @param expected the original grid
+     * @param actual the restored grid
+     * @return whether the tiles, state key, spawn pool cursor, depth, and tile statistics are all equal
+     */
+    private static boolean sameGrid(PuzzleGrid expected, PuzzleGrid actual) {
+        return Arrays.deepEquals(expected.getGrid(), actual.getGrid()) &&
+                expected.getStateKey() == actual.getStateKey() &&
+                expected.getSpawnIndex() == actual.getSpawnIndex() &&
+                expected.getDepth() == actual.getDepth() &&
+                expected.getTileSum() == actual.getTileSum() &&
+                expected.getEmptyCount() == actual.getEmptyCount() &&
+                expected.getMaxPowerOfTwoTile() == actual.getMaxPowerOfTwoTile() &&
+                expected.getMaxPowerOfTwoCount() == actual.getMaxPowerOfTwoCount() &&
+                expected.checkGoal() == actual.checkGoal();
+    }
+
+    /**
+     * Helper function to print the result of one case and count it
+     * @param name the case
+     * @param pass true if it passed, false if it failed, or null if it was skipped
+     * @param detail a note printed after the result
+     */
+    private static void report(String name, Boolean pass, String detail) {
+        if(pass == null) {
+            skipped++;
+            System.out.println("SKIP " + name + " (" + detail + ")");
+        } else if(pass) {
+            passed++;
+            System.out.println("PASS " + name + " (" + detail + ")");
+        } else {
+            failed++;
+            System.out.println("FAIL " + name + " (" + detail + ")");
+        }
+    }
+
+    /**
+     * Helper function to create an empty temporary file
+     * @param prefix the start of the file name
+     * @return the path of the file
+     */
+    private static Path createTempFile(String prefix) {
+        try {
+            return Files.createTempFile(prefix, ".tmp");
+        } catch(IOException e) {
+            throw new Error("Could not create a temporary file", e);
+        }
+    }
+
+    /**
+     * Helper function to delete a file, ignoring one that is missing or can't be deleted
+     * @param path the file
+     */
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch(IOException e) {
+            // a leftover temporary file doesn't change the results
+        }
+    }
+
 }
@@ -0,0 +1,319 @@
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File of fixed-size records of longs, read and written through memory-mapped windows
+ * The file is mapped a window at a time with FileChannel.map, so records move between the page cache and the search
+ * without read or write system calls or intermediate byte arrays; a window always holds a whole number of records
+ * Each window is unmapped as soon as its reader or writer moves past it or is closed, instead of when the garbage
+ * collector gets to it, so a search over many layers holds at most one mapping per open file
+ */
+public class RecordFile {
+
+    private static final int BYTES_PER_LONG = Long.BYTES;
+
+    // sun.misc.Unsafe and its invokeCleaner method, which unmaps a buffer at once, or null where they are missing
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            // the windows are then unmapped by the garbage collector
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path path;
+    private final int recordLongs;
+    private long numRecords;
+
+    /**
+     * Constructor to describe a record file; use newWriter to fill it and newReader to read it back
+     * @param path the location of the file
+     * @param recordLongs the number of longs in each record
+     */
+    public RecordFile(Path path, int recordLongs) {
+        this.path = path;
+        this.recordLongs = recordLongs;
+    }
+
+    /**
+     * Creates the file, replacing any existing one, and opens it for appending records
+     * @param windowRecords the number of records buffered before they are written
+     * @return a writer positioned at the start of the empty file
+     */
+    public Writer newWriter(int windowRecords) {
+        return new Writer(windowRecords);
+    }
+
+    /**
+     * Opens the file for reading
+     * @param windowRecords the number of records read at once
+     * @return a reader positioned at the first record
+     */
+    public Reader newReader(int windowRecords) {
+        return new Reader(windowRecords);
+    }
+
+    /**
+     * Deletes the file if it exists
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch(IOException e) {
+            throw new Error("Could not access record file " + path, e);
+        }
+    }
+
+    /**
+     * Getter for the number of records written by the last writer that was closed
+     * @return the number of records in the file
+     */
+    public long getNumRecords() {
+        return numRecords;
+    }
+
+    /**
+     * Getter for the number of longs in each record
+     * @return the record length
+     */
+    public int getRecordLongs() {
+        return recordLongs;
+    }
+
+    /**
+     * Getter for the location of the file
+     * @return the path of the file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Appends records to the file through a sliding read-write mapping, growing the file a window at a time
+     */
+    public class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final long windowBytes;
+        private MappedByteBuffer mapped;  // the current window, or null before the first record
+        private LongBuffer window;  // view of mapped the records are appended to
+        private long windowStart;  // byte position of the current window in the file
+        private long written;
+
+        /**
+         * Constructor to create the file
+         * @param windowRecords the number of records mapped at once
+         */
+        private Writer(int windowRecords) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch(IOException e) {
+                throw new Error("Could not access record file " + path, e);
+            }
+            this.windowBytes = (long) Math.max(1, windowRecords) * recordLongs * BYTES_PER_LONG;
+            this.windowStart = -windowBytes;
+        }
+
+        /**
+         * Appends one record
+         * @param source the array holding the record
+         * @param offset the index in source of the record's first long
+         */
+        public void append(long[] source, int offset) {
+            if(window == null || window.remaining() < recordLongs) {
+                mapNextWindow();
+            }
+            window.put(source, offset, recordLongs);
+            written++;
+        }
+
+        /**
+         * Helper function to unmap the current window and map the one after it, which grows the file
+         */
+        private void mapNextWindow() {
+            unmapWindow();
+            windowStart += windowBytes;
+            try {
+                mapped = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowBytes);
+            } catch(IOException e) {
+                throw new Error("Could not access record file " + path, e);
+            }
+            window = mapped.asLongBuffer();
+        }
+
+        /**
+         * Helper function to unmap the current window, if there is one
+         */
+        private void unmapWindow() {
+            window = null;
+            unmap(mapped);
+            mapped = null;
+        }
+
+        /**
+         * Getter for the number of records appended so far
+         * @return the number of records written
+         */
+        public long getWritten() {
+            return written;
+        }
+
+        /**
+         * Unmaps the last window, trims its unused end off the file, and closes it
+         */
+        @Override
+        public void close() {
+            unmapWindow();
+            try {
+                channel.truncate(written * recordLongs * BYTES_PER_LONG);
+                channel.close();
+            } catch(IOException e) {
+                throw new Error("Could not access record file " + path, e);
+            }
+            numRecords = written;
+        }
+    }
+
+    /**
+     * Reads records from the file through a sliding read-only mapping, sequentially or by index
+     */
+    public class Reader implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final long windowRecords;
+        private final long fileRecords;
+        private MappedByteBuffer mapped;  // the current window, or null before the first read
+        private LongBuffer window;  // view of mapped the records are read from
+        private long windowFirst;  // index of the first record in the current window
+        private long windowCount;  // number of records in the current window
+        private long next;  // index of the record the next call to next reads
+
+        /**
+         * Constructor to open the file
+         * @param windowRecords the number of records mapped at once
+         */
+        private Reader(int windowRecords) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+                fileRecords = channel.size() / ((long) recordLongs * BYTES_PER_LONG);
+            } catch(IOException e) {
+                throw new Error("Could not access record file " + path, e);
+            }
+            this.windowRecords = Math.max(1, windowRecords);
+        }
+
+        /**
+         * Reads the next record in file order
+         * @param destination the array to copy the record into
+         * @param offset the index in destination for the record's first long
+         * @return false if every record has been read, true otherwise
+         */
+        public boolean next(long[] destination, int offset) {
+            if(next >= fileRecords) {
+                return false;
+            }
+            read(next++, destination, offset);
+            return true;
+        }
+
+        /**
+         * Reads the record at an index, remapping only if it is outside the current window
+         * @param index the index of the record
+         * @param destination the array to copy the record into
+         * @param offset the index in destination for the record's first long
+         */
+        public void read(long index, long[] destination, int offset) {
+            if(window == null || index < windowFirst || index >= windowFirst + windowCount) {
+                mapWindowAt(index);
+            }
+            window.get((int) ((index - windowFirst) * recordLongs), destination, offset, recordLongs);
+        }
+
+        /**
+         * Helper function to unmap the current window and map the one containing a record
+         * @param index the index of the record
+         */
+        private void mapWindowAt(long index) {
+            if(index < 0 || index >= fileRecords) {
+                throw new Error("Record file " + path + " has no record " + index);
+            }
+            unmapWindow();
+            windowFirst = index - index % windowRecords;
+            windowCount = Math.min(windowRecords, fileRecords - windowFirst);
+            long recordBytes = (long) recordLongs * BYTES_PER_LONG;
+            try {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, windowFirst * recordBytes,
+                        windowCount * recordBytes);
+            } catch(IOException e) {
+                throw new Error("Could not access record file " + path, e);
+            }
+            window = mapped.asLongBuffer();
+        }
+
+        /**
+         * Helper function to unmap the current window, if there is one
+         */
+        private void unmapWindow() {
+            window = null;
+            unmap(mapped);
+            mapped = null;
+        }
+
+        /**
+         * Getter for the number of records in the file
+         * @return the number of records
+         */
+        public long getNumRecords() {
+            return fileRecords;
+        }
+
+        /**
+         * Unmaps the current window and closes the file
+         */
+        @Override
+        public void close() {
+            unmapWindow();
+            try {
+                channel.close();
+            } catch(IOException e) {
+                throw new Error("Could not access record file " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Helper function to release a mapped window at once rather than when it is garbage collected
+     * The window, and every view of it, must not be used again
+     * @param mapped the window, or null
+     */
+    private static void unmap(MappedByteBuffer mapped) {
+        if(mapped == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, mapped);
+        } catch(ReflectiveOperationException e) {
+            throw new Error("Could not unmap a record file window", e);
+        }
+    }
+}
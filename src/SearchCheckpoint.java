@@ -0,0 +1,511 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Periodic snapshots of a best-first search (frontier, visited states, and counters) in a compact binary file
+ * The search thread copies the visited table a block of slots per expansion and then the frontier's handles; a
+ * background thread then reads the frontier's records and the steps leading to them from the NodeArena and writes
+ * the file, so the search keeps running while the snapshot is taken and written. The file is written next to the old
+ * one and renamed over it, so a crash mid-write leaves the previous checkpoint intact
+ * File layout, all big-endian longs: a header, the identity of the search (the solver and heuristic class names, the
+ * spawn pool, and the initial grid's words), the visited table slot by slot, the ancestor path nodes (parents first)
+ * as (parent id + 1) << 16 | move, and then one record per frontier node: its words, state key,
+ * spawn pool cursor << 32 | depth, (parent id + 1) << 16 | move, and the raw bits of f
+ */
+public class SearchCheckpoint {
+
+    private static final long MAGIC = 0x32303438434B5054L;  // "2048CKPT"
+    private static final long VERSION = 3;
+    private static final int HEADER_LONGS = 11;
+    private static final int BUFFER_LONGS = 1 << 17;  // 1 MB of file I/O per system call
+    private static final int EXTRA_RECORD_LONGS = 4;  // key, cursor and depth, parent and move, f
+
+    private final Path path;
+    private final long intervalNanos;
+    private final PuzzleGrid initialGrid;
+    private final String solverName;
+    private final Heuristic heuristic;
+    private final ExecutorService writer;
+    private long nextDue;
+    private boolean capturing;  // the visited table is being copied
+    private Future<?> pendingWrite;  // the snapshot being written, or null
+    private int numWritten;
+
+    /**
+     * Constructor to checkpoint a search at a fixed interval
+     * @param path the checkpoint file, replaced by each new snapshot
+     * @param intervalMillis the time between snapshots in milliseconds
+     * @param initialGrid the grid the search started from, which identifies the puzzle in the file
+     * @param solverName the class name of the solver, which with the heuristic identifies the search in the file
+     * @param heuristic the heuristic that scored the frontier
+     */
+    public SearchCheckpoint(Path path, long intervalMillis, PuzzleGrid initialGrid, String solverName,
+                            Heuristic heuristic) {
+        this.path = path;
+        this.intervalNanos = intervalMillis * 1_000_000L;
+        this.initialGrid = initialGrid;
+        this.solverName = solverName;
+        this.heuristic = heuristic;
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "checkpoint-writer");
+            thread.setDaemon(true);  // never keep the JVM alive for a snapshot
+            return thread;
+        });
+        this.nextDue = System.nanoTime() + intervalNanos;
+    }
+
+    /**
+     * Checks whether capture has work to do: the interval has passed, a snapshot is being copied, or a snapshot has
+     * been written and its arena nodes can be released
+     * Cheap enough to call after every expansion
+     * @return true if the search should call capture now
+     */
+    public boolean isDue() {
+        if(capturing) {
+            return true;
+        }
+        if(pendingWrite != null) {
+            return pendingWrite.isDone();
+        }
+        return System.nanoTime() - nextDue >= 0;
+    }
+
+    /**
+     * Takes the next part of a snapshot of the search state, and hands the snapshot to the background thread to
+     * write once it is complete
+     * The visited table is copied a page of slots per call, the keys added behind the copy being tracked by the set,
+     * so the search pauses for well under a millisecond per expansion instead of for a whole copy. Once the table is
+     * copied, the frontier's handles are copied and the arena is asked to keep its open nodes as they are, so the
+     * background thread reads their records in place; they are released on the first call after the write finishes
+     * @param frontier the open list of the search
+     * @param nodes the arena the frontier's handles refer to
+     * @param visitedStates the state keys of every grid generated so far
+     * @param statesGenerated the number of states the search has generated
+     */
+    public void capture(OpenList frontier, NodeArena nodes, LongHashSet visitedStates, long statesGenerated) {
+        if(pendingWrite != null) {
+            finishWrite();
+            nodes.releaseSnapshot();
+            return;
+        }
+        if(!capturing) {
+            visitedStates.beginSnapshot();
+            capturing = true;
+        }
+        if(!visitedStates.copySnapshot()) {
+            return;
+        }
+        capturing = false;
+        LongHashSet.Snapshot visitedCopy = visitedStates.finishSnapshot();  // pages reused once this is written
+        int[] openNodes = frontier.toArray();
+        NodeArena nodesView = nodes.holdSnapshot();
+        pendingWrite = writer.submit(() -> write(openNodes, nodesView, visitedCopy, statesGenerated));
+        nextDue = System.nanoTime() + intervalNanos;
+    }
+
+    /**
+     * Waits for the snapshot being written, if any, and stops the background thread
+     */
+    public void close() {
+        try {
+            finishWrite();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Getter for the number of snapshots that have been written
+     * @return the number of completed checkpoints
+     */
+    public int getNumWritten() {
+        return numWritten;
+    }
+
+    /**
+     * Helper function to wait for the snapshot being written and pass on any error it hit
+     */
+    private void finishWrite() {
+        if(pendingWrite == null) {
+            return;
+        }
+        try {
+            pendingWrite.get();
+            numWritten++;
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Error("Interrupted while writing checkpoint " + path, e);
+        } catch(ExecutionException e) {
+            throw new Error("Could not write checkpoint " + path, e.getCause());
+        } finally {
+            pendingWrite = null;
+        }
+    }
+
+    /**
+     * Helper function, run on the background thread, to write a snapshot to a temporary file and move it into place
+     * @param openNodes the handles of the nodes in the frontier
+     * @param nodes a view of the arena the handles refer to, held until the write finishes
+     * @param visitedStates a snapshot of the visited states, whose pages stay untouched until the write finishes
+     * @param statesGenerated the number of states the search has generated
+     */
+    private void write(int[] openNodes, NodeArena nodes, LongHashSet.Snapshot visitedStates, long statesGenerated) {
+        visitedStates.addPending();
+
+        // number the steps before the frontier's own steps, parents before their children; the initial grid made no
+        // move, so it isn't numbered
+        LongIntHashMap pathIds = new LongIntHashMap(1024);  // step to id + 1
+        int[] pathNodes = new int[16];
+        int numPathNodes = 0;
+        int[] unnumbered = new int[16];
+        for(int node : openNodes) {
+            int numUnnumbered = 0;
+            for(int step = nodes.getParentStep(nodes.getStep(node)); step != NodeArena.NO_NODE &&
+                    nodes.getMove(step) != 0 && pathIds.get(step, 0) == 0; step = nodes.getParentStep(step)) {
+                if(numUnnumbered == unnumbered.length) {
+                    unnumbered = Arrays.copyOf(unnumbered, numUnnumbered * 2);
+                }
+                unnumbered[numUnnumbered++] = step;
+            }
+            while(numUnnumbered > 0) {
+                int step = unnumbered[--numUnnumbered];
+                if(numPathNodes == pathNodes.length) {
+                    pathNodes = Arrays.copyOf(pathNodes, numPathNodes * 2);
+                }
+                pathNodes[numPathNodes++] = step;
+                pathIds.put(step, numPathNodes);
+            }
+        }
+
+        int wordCount = initialGrid.getSpec().getWordCount();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            LongWriter out = new LongWriter(channel);
+            long[] identity = createIdentity(initialGrid, solverName, heuristic);
+            long[] header = new long[HEADER_LONGS];
+            header[0] = MAGIC;
+            header[1] = VERSION;
+            header[2] = identity.length;
+            header[3] = (long) initialGrid.getNumRows() << 32 | initialGrid.getNumCols();
+            header[4] = initialGrid.getGoalTile();
+            header[5] = wordCount;
+            header[6] = statesGenerated;
+            header[7] = visitedStates.getCapacity();
+            header[8] = (long) visitedStates.size() << 1 | (visitedStates.containsZero() ? 1 : 0);
+            header[9] = numPathNodes;
+            header[10] = openNodes.length;
+            out.put(header, 0, header.length);
+            out.put(identity, 0, identity.length);
+            for(long[] page : visitedStates.getPages()) {
+                out.put(page, 0, page.length);
+            }
+
+            for(int i = 0; i < numPathNodes; i++) {
+                int step = pathNodes[i];
+                out.put((long) pathIds.get(nodes.getParentStep(step), 0) << 16 | nodes.getMove(step));
+            }
+
+            long[] record = new long[wordCount + EXTRA_RECORD_LONGS];
+            for(int node : openNodes) {
+                int step = nodes.getStep(node);
+                nodes.storeWords(node, record, 0);
+                record[wordCount] = nodes.getStateKey(node);
+                record[wordCount + 1] = (long) nodes.getSpawnIndex(node) << 32 | nodes.getDepth(node);
+                record[wordCount + 2] = (long) pathIds.get(nodes.getParentStep(step), 0) << 16 | nodes.getMove(step);
+                record[wordCount + 3] = Double.doubleToRawLongBits(nodes.getF(node));
+                out.put(record, 0, record.length);
+            }
+            out.flush();
+            channel.force(true);
+        } catch(IOException e) {
+            throw new Error("Could not write checkpoint " + path, e);
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            throw new Error("Could not write checkpoint " + path, e);
+        }
+    }
+
+    /**
+     * Helper function to write out everything that identifies the search in full, so a checkpoint of any other search
+     * never compares equal to it
+     * @param initialGrid the grid the search started from, of the puzzle whose size and goal are in the header
+     * @param solverName the class name of the solver
+     * @param heuristic the heuristic that scores the frontier
+     * @return the solver and heuristic names, the spawn pool, and the initial grid's words, each after its length
+     */
+    private static long[] createIdentity(PuzzleGrid initialGrid, String solverName, Heuristic heuristic) {
+        String heuristicName = heuristic.getClass().getName();
+        int[] spawnPool = initialGrid.getSpec().getSpawnPool();
+        int wordCount = initialGrid.getSpec().getWordCount();
+        long[] identity = new long[4 + solverName.length() + heuristicName.length() + spawnPool.length + wordCount];
+        int length = 0;
+        identity[length++] = solverName.length();
+        for(int i = 0; i < solverName.length(); i++) {
+            identity[length++] = solverName.charAt(i);
+        }
+        identity[length++] = heuristicName.length();
+        for(int i = 0; i < heuristicName.length(); i++) {
+            identity[length++] = heuristicName.charAt(i);
+        }
+        identity[length++] = spawnPool.length;
+        for(int spawn : spawnPool) {
+            identity[length++] = spawn;
+        }
+        identity[length++] = wordCount;
+        initialGrid.storeState(identity, length);
+        return identity;
+    }
+
+    /**
+     * Reads a checkpoint back with bulk copies out of large buffers
+     * @param path the checkpoint file
+     * @param initialGrid the grid the resumed search starts from, which must match the one that was checkpointed
+     * @param solverName the class name of the resumed solver, which must match the one that was checkpointed
+     * @param heuristic the heuristic of the resumed search, which must match the one that was checkpointed
+     * @return the saved search state
+     */
+    public static Snapshot read(Path path, PuzzleGrid initialGrid, String solverName, Heuristic heuristic) {
+        int wordCount = initialGrid.getSpec().getWordCount();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            LongReader in = new LongReader(channel);
+            long[] header = new long[HEADER_LONGS];
+            in.get(header, 0, header.length);
+            if(header[0] != MAGIC) {
+                throw new Error(path + " is not a checkpoint file");
+            }
+            if(header[1] != VERSION) {
+                throw new Error("Checkpoint " + path + " was saved in an older format and can't be resumed");
+            }
+            long[] expected = createIdentity(initialGrid, solverName, heuristic);
+            long[] identity = new long[header[2] == expected.length ? expected.length : 0];
+            in.get(identity, 0, identity.length);
+            if(header[3] != ((long) initialGrid.getNumRows() << 32 | initialGrid.getNumCols()) ||
+                    header[4] != initialGrid.getGoalTile() || header[5] != wordCount ||
+                    !Arrays.equals(identity, expected)) {
+                throw new Error("Checkpoint " + path + " was saved by a different puzzle, solver, or heuristic");
+            }
+
+            long statesGenerated = header[6];
+            long[] table = new long[(int) header[7]];
+            in.get(table, 0, table.length);
+            LongHashSet visitedStates = new LongHashSet(table, (int) (header[8] >>> 1), (header[8] & 1) != 0);
+
+            // the path nodes are added first, so the step of each one is its id
+            int numPathNodes = (int) header[9];
+            int[] openNodes = new int[(int) header[10]];
+            NodeArena nodes = new NodeArena(initialGrid.getSpec(), openNodes.length + 1024);
+            long[] pathNodes = new long[numPathNodes];
+            in.get(pathNodes, 0, pathNodes.length);
+            for(long pathNode : pathNodes) {
+                nodes.addStep((int) (pathNode >>> 16) - 1, (char) (pathNode & 0xFFFF));
+            }
+
+            // read the frontier a block of records at a time
+            int recordLongs = wordCount + EXTRA_RECORD_LONGS;
+            long[] records = new long[Math.max(1, BUFFER_LONGS / recordLongs) * recordLongs];
+            int numRead = 0;
+            PuzzleGrid loaded = new PuzzleGrid(initialGrid);  // counts the tile statistics of each record once
+            while(numRead < openNodes.length) {
+                int block = Math.min(openNodes.length - numRead, records.length / recordLongs);
+                in.get(records, 0, block * recordLongs);
+                for(int i = 0; i < block; i++) {
+                    int offset = i * recordLongs;
+                    long cursorAndDepth = records[offset + wordCount + 1];
+                    long parentAndMove = records[offset + wordCount + 2];
+                    int step = nodes.addStep((int) (parentAndMove >>> 16) - 1, (char) (parentAndMove & 0xFFFF));
+                    loaded.loadState(records, offset, (int) (cursorAndDepth >>> 32), records[offset + wordCount],
+                            (int) cursorAndDepth);
+                    openNodes[numRead++] = nodes.addResumed(loaded, step,
+                            Double.longBitsToDouble(records[offset + wordCount + 3]));
+                }
+            }
+            return new Snapshot(nodes, openNodes, visitedStates, statesGenerated);
+        } catch(IOException e) {
+            throw new Error("Could not read checkpoint " + path, e);
+        }
+    }
+
+    /**
+     * Search state read back from a checkpoint
+     */
+    public static class Snapshot {
+
+        private final NodeArena nodes;
+        private final int[] openNodes;
+        private final LongHashSet visitedStates;
+        private final long statesGenerated;
+
+        /**
+         * Constructor to hold the parts of a checkpoint
+         * @param nodes the frontier's nodes and the steps leading to them
+         * @param openNodes the handles of the frontier, in the order to add it back in
+         * @param visitedStates the state keys of every grid generated before the checkpoint
+         * @param statesGenerated the number of states generated before the checkpoint
+         */
+        private Snapshot(NodeArena nodes, int[] openNodes, LongHashSet visitedStates, long statesGenerated) {
+            this.nodes = nodes;
+            this.openNodes = openNodes;
+            this.visitedStates = visitedStates;
+            this.statesGenerated = statesGenerated;
+        }
+
+        /**
+         * Getter for the arena of the saved nodes, which the resumed search keeps adding to
+         * @return the arena holding the frontier and the steps its moves go through
+         */
+        public NodeArena getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Getter for the saved frontier
+         * @return the handles to add to an empty OpenList, in order, with their f-values from the arena
+         */
+        public int[] getOpenNodes() {
+            return openNodes;
+        }
+
+        /**
+         * Getter for the saved visited states
+         * @return the state keys of every grid generated before the checkpoint
+         */
+        public LongHashSet getVisitedStates() {
+            return visitedStates;
+        }
+
+        /**
+         * Getter for the saved counter
+         * @return the number of states generated before the checkpoint
+         */
+        public long getStatesGenerated() {
+            return statesGenerated;
+        }
+    }
+
+    /**
+     * Buffered writer of longs that fills a direct buffer with bulk puts and writes it out when full
+     */
+    private static class LongWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_LONGS * Long.BYTES);
+        private final LongBuffer longs = bytes.asLongBuffer();
+
+        /**
+         * Constructor to write to an open file
+         * @param channel the file, positioned where the longs go
+         */
+        LongWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Appends one long
+         * @param value the long to write
+         */
+        void put(long value) throws IOException {
+            if(!longs.hasRemaining()) {
+                flush();
+            }
+            longs.put(value);
+        }
+
+        /**
+         * Appends a range of an array
+         * @param source the array to write from
+         * @param offset the index of the first long
+         * @param length the number of longs
+         */
+        void put(long[] source, int offset, int length) throws IOException {
+            while(length > 0) {
+                if(!longs.hasRemaining()) {
+                    flush();
+                }
+                int count = Math.min(length, longs.remaining());
+                longs.put(source, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        /**
+         * Writes the buffered longs to the file
+         */
+        void flush() throws IOException {
+            bytes.position(0).limit(longs.position() * Long.BYTES);
+            while(bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+            longs.clear();
+        }
+    }
+
+    /**
+     * Buffered reader of longs that fills a direct buffer a large block at a time and copies out of it in bulk
+     */
+    private static class LongReader {
+
+        private final FileChannel channel;
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_LONGS * Long.BYTES);
+        private LongBuffer longs = bytes.asLongBuffer().limit(0);
+
+        /**
+         * Constructor to read from an open file
+         * @param channel the file, positioned at the first long
+         */
+        LongReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads longs into a range of an array
+         * @param destination the array to fill
+         * @param offset the index of the first long
+         * @param length the number of longs
+         */
+        void get(long[] destination, int offset, int length) throws IOException {
+            while(length > 0) {
+                if(!longs.hasRemaining()) {
+                    fill();
+                }
+                int count = Math.min(length, longs.remaining());
+                longs.get(destination, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        /**
+         * Helper function to read the next block of the file into the buffer
+         */
+        private void fill() throws IOException {
+            bytes.clear();
+            while(bytes.position() < Long.BYTES) {  // need at least one whole long
+                if(channel.read(bytes) < 0) {
+                    throw new IOException("Checkpoint ends early");
+                }
+            }
+            int whole = bytes.position() / Long.BYTES * Long.BYTES;
+            bytes.flip();
+            longs = bytes.slice(0, whole).asLongBuffer();
+            // give back the bytes of a partly read long
+            channel.position(channel.position() - (bytes.limit() - whole));
+        }
+    }
+}
@@ -0,0 +1,265 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the searches, so recordings can line up GC pauses and CPU samples with search phases
+ * Most events are emitted through SearchStats. Flight Recorder takes a few hundred ms to start, so no event class is
+ * touched until a recording has started it: until then emitting an event is a check of FlightRecorder.isInitialized,
+ * and once it is running, an event disabled in the recording settings is a check of a flag. The frontier samples are
+ * taken by the recorder's own thread and cost the search nothing; they are registered the first time a search sees
+ * the recorder running, so a recording started partway through a search samples it from its next timed iteration
+ * Record with e.g. java -XX:StartFlightRecording:filename=search.jfr MainPuzzle, and enable the sampled expansions
+ * by adding +puzzle.Expansion#enabled=true to the recording options
+ */
+public class SearchEvents {
+
+    private static final Set<SearchStats> RUNNING = ConcurrentHashMap.newKeySet();  // searches to sample
+    private static volatile EventType expansionType = null;  // set once the frontier samples are registered
+
+    /**
+     * A solve, from PuzzleSolver.solve being called to it returning
+     */
+    @Name("puzzle.Solve")
+    @Label("Solve")
+    @Category({"Puzzle", "Search"})
+    @Description("A whole solve of one puzzle")
+    @StackTrace(false)
+    public static class Solve extends Event {
+        @Label("Solver")
+        String solver;
+        @Label("Heuristic")
+        String heuristic;
+        @Label("Solution Length")
+        @Description("Number of swipes in the solution, or -1 if there is none")
+        int solutionLength;
+        @Label("Nodes Expanded")
+        long nodesExpanded;
+        @Label("Nodes Generated")
+        long nodesGenerated;
+    }
+
+    /**
+     * The start of a solve, recorded right away so a search that never finishes still shows up
+     */
+    @Name("puzzle.SolveStart")
+    @Label("Solve Start")
+    @Category({"Puzzle", "Search"})
+    @StackTrace(false)
+    public static class SolveStart extends Event {
+        @Label("Solver")
+        String solver;
+        @Label("Heuristic")
+        String heuristic;
+    }
+
+    /**
+     * A search reaching the goal tile
+     */
+    @Name("puzzle.GoalFound")
+    @Label("Goal Found")
+    @Category({"Puzzle", "Search"})
+    @StackTrace(false)
+    public static class GoalFound extends Event {
+        @Label("Solver")
+        String solver;
+        @Label("Solution Length")
+        int solutionLength;
+        @Label("Nodes Expanded")
+        long nodesExpanded;
+    }
+
+    /**
+     * The sizes of the open and closed lists of every running search, taken at a fixed period
+     */
+    @Name("puzzle.FrontierSample")
+    @Label("Frontier Sample")
+    @Category({"Puzzle", "Search"})
+    @Period("1 s")
+    @StackTrace(false)
+    public static class FrontierSample extends Event {
+        @Label("Solver")
+        String solver;
+        @Label("Frontier Size")
+        long frontierSize;
+        @Label("Closed Size")
+        long closedSize;
+        @Label("Nodes Expanded")
+        long nodesExpanded;
+    }
+
+    /**
+     * One iteration of an iterative deepening search, with the depth limit or f(n) threshold it searched to
+     */
+    @Name("puzzle.DeepeningIteration")
+    @Label("Deepening Iteration")
+    @Category({"Puzzle", "Search"})
+    @StackTrace(false)
+    public static class DeepeningIteration extends Event {
+        @Label("Solver")
+        String solver;
+        @Label("Bound")
+        int bound;
+        @Label("Nodes Expanded")
+        @Description("Expanded by the search so far, including earlier iterations")
+        long nodesExpanded;
+    }
+
+    /**
+     * One search iteration out of those SearchStats times, off by default since there can be thousands per second
+     */
+    @Name("puzzle.Expansion")
+    @Label("Expansion")
+    @Category({"Puzzle", "Search"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static class Expansion extends Event {
+        @Label("Solver")
+        String solver;
+        @Label("Frontier Size")
+        long frontierSize;
+        @Label("Closed Size")
+        long closedSize;
+    }
+
+    /**
+     * Checks whether Flight Recorder has been started, by a recording on the command line or from jcmd
+     * Once it has, the frontier samples are registered with it
+     * @return true if events may be recorded
+     */
+    static boolean isRecording() {
+        if(!FlightRecorder.isInitialized()) {
+            return false;
+        }
+        if(expansionType == null) {
+            register();
+        }
+        return true;
+    }
+
+    /**
+     * Helper function to register the frontier samples with the recorder the first time it is found running
+     */
+    private static synchronized void register() {
+        if(expansionType == null) {
+            FlightRecorder.addPeriodicEvent(FrontierSample.class, SearchEvents::sampleFrontiers);
+            expansionType = EventType.getEventType(Expansion.class);
+        }
+    }
+
+    /**
+     * Records the start of a solve and lets the recorder sample its frontier until it finishes
+     * @param stats the stats of the search
+     * @return the event to finish with solveFinished, or null if Flight Recorder isn't running
+     */
+    static Solve solveStarted(SearchStats stats) {
+        RUNNING.add(stats);
+        if(!isRecording()) {
+            return null;
+        }
+        SolveStart start = new SolveStart();
+        if(start.shouldCommit()) {
+            start.solver = stats.getSolverName();
+            start.heuristic = stats.getHeuristicName();
+            start.commit();
+        }
+        Solve solve = new Solve();
+        solve.begin();
+        return solve;
+    }
+
+    /**
+     * Records the end of a solve, and its goal if it found one
+     * @param stats the stats of the finished search
+     * @param solve the event returned by solveStarted, or null
+     */
+    static void solveFinished(SearchStats stats, Solve solve) {
+        RUNNING.remove(stats);
+        if(solve == null) {
+            return;
+        }
+        if(stats.getSolutionLength() >= 0) {
+            GoalFound goal = new GoalFound();
+            if(goal.shouldCommit()) {
+                goal.solver = stats.getSolverName();
+                goal.solutionLength = stats.getSolutionLength();
+                goal.nodesExpanded = stats.getNodesExpanded();
+                goal.commit();
+            }
+        }
+        solve.end();
+        if(solve.shouldCommit()) {
+            solve.solver = stats.getSolverName();
+            solve.heuristic = stats.getHeuristicName();
+            solve.solutionLength = stats.getSolutionLength();
+            solve.nodesExpanded = stats.getNodesExpanded();
+            solve.nodesGenerated = stats.getNodesGenerated();
+            solve.commit();
+        }
+    }
+
+    /**
+     * Checks whether sampled expansions are being recorded
+     * @return true if a recording has the Expansion event enabled
+     */
+    static boolean isExpansionEnabled() {
+        return isRecording() && expansionType.isEnabled();
+    }
+
+    /**
+     * Starts timing a deepening iteration
+     * @return the event to finish with iterationFinished, or null if Flight Recorder isn't running
+     */
+    static DeepeningIteration iterationStarted() {
+        if(!isRecording()) {
+            return null;
+        }
+        DeepeningIteration iteration = new DeepeningIteration();
+        iteration.begin();
+        return iteration;
+    }
+
+    /**
+     * Records a deepening iteration that has just finished
+     * @param stats the stats of the search
+     * @param iteration the event returned by iterationStarted, or null
+     * @param bound the depth limit or threshold of the iteration
+     */
+    static void iterationFinished(SearchStats stats, DeepeningIteration iteration, int bound) {
+        if(iteration == null) {
+            return;
+        }
+        iteration.end();
+        if(iteration.shouldCommit()) {
+            iteration.solver = stats.getSolverName();
+            iteration.bound = bound;
+            iteration.nodesExpanded = stats.getNodesExpanded();
+            iteration.commit();
+        }
+    }
+
+    /**
+     * Periodic hook, run by the recorder, that samples the lists of every running search
+     * The counters are read without synchronization, so a sample may lag slightly behind the search
+     */
+    private static void sampleFrontiers() {
+        for(SearchStats stats : RUNNING) {
+            FrontierSample sample = new FrontierSample();
+            sample.solver = stats.getSolverName();
+            sample.frontierSize = stats.getFrontierSize();
+            sample.closedSize = stats.getClosedSize();
+            sample.nodesExpanded = stats.getNodesExpanded();
+            sample.commit();
+        }
+    }
+}
@@ -0,0 +1,504 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Counters and timings of one solve, filled in by the PuzzleSolver as it searches
+ * Counting is a field increment, and after the first few iterations time is only measured on one search iteration in
+ * SAMPLE_INTERVAL, so the stats stay on in every run; each sampled iteration stands in for the ones that weren't timed
+ * Not thread safe: a parallel solver keeps one SearchStats per thread and combines them into its own; only cancel
+ * may be called from another thread
+ * Available as a JSON line when the solve finishes and, with a snapshot listener, every few seconds while it runs, and
+ * recorded as SearchEvents when Flight Recorder is running
+ */
+public class SearchStats {
+
+    private static final int SAMPLE_INTERVAL = 8;  // time one search iteration in this many, a power of two
+    private static final int FULLY_TIMED_ITERATIONS = 1 << 14;  // time every iteration while the JIT warms up
+
+    /**
+     * Parts of a search iteration whose time is tracked separately
+     */
+    public enum Phase {
+        SUCCESSORS,  // generating the neighbors of a grid
+        HEURISTIC,  // scoring grids
+        LISTS  // operations on the open and closed lists
+    }
+
+    private final String solverName;
+    private String heuristicName;  // null for searches without a heuristic
+    private long startTime;
+    private long endTime;  // 0 while the search runs
+    private int solutionLength = -1;
+
+    private long nodesExpanded;
+    private long nodesGenerated;
+    private long duplicatesRejected;
+    private long peakFrontier;
+    private long peakClosed;
+    private long frontierSize;  // as of the last recordSizes, for the periodic samples
+    private long closedSize;
+
+    private long iterations;
+    private int timingWeight;  // the number of iterations the current one is timed for, 0 if it isn't timed
+    private long lapStart;
+    private final long[] phaseNanos = new long[Phase.values().length];  // estimated time, weights applied
+
+    private PruningStage pruning;  // the stage whose counts are reported, or null
+
+    private SearchEvents.Solve solveEvent;  // the event of the solve that is running
+    private SearchEvents.Expansion expansionEvent;  // the sampled expansion that is running, or null
+
+    private Consumer<String> snapshotListener;  // null for no snapshots
+    private long snapshotInterval;
+    private long nextSnapshot;
+
+    private volatile boolean cancelled;  // set by another thread to stop the search
+
+    /**
+     * Thrown out of a search that has been cancelled, and caught by PuzzleSolver.solve
+     */
+    public static class Cancelled extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor for the exception, which needs no stack trace since it is expected
+         */
+        public Cancelled() {
+            super("Search cancelled", null, false, false);
+        }
+    }
+
+    /**
+     * Constructor to create empty stats
+     * @param solverName the name of the search, e.g. the PuzzleSolver class
+     */
+    public SearchStats(String solverName) {
+        this.solverName = solverName;
+    }
+
+    /**
+     * Sets the heuristic reported with the stats
+     * @param heuristic the heuristic that scores the grids
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristicName = heuristic.getClass().getSimpleName();
+    }
+
+    /**
+     * Sets the pruning stage whose per-rule counts are reported with the stats
+     * @param pruning the stage the search runs on new grids
+     */
+    public void setPruningStage(PruningStage pruning) {
+        this.pruning = pruning;
+    }
+
+    /**
+     * Sends a JSON snapshot of the stats to a listener at a fixed interval while the search runs
+     * The snapshots are sent from the search thread when it reports, so a slow listener slows the search
+     * @param listener the consumer of each JSON line, e.g. System.err::println
+     * @param intervalMillis the time between snapshots in milliseconds
+     */
+    public void setSnapshotListener(Consumer<String> listener, long intervalMillis) {
+        this.snapshotListener = listener;
+        this.snapshotInterval = intervalMillis * 1_000_000L;
+        this.nextSnapshot = System.nanoTime() + snapshotInterval;
+    }
+
+    /**
+     * Sends snapshots to the same listener, at the same interval, as another search's stats
+     * Used when a solver hands its search to another solver, whose stats then stand for the solve
+     * @param other the stats whose listener to share
+     */
+    public void shareSnapshotListener(SearchStats other) {
+        this.snapshotListener = other.snapshotListener;
+        this.snapshotInterval = other.snapshotInterval;
+    }
+
+    /**
+     * Clears the stats and starts the clock, called by PuzzleSolver.solve
+     */
+    public void start() {
+        nodesExpanded = 0;
+        nodesGenerated = 0;
+        duplicatesRejected = 0;
+        peakFrontier = 0;
+        peakClosed = 0;
+        frontierSize = 0;
+        closedSize = 0;
+        iterations = 0;
+        timingWeight = 0;
+        Arrays.fill(phaseNanos, 0);
+        if(pruning != null) {
+            pruning.resetCounts();
+        }
+        solutionLength = -1;
+        endTime = 0;
+        startTime = System.nanoTime();
+        nextSnapshot = startTime + snapshotInterval;
+        solveEvent = SearchEvents.solveStarted(this);
+    }
+
+    /**
+     * Stops the clock, called by PuzzleSolver.solve
+     * @param solution the grid that reached the goal, or null if there is none
+     */
+    public void finish(PuzzleGrid solution) {
+        endTime = System.nanoTime();
+        solutionLength = solution == null ? -1 : solution.getDepth();
+        if(expansionEvent != null) {
+            commitExpansion();
+        }
+        SearchEvents.solveFinished(this, solveEvent);
+        solveEvent = null;
+    }
+
+    /**
+     * Marks the start of a search iteration (usually one pop from the open list), timing it if it is sampled
+     * Also sends a snapshot if one is due and stops the search if it was cancelled, checking only on sampled iterations
+     */
+    public void beginIteration() {
+        if(expansionEvent != null) {
+            commitExpansion();
+        }
+        long iteration = iterations++;
+        if(iteration < FULLY_TIMED_ITERATIONS) {
+            timingWeight = 1;
+        } else {
+            timingWeight = (iteration & (SAMPLE_INTERVAL - 1)) == 0 ? SAMPLE_INTERVAL : 0;
+        }
+        if(timingWeight != 0) {
+            checkCancelled();
+            lapStart = System.nanoTime();
+            if(snapshotListener != null && lapStart - nextSnapshot >= 0) {
+                sendSnapshot(lapStart);
+            }
+            if(SearchEvents.isExpansionEnabled()) {
+                expansionEvent = new SearchEvents.Expansion();
+                expansionEvent.begin();
+            }
+        }
+    }
+
+    /**
+     * Helper function to record the sampled expansion that just ended
+     */
+    private void commitExpansion() {
+        expansionEvent.end();
+        if(expansionEvent.shouldCommit()) {
+            expansionEvent.solver = solverName;
+            expansionEvent.frontierSize = frontierSize;
+            expansionEvent.closedSize = closedSize;
+            expansionEvent.commit();
+        }
+        expansionEvent = null;
+    }
+
+    /**
+     * Marks the start of a long step that is always timed, such as one layer of a breadth-first search
+     * Also sends a snapshot if one is due and stops the search if it was cancelled
+     */
+    public void beginStep() {
+        checkCancelled();
+        iterations++;
+        timingWeight = 1;
+        lapStart = System.nanoTime();
+        if(snapshotListener != null && lapStart - nextSnapshot >= 0) {
+            sendSnapshot(lapStart);
+        }
+    }
+
+    /**
+     * Charges the time since the last lap (or the start of the iteration) to a phase, if the iteration is timed
+     * @param phase the phase that just ended
+     */
+    public void lap(Phase phase) {
+        if(timingWeight != 0) {
+            long now = System.nanoTime();
+            phaseNanos[phase.ordinal()] += (now - lapStart) * timingWeight;
+            lapStart = now;
+        }
+    }
+
+    /**
+     * Asks the search to stop at its next sampled iteration or step; may be called from any thread
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Stops the search if it has been cancelled, for solvers that wait outside their search iterations
+     */
+    public void checkCancelled() {
+        if(cancelled) {
+            throw new Cancelled();
+        }
+    }
+
+    /**
+     * Sends a snapshot if one is due, for solvers that report from outside their search iterations
+     */
+    public void reportIfDue() {
+        if(snapshotListener != null) {
+            long now = System.nanoTime();
+            if(now - nextSnapshot >= 0) {
+                sendSnapshot(now);
+            }
+        }
+    }
+
+    /**
+     * Helper function to send a snapshot and schedule the next one
+     * @param now the current time in nanoseconds
+     */
+    private void sendSnapshot(long now) {
+        nextSnapshot = now + snapshotInterval;
+        snapshotListener.accept(toJson());
+    }
+
+    /**
+     * Counts a grid whose successors were generated
+     */
+    public void countExpanded() {
+        nodesExpanded++;
+    }
+
+    /**
+     * Counts grids whose successors were generated
+     * @param count the number of grids
+     */
+    public void countExpanded(long count) {
+        nodesExpanded += count;
+    }
+
+    /**
+     * Counts a new grid added to the search
+     */
+    public void countGenerated() {
+        nodesGenerated++;
+    }
+
+    /**
+     * Counts new grids added to the search
+     * @param count the number of grids
+     */
+    public void countGenerated(long count) {
+        nodesGenerated += count;
+    }
+
+    /**
+     * Counts a successor dropped because its state had been reached before
+     */
+    public void countDuplicate() {
+        duplicatesRejected++;
+    }
+
+    /**
+     * Counts successors dropped because their states had been reached before
+     * @param count the number of successors
+     */
+    public void countDuplicates(long count) {
+        duplicatesRejected += count;
+    }
+
+    /**
+     * Updates the peak sizes of the open and closed lists
+     * @param frontierSize the number of grids waiting to be expanded
+     * @param closedSize the number of states remembered to detect duplicates
+     */
+    public void recordSizes(long frontierSize, long closedSize) {
+        this.frontierSize = frontierSize;
+        this.closedSize = closedSize;
+        if(frontierSize > peakFrontier) {
+            peakFrontier = frontierSize;
+        }
+        if(closedSize > peakClosed) {
+            peakClosed = closedSize;
+        }
+    }
+
+    /**
+     * Replaces the counters with the totals of per-thread stats, keeping the clock, e.g. while a parallel solver runs
+     * Peak sizes are added up too, which bounds the true peak from above since the threads peak at different times;
+     * phase times become CPU time summed over the threads
+     * @param parts the stats of each thread
+     */
+    public void combine(SearchStats[] parts) {
+        nodesExpanded = 0;
+        nodesGenerated = 0;
+        duplicatesRejected = 0;
+        peakFrontier = 0;
+        peakClosed = 0;
+        frontierSize = 0;
+        closedSize = 0;
+        iterations = 0;
+        Arrays.fill(phaseNanos, 0);
+        for(SearchStats part : parts) {
+            nodesExpanded += part.nodesExpanded;
+            nodesGenerated += part.nodesGenerated;
+            duplicatesRejected += part.duplicatesRejected;
+            peakFrontier += part.peakFrontier;
+            peakClosed += part.peakClosed;
+            frontierSize += part.frontierSize;
+            closedSize += part.closedSize;
+            iterations += part.iterations;
+            for(int i = 0; i < phaseNanos.length; i++) {
+                phaseNanos[i] += part.phaseNanos[i];
+            }
+        }
+    }
+
+    /**
+     * Getter for the name of the search
+     * @return the solver name
+     */
+    public String getSolverName() {
+        return solverName;
+    }
+
+    /**
+     * Getter for the name of the heuristic
+     * @return the heuristic class name, or null for searches without a heuristic
+     */
+    public String getHeuristicName() {
+        return heuristicName;
+    }
+
+    /**
+     * Getter for the number of expanded grids
+     * @return the number of grids whose successors were generated
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * Getter for the number of generated grids
+     * @return the number of new grids added to the search
+     */
+    public long getNodesGenerated() {
+        return nodesGenerated;
+    }
+
+    /**
+     * Getter for the number of duplicate successors
+     * @return the number of successors dropped because their states had been reached before
+     */
+    public long getDuplicatesRejected() {
+        return duplicatesRejected;
+    }
+
+    /**
+     * Getter for the peak size of the open list
+     * @return the largest number of grids waiting to be expanded at once
+     */
+    public long getPeakFrontier() {
+        return peakFrontier;
+    }
+
+    /**
+     * Getter for the peak size of the closed list
+     * @return the largest number of states remembered at once to detect duplicates
+     */
+    public long getPeakClosed() {
+        return peakClosed;
+    }
+
+    /**
+     * Getter for the size of the open list
+     * @return the number of grids waiting to be expanded, as last recorded
+     */
+    public long getFrontierSize() {
+        return frontierSize;
+    }
+
+    /**
+     * Getter for the size of the closed list
+     * @return the number of states remembered to detect duplicates, as last recorded
+     */
+    public long getClosedSize() {
+        return closedSize;
+    }
+
+    /**
+     * Getter for the time since the search started, or its total time once it has finished
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return (endTime == 0 ? System.nanoTime() : endTime) - startTime;
+    }
+
+    /**
+     * Getter for the expansion rate
+     * @return the number of grids expanded per second of elapsed time
+     */
+    public double getNodesPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed == 0 ? 0 : nodesExpanded * 1e9 / elapsed;
+    }
+
+    /**
+     * Estimates the time spent in a phase from the sampled iterations
+     * @param phase the phase
+     * @return the estimated time in nanoseconds
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Getter for whether the search has finished
+     * @return true once solve has returned
+     */
+    public boolean isFinished() {
+        return endTime != 0;
+    }
+
+    /**
+     * Checks whether the search was asked to stop
+     * @return true if cancel has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Getter for the length of the solution
+     * @return the number of swipes in the solution, or -1 if there is none or the search hasn't finished
+     */
+    public int getSolutionLength() {
+        return solutionLength;
+    }
+
+    /**
+     * Formats the stats as one line of JSON, with times in microseconds
+     * @return e.g. {"solver":"PuzzleSolverAStar","heuristic":"AStarHeuristic","finished":true,...}
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(384);
+        json.append("{\"solver\":\"").append(solverName).append('"');
+        json.append(",\"heuristic\":").append(heuristicName == null ? "null" : "\"" + heuristicName + "\"");
+        json.append(",\"finished\":").append(isFinished());
+        json.append(",\"cancelled\":").append(cancelled);
+        json.append(",\"solutionLength\":").append(solutionLength);
+        json.append(",\"elapsedMicros\":").append(getElapsedNanos() / 1000);
+        json.append(",\"nodesExpanded\":").append(nodesExpanded);
+        json.append(",\"nodesGenerated\":").append(nodesGenerated);
+        json.append(",\"duplicatesRejected\":").append(duplicatesRejected);
+        json.append(",\"pruned\":{");
+        for(int rule = 0; pruning != null && rule < pruning.getNumRules(); rule++) {
+            json.append(rule == 0 ? "\"" : ",\"").append(pruning.getRuleName(rule)).append("\":")
+                    .append(pruning.getPruned(rule));
+        }
+        json.append('}');
+        json.append(",\"peakFrontier\":").append(peakFrontier);
+        json.append(",\"peakClosed\":").append(peakClosed);
+        json.append(",\"nodesPerSecond\":").append(Math.round(getNodesPerSecond()));
+        json.append(",\"successorMicros\":").append(getPhaseNanos(Phase.SUCCESSORS) / 1000);
+        json.append(",\"heuristicMicros\":").append(getPhaseNanos(Phase.HEURISTIC) / 1000);
+        json.append(",\"listMicros\":").append(getPhaseNanos(Phase.LISTS) / 1000);
+        json.append('}');
+        return json.toString();
+    }
+}
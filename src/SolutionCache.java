@@ -0,0 +1,459 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of solved puzzles, so a puzzle that has been solved before with the same solver is answered without a search
+ * Keyed by a 128-bit fingerprint of the puzzle (grid, goal tile, and spawn pool) and the solver options. Solutions are
+ * kept in two tiers: the most recently used ones in memory, ready to return, and every one ever stored in an
+ * append-only file that is memory-mapped and indexed when the cache is opened. A solution read from the file is only
+ * used after replaying its moves on the puzzle with PuzzleGrid.move and reaching the goal, so a damaged or stale
+ * file can cost a search but never give a wrong answer; a puzzle with no solution is stored as such
+ * One cache is opened per file and shared by every solver in the JVM; its state is only touched while synchronized on
+ * it, but a lookup replays a stored solution without holding the lock, so one slow replay doesn't stall every other
+ * solver. Several JVMs may share a file: each one appends under an exclusive FileLock, after indexing the records the
+ * others have appended since it last looked, and a lookup that misses takes a shared lock to index them before giving up
+ */
+public class SolutionCache {
+
+    private static final long FILE_MAGIC = 0x32303438534f4c43L;  // "2048SOLC"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_BYTES = Long.BYTES + Integer.BYTES;
+    private static final int RECORD_MAGIC = 0x534f4c4e;  // "SOLN", at the start of every record
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+    private static final int NO_SOLUTION = -1;  // move count of a puzzle with no solution
+    private static final long HIGH_SEED = 0x6a09e667f3bcc908L;  // starting values of the two halves of a fingerprint
+    private static final long LOW_SEED = 0xbb67ae8584caa73bL;
+
+    private static final Map<Path, SolutionCache> OPEN_CACHES = new HashMap<>();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;  // the records in the file when it was opened
+    private final long mappedEnd;  // end of the last whole record in the mapping
+    private long fileEnd;  // end of the last whole record indexed, where the next record is appended
+    private final Map<Fingerprint, Long> offsets = new HashMap<>();  // record of each fingerprint, the latest one wins
+    private final LinkedHashMap<Fingerprint, CachedSolution> recent;  // least recently used first
+
+    /**
+     * 128-bit fingerprint of a puzzle and the options of the solver that solved it
+     */
+    public static class Fingerprint {
+
+        private final long high;
+        private final long low;
+
+        /**
+         * Constructor for a fingerprint
+         * @param high the upper 64 bits
+         * @param low the lower 64 bits
+         */
+        private Fingerprint(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        /**
+         * Checks if another object is the same fingerprint
+         * @param other the object to compare against
+         * @return true if both halves are equal
+         */
+        @Override
+        public boolean equals(Object other) {
+            if(!(other instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint fingerprint = (Fingerprint) other;
+            return high == fingerprint.high && low == fingerprint.low;
+        }
+
+        /**
+         * Hashes the fingerprint, which is already uniformly distributed
+         * @return the low half, folded to an int
+         */
+        @Override
+        public int hashCode() {
+            return (int) (low ^ (low >>> 32));
+        }
+
+        /**
+         * Converts the fingerprint to hex
+         * @return 32 hex digits
+         */
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", high, low);
+        }
+    }
+
+    /**
+     * A cached answer: the solution, or the knowledge that there is none
+     */
+    public static class CachedSolution {
+
+        private final PuzzleGrid solution;
+
+        /**
+         * Constructor for an answer
+         * @param solution the solved grid, or null if the puzzle has no solution
+         */
+        private CachedSolution(PuzzleGrid solution) {
+            this.solution = solution;
+        }
+
+        /**
+         * Getter for the solution
+         * @return the solved grid, with its move history, or null if the puzzle has no solution
+         */
+        public PuzzleGrid getSolution() {
+            return solution;
+        }
+    }
+
+    /**
+     * Opens the cache kept in a file, or returns the one already open for it
+     * @param path the file of the on-disk tier, created if it does not exist
+     * @param capacity the number of solutions kept in memory
+     * @return the cache
+     */
+    public static synchronized SolutionCache open(Path path, int capacity) {
+        Path key = path.toAbsolutePath().normalize();
+        SolutionCache cache = OPEN_CACHES.get(key);
+        if(cache == null) {
+            cache = new SolutionCache(key, capacity);
+            OPEN_CACHES.put(key, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Constructor to open the file, map it, and index its records
+     * @param path the file of the on-disk tier
+     * @param capacity the number of solutions kept in memory
+     */
+    private SolutionCache(Path path, int capacity) {
+        this.path = path;
+        this.recent = new LinkedHashMap<Fingerprint, CachedSolution>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, CachedSolution> eldest) {
+                return size() > capacity;
+            }
+        };
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            // another JVM may be creating the file or appending to it, so map it only between whole records
+            FileLock lock = channel.lock();
+            try {
+                long size = channel.size();
+                if(size > Integer.MAX_VALUE) {
+                    throw new Error("Solution cache " + path + " is larger than 2 GB");
+                }
+                if(size == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+                    header.putLong(FILE_MAGIC).putInt(VERSION).flip();
+                    writeFully(header, 0);
+                    size = FILE_HEADER_BYTES;
+                }
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } finally {
+                lock.release();
+            }
+        } catch(IOException e) {
+            throw new Error("Could not open solution cache " + path, e);
+        }
+        if(mapped.capacity() < FILE_HEADER_BYTES || mapped.getLong(0) != FILE_MAGIC || mapped.getInt(Long.BYTES) != VERSION) {
+            throw new Error(path + " is not a solution cache of this version");
+        }
+        mappedEnd = indexRecords();
+        fileEnd = mappedEnd;  // a record cut short by a crash is written over
+    }
+
+    /**
+     * Helper function to index the records appended after fileEnd, e.g. by another JVM sharing the file
+     * Must be called with a lock on the file held, so no record is being written; it stops at the first incomplete one
+     * @throws IOException if the file can't be read
+     */
+    private void indexAppended() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while(size - fileEnd >= RECORD_HEADER_BYTES) {
+            header.clear();
+            readFully(header, fileEnd);
+            int moveCount = header.getInt(Integer.BYTES + 2 * Long.BYTES);
+            long recordBytes = RECORD_HEADER_BYTES + (long) Math.max(moveCount, 0);
+            if(header.getInt(0) != RECORD_MAGIC || moveCount < NO_SOLUTION || recordBytes > size - fileEnd) {
+                break;
+            }
+            Fingerprint fingerprint = new Fingerprint(header.getLong(Integer.BYTES), header.getLong(Integer.BYTES + Long.BYTES));
+            offsets.put(fingerprint, fileEnd);
+            recent.remove(fingerprint);  // the latest record wins, as when the file is indexed at startup
+            fileEnd += recordBytes;
+        }
+    }
+
+    /**
+     * Helper function to index the records in the mapping, stopping at the first one that is incomplete
+     * @return the end of the last whole record
+     */
+    private long indexRecords() {
+        int position = FILE_HEADER_BYTES;
+        int limit = mapped.capacity();
+        while(limit - position >= RECORD_HEADER_BYTES && mapped.getInt(position) == RECORD_MAGIC) {
+            int moveCount = mapped.getInt(position + Integer.BYTES + 2 * Long.BYTES);
+            long recordBytes = RECORD_HEADER_BYTES + (long) Math.max(moveCount, 0);
+            if(moveCount < NO_SOLUTION || recordBytes > limit - position) {
+                break;
+            }
+            Fingerprint fingerprint = new Fingerprint(mapped.getLong(position + Integer.BYTES),
+                    mapped.getLong(position + Integer.BYTES + Long.BYTES));
+            offsets.put(fingerprint, (long) position);
+            position += (int) recordBytes;
+        }
+        return position;
+    }
+
+    /**
+     * Computes the fingerprint of a puzzle and the solver options
+     * @param initialGrid a 2D matrix, as read by InputScanner
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @param solverDescription the options that choose the search, since different searches find different solutions
+     * @return the fingerprint
+     */
+    public static Fingerprint fingerprint(int[][] initialGrid, int goalTile, int[] spawnPool, String solverDescription) {
+        // every value that defines the puzzle and the search, in a fixed order, with the lengths that delimit them
+        int numValues = 4 + solverDescription.length() + spawnPool.length;
+        for(int[] row : initialGrid) {
+            numValues += 1 + row.length;
+        }
+        long[] values = new long[numValues];
+        int next = 0;
+        values[next++] = solverDescription.length();
+        for(int i = 0; i < solverDescription.length(); i++) {
+            values[next++] = solverDescription.charAt(i);
+        }
+        values[next++] = goalTile;
+        values[next++] = spawnPool.length;
+        for(int tile : spawnPool) {
+            values[next++] = tile;
+        }
+        values[next++] = initialGrid.length;
+        for(int[] row : initialGrid) {
+            values[next++] = row.length;
+            for(int tile : row) {
+                values[next++] = tile;
+            }
+        }
+
+        // two independent 64-bit hashes of the values
+        long high = HIGH_SEED;
+        long low = LOW_SEED;
+        for(long value : values) {
+            high = Long.rotateLeft(high ^ mix(value ^ HIGH_SEED), 27) * 0x9e3779b97f4a7c15L;
+            low = Long.rotateLeft(low ^ mix(value ^ LOW_SEED), 31) * 0xc2b2ae3d27d4eb4fL;
+        }
+        return new Fingerprint(mix(high ^ numValues), mix(low ^ numValues));
+    }
+
+    /**
+     * Helper function to scramble the bits of a value (the finalizer of MurmurHash3)
+     * @param value the value to scramble
+     * @return the scrambled value
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Looks up the answer for a puzzle, first in memory and then on disk
+     * An answer found on disk is replayed from the initial grid before it is returned, and kept in memory afterwards
+     * @param fingerprint the fingerprint of the puzzle and solver
+     * @param initialGrid the puzzle the fingerprint was computed from, which is not changed
+     * @return the answer, or null if the puzzle is not in the cache or its stored solution does not replay
+     */
+    public CachedSolution lookup(Fingerprint fingerprint, PuzzleGrid initialGrid) {
+        long offset;
+        String moves;
+        synchronized(this) {
+            CachedSolution entry = recent.get(fingerprint);
+            if(entry != null) {
+                return entry;
+            }
+            Long found = findOffset(fingerprint);
+            if(found == null) {
+                return null;
+            }
+            offset = found;
+            moves = readMoves(offset);
+        }
+
+        // replaying takes a few milliseconds for a long solution, so other lookups and stores may run meanwhile
+        PuzzleGrid solution = moves == null ? null : replay(initialGrid, moves);
+
+        synchronized(this) {
+            // a store while replaying supersedes the record that was read, so leave its entries alone
+            Long current = offsets.get(fingerprint);
+            boolean latest = current != null && current == offset;
+            if(moves != null && solution == null) {
+                if(latest) {
+                    offsets.remove(fingerprint);  // don't replay it again; a new solve will supersede it
+                }
+                return null;
+            }
+            CachedSolution entry = new CachedSolution(solution);
+            if(latest) {
+                recent.put(fingerprint, entry);
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Helper function to find the record of a fingerprint, first indexing any records other JVMs have appended
+     * Must be called while synchronized on the cache
+     * @param fingerprint the fingerprint of the puzzle and solver
+     * @return the position of the record in the file, or null if there is none
+     */
+    private Long findOffset(Fingerprint fingerprint) {
+        Long offset = offsets.get(fingerprint);
+        if(offset == null) {
+            try {
+                FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+                try {
+                    indexAppended();
+                } finally {
+                    lock.release();
+                }
+            } catch(IOException e) {
+                throw new Error("Could not read solution cache " + path, e);
+            }
+            offset = offsets.get(fingerprint);
+        }
+        return offset;
+    }
+
+    /**
+     * Adds the answer for a puzzle to both tiers
+     * @param fingerprint the fingerprint of the puzzle and solver
+     * @param solution the solved grid, or null if the puzzle has no solution
+     */
+    public synchronized void store(Fingerprint fingerprint, PuzzleGrid solution) {
+        byte[] moves = solution == null ? new byte[0] : solution.getMoveString().getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + moves.length);
+        record.putInt(RECORD_MAGIC).putLong(fingerprint.high).putLong(fingerprint.low);
+        record.putInt(solution == null ? NO_SOLUTION : moves.length).put(moves).flip();
+        try {
+            FileLock lock = channel.lock();
+            try {
+                indexAppended();  // append after the records of every other JVM sharing the file
+                writeFully(record, fileEnd);
+            } finally {
+                lock.release();
+            }
+        } catch(IOException e) {
+            throw new Error("Could not write solution cache " + path, e);
+        }
+        offsets.put(fingerprint, fileEnd);
+        fileEnd += record.capacity();
+        recent.put(fingerprint, new CachedSolution(solution));
+    }
+
+    /**
+     * Helper function to read the moves of a record, from the mapping if it was in the file at startup
+     * @param offset the position of the record in the file
+     * @return the moves, or null if the record is of a puzzle with no solution
+     */
+    private String readMoves(long offset) {
+        int moveCount;
+        byte[] moves;
+        if(offset < mappedEnd) {
+            int position = (int) offset;
+            moveCount = mapped.getInt(position + Integer.BYTES + 2 * Long.BYTES);
+            moves = new byte[Math.max(moveCount, 0)];
+            mapped.get(position + RECORD_HEADER_BYTES, moves);
+        } else {
+            try {
+                ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+                readFully(count, offset + Integer.BYTES + 2 * Long.BYTES);
+                moveCount = count.getInt(0);
+                ByteBuffer record = ByteBuffer.allocate(Math.max(moveCount, 0));
+                readFully(record, offset + RECORD_HEADER_BYTES);
+                moves = record.array();
+            } catch(IOException e) {
+                throw new Error("Could not read solution cache " + path, e);
+            }
+        }
+        return moveCount == NO_SOLUTION ? null : new String(moves, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Replays stored moves on a puzzle to check that they are legal and reach the goal
+     * @param initialGrid the puzzle's starting grid, which is not changed
+     * @param moves the stored moves
+     * @return the solved grid with the moves in its history, or null if a move is not a legal swipe or the goal is
+     * not reached
+     */
+    public static PuzzleGrid replay(PuzzleGrid initialGrid, String moves) {
+        PuzzleGrid grid = new PuzzleGrid(initialGrid);
+        for(int i = 0; i < moves.length(); i++) {
+            char direction = moves.charAt(i);
+            if(direction != 'U' && direction != 'D' && direction != 'L' && direction != 'R') {
+                return null;
+            }
+            if(!grid.move(direction)) {
+                return null;  // a solution never contains a swipe that leaves the grid unchanged
+            }
+        }
+        return grid.checkGoal() ? grid : null;
+    }
+
+    /**
+     * Helper function to write a whole buffer at a position
+     * @param buffer the bytes to write
+     * @param position the position in the file
+     * @throws IOException if the write fails
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Helper function to fill a buffer from a position
+     * @param buffer the buffer to fill
+     * @param position the position in the file
+     * @throws IOException if the read fails or the file ends first
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if(read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Getter for the number of puzzles in the file
+     * @return the number of distinct fingerprints stored on disk
+     */
+    public synchronized int size() {
+        return offsets.size();
+    }
+}
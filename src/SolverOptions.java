@@ -0,0 +1,409 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line options that choose which PuzzleSolver to run
+ * The first argument is the heuristic (0 or nothing for non-admissible, 1 for admissible); it can be followed by
+ * --solver=astar|greedy|hda|bfs|id|ida|rbfs|sma|beam|external to pick the search, --threads=N to set how many threads
+ * the parallel searches use, --max-nodes=N to cap the search tree of SMA* (by default it may use half of the heap),
+ * --beam-width=K to set how many grids beam search keeps per depth, and --scratch-dir=PATH for the files of the
+ * external-memory search
+ * A* and greedy best-first search also take --checkpoint=PATH to save their state every --checkpoint-interval=SECONDS
+ * (5 minutes by default) and --resume=PATH to continue from a saved state
+ * --stats prints the search stats as a JSON line to standard error when the solve finishes, and
+ * --stats-interval=SECONDS also prints them periodically while it runs
+ * --batch=PATH solves every puzzle in a directory, or listed in a manifest file, on --workers=N threads instead of
+ * reading one puzzle from standard input, and --time-limit=SECONDS stops any solve that runs longer
+ * --listen=PORT|PATH runs a daemon that answers puzzle requests on a loopback port or a Unix socket, after solving a
+ * built-in puzzle for --warmup=SECONDS (2 by default) so the answers come from compiled code
+ * --cache=PATH answers puzzles solved before with the same options from a solution cache kept in that file, holding
+ * the --cache-size=N most recently used solutions (1024 by default) in memory
+ * --no-pruning turns off the dead-state tests every solver runs on new grids (see PruningStage)
+ * --moves=scalar|vector picks the MoveEngine for the whole process, which slides the rows and columns too long for
+ * the move tables; vector needs --add-modules jdk.incubator.vector and falls back to scalar without it
+ */
+public class SolverOptions {
+
+    private static final double SMA_HEAP_FRACTION = 0.5;  // share of the heap SMA* may use without --max-nodes
+
+    private HeuristicType heuristicType;
+    private String solverName = "astar";
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private int maxNodes = 0;  // 0 to size the SMA* budget from the heap
+    private int beamWidth = 100;
+    private Path scratchDirectory = null;  // null for a temporary directory
+    private Path checkpointFile = null;  // null to run without checkpoints
+    private int checkpointInterval = 300;
+    private Path resumeFile = null;  // null to start a new search
+    private boolean printStats = false;
+    private int statsInterval = 0;  // 0 for no snapshots while the search runs
+    private Path batchPath = null;  // null to solve the one puzzle on standard input
+    private int numWorkers = Runtime.getRuntime().availableProcessors();
+    private int timeLimit = 0;  // 0 to let every solve run to the end
+    private String listenAddress = null;  // null to solve puzzles without a daemon
+    private int warmup = 2;
+    private Path cacheFile = null;  // null to always search
+    private int cacheSize = 1024;
+    private boolean pruning = true;  // false to search without the dead-state tests
+    private String moveEngine = null;  // null to keep the process's move engine
+
+    /**
+     * Constructor to parse the options passed to MainPuzzle
+     * @param args the command line arguments, the heuristic first
+     */
+    public SolverOptions(String[] args) {
+        // determine type of heuristic based on input from bash script
+        String heuristic = args.length > 0 ? args[0] : "";
+        if(heuristic.equals("") || heuristic.equals("0")) {
+            heuristicType = HeuristicType.NONADMISSIBLE;
+        } else if(heuristic.equals("1")) {
+            heuristicType = HeuristicType.ADMISSIBLE;
+        } else {
+            throw new Error("Expected second argument to run.sh to be 0, 1, or nothing");
+        }
+
+        for(int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if(arg.startsWith("--solver=")) {
+                solverName = arg.substring("--solver=".length());
+            } else if(arg.startsWith("--threads=")) {
+                numThreads = parsePositive(arg.substring("--threads=".length()), "--threads");
+            } else if(arg.startsWith("--max-nodes=")) {
+                maxNodes = parsePositive(arg.substring("--max-nodes=".length()), "--max-nodes");
+            } else if(arg.startsWith("--beam-width=")) {
+                beamWidth = parsePositive(arg.substring("--beam-width=".length()), "--beam-width");
+            } else if(arg.startsWith("--scratch-dir=")) {
+                scratchDirectory = Paths.get(arg.substring("--scratch-dir=".length()));
+            } else if(arg.startsWith("--checkpoint=")) {
+                checkpointFile = Paths.get(arg.substring("--checkpoint=".length()));
+            } else if(arg.startsWith("--checkpoint-interval=")) {
+                checkpointInterval = parsePositive(arg.substring("--checkpoint-interval=".length()), "--checkpoint-interval");
+            } else if(arg.equals("--stats")) {
+                printStats = true;
+            } else if(arg.startsWith("--stats-interval=")) {
+                printStats = true;
+                statsInterval = parsePositive(arg.substring("--stats-interval=".length()), "--stats-interval");
+            } else if(arg.startsWith("--resume=")) {
+                resumeFile = Paths.get(arg.substring("--resume=".length()));
+            } else if(arg.startsWith("--batch=")) {
+                batchPath = Paths.get(arg.substring("--batch=".length()));
+            } else if(arg.startsWith("--workers=")) {
+                numWorkers = parsePositive(arg.substring("--workers=".length()), "--workers");
+            } else if(arg.startsWith("--time-limit=")) {
+                timeLimit = parsePositive(arg.substring("--time-limit=".length()), "--time-limit");
+            } else if(arg.startsWith("--listen=")) {
+                listenAddress = arg.substring("--listen=".length());
+            } else if(arg.startsWith("--cache=")) {
+                cacheFile = Paths.get(arg.substring("--cache=".length()));
+            } else if(arg.startsWith("--cache-size=")) {
+                cacheSize = parsePositive(arg.substring("--cache-size=".length()), "--cache-size");
+            } else if(arg.equals("--no-pruning")) {
+                pruning = false;
+            } else if(arg.startsWith("--moves=")) {
+                moveEngine = arg.substring("--moves=".length());
+                if(!moveEngine.equals("scalar") && !moveEngine.equals("vector")) {
+                    throw new Error("Expected --moves to be scalar or vector");
+                }
+            } else if(arg.startsWith("--warmup=")) {
+                warmup = arg.equals("--warmup=0") ? 0 : parsePositive(arg.substring("--warmup=".length()), "--warmup");
+            } else {
+                throw new Error("Unrecognized option " + arg);
+            }
+        }
+        if((batchPath != null || listenAddress != null) && (checkpointFile != null || resumeFile != null)) {
+            throw new Error("--checkpoint and --resume name one file, so they cannot be used with --batch or --listen");
+        }
+        if(batchPath != null && listenAddress != null) {
+            throw new Error("Expected only one of --batch and --listen");
+        }
+    }
+
+    /**
+     * Creates the PuzzleSolver selected by the options, behind the solution cache if there is one
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @return a PuzzleSolver ready to solve the puzzle
+     */
+    public PuzzleSolver createSolver(int[][] initialGrid, int goalTile, int[] spawnPool) {
+        if(cacheFile != null) {
+            return new PuzzleSolverCached(() -> createUncachedSolver(initialGrid, goalTile, spawnPool),
+                    SolutionCache.open(cacheFile, cacheSize), initialGrid, goalTile, spawnPool, getSolverDescription());
+        }
+        return createUncachedSolver(initialGrid, goalTile, spawnPool);
+    }
+
+    /**
+     * Creates the PuzzleSolver selected by the options, ignoring the solution cache
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @return a PuzzleSolver ready to solve the puzzle
+     */
+    public PuzzleSolver createUncachedSolver(int[][] initialGrid, int goalTile, int[] spawnPool) {
+        PuzzleSolver solver = createSearch(initialGrid, goalTile, spawnPool);
+        if(!pruning) {
+            solver.setPruningStage(new PruningStage());
+        }
+        return solver;
+    }
+
+    /**
+     * Helper function to create the PuzzleSolver for the search selected by the options
+     * @param initialGrid a 2D matrix
+     * @param goalTile the tile that is trying to be obtained in the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     * @return a PuzzleSolver ready to solve the puzzle
+     */
+    private PuzzleSolver createSearch(int[][] initialGrid, int goalTile, int[] spawnPool) {
+        if((checkpointFile != null || resumeFile != null) && !solverName.equals("astar") && !solverName.equals("greedy")) {
+            throw new Error("Only the astar and greedy solvers support --checkpoint and --resume");
+        }
+
+        switch(solverName) {
+            case "astar":
+                PuzzleSolverAStar aStar = new PuzzleSolverAStar(initialGrid, goalTile, spawnPool, heuristicType);
+                if(resumeFile != null) {
+                    aStar.resume(resumeFile);
+                }
+                if(checkpointFile != null) {
+                    aStar.enableCheckpoints(checkpointFile, checkpointInterval * 1000L);
+                }
+                return aStar;
+            case "greedy":
+                PuzzleSolverGrBeFGS greedy = new PuzzleSolverGrBeFGS(initialGrid, goalTile, spawnPool);  // its own heuristic
+                if(resumeFile != null) {
+                    greedy.resume(resumeFile);
+                }
+                if(checkpointFile != null) {
+                    greedy.enableCheckpoints(checkpointFile, checkpointInterval * 1000L);
+                }
+                return greedy;
+            case "hda":
+                return new PuzzleSolverHDAStar(initialGrid, goalTile, spawnPool, heuristicType, numThreads);
+            case "bfs":
+                return new PuzzleSolverBFS(initialGrid, goalTile, spawnPool, numThreads);  // BFS needs no heuristic
+            case "id":
+                return new PuzzleSolverID(initialGrid, goalTile, spawnPool);  // iterative deepening needs no heuristic
+            case "ida":
+                return new PuzzleSolverIDAStar(initialGrid, goalTile, spawnPool);  // always admissible
+            case "rbfs":
+                return new PuzzleSolverRGrBeFGS(initialGrid, goalTile, spawnPool, createRankingHeuristic());
+            case "sma":
+                if(maxNodes > 0) {  // always admissible
+                    return new PuzzleSolverSMAStar(initialGrid, goalTile, spawnPool, maxNodes);
+                }
+                return new PuzzleSolverSMAStar(initialGrid, goalTile, spawnPool, SMA_HEAP_FRACTION);
+            case "beam":
+                return new PuzzleSolverBeam(initialGrid, goalTile, spawnPool, beamWidth, createRankingHeuristic(), numThreads);
+            case "external":
+                return new PuzzleSolverExternalBFS(initialGrid, goalTile, spawnPool, scratchDirectory, 1 << 20);  // BFS needs no heuristic
+            default:
+                throw new Error("Expected --solver to be astar, greedy, hda, bfs, id, ida, rbfs, sma, beam, or external");
+        }
+    }
+
+    /**
+     * Describes the options that decide which solution is found, so solutions are only cached for the same options
+     * The thread counts are left out: they change how fast a solution is found, not which one. The SMA* node budget
+     * is the one the search will actually get, so an answer found under a small heap isn't reused under a larger one
+     * @return the solver, heuristic, beam width, and SMA* node budget
+     */
+    public String getSolverDescription() {
+        int budget = maxNodes;
+        if(solverName.equals("sma") && budget == 0) {
+            budget = PuzzleSolverSMAStar.nodesForHeapFraction(SMA_HEAP_FRACTION);
+        }
+        return solverName + " " + heuristicType + " " + beamWidth + " " + budget;
+    }
+
+    /**
+     * Helper function to create the heuristic for searches that only rank grids rather than add up path costs
+     * @return the admissible heuristic, or the greedy best-first heuristic for the non-admissible choice
+     */
+    private Heuristic createRankingHeuristic() {
+        if(heuristicType == HeuristicType.ADMISSIBLE) {
+            return new AStarHeuristicAdmissible();
+        }
+        return new GrBeFGSHeuristic();
+    }
+
+    /**
+     * Helper function to parse a positive integer option
+     * @param value the text after the option name
+     * @param option the option name, for the error message
+     * @return the parsed value
+     */
+    private static int parsePositive(String value, String option) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch(NumberFormatException e) {
+            throw new Error("Expected " + option + " to be a positive integer");
+        }
+        if(parsed < 1) {
+            throw new Error("Expected " + option + " to be a positive integer");
+        }
+        return parsed;
+    }
+
+    /**
+     * Getter for the heuristic type
+     * @return ADMISSIBLE or NONADMISSIBLE
+     */
+    public HeuristicType getHeuristicType() {
+        return heuristicType;
+    }
+
+    /**
+     * Getter for the name of the selected solver
+     * @return "astar", "greedy", "hda", "bfs", "id", "ida", "rbfs", "sma", "beam", or "external"
+     */
+    public String getSolverName() {
+        return solverName;
+    }
+
+    /**
+     * Getter for the node budget of SMA*
+     * @return the largest number of nodes, or 0 to size the budget from the heap
+     */
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Getter for the beam width
+     * @return the number of grids beam search keeps per depth
+     */
+    public int getBeamWidth() {
+        return beamWidth;
+    }
+
+    /**
+     * Getter for the directory the external-memory search keeps its files in
+     * @return the scratch directory, or null for a temporary directory
+     */
+    public Path getScratchDirectory() {
+        return scratchDirectory;
+    }
+
+    /**
+     * Getter for the file that A* and greedy best-first search save their state to
+     * @return the checkpoint file, or null to run without checkpoints
+     */
+    public Path getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Getter for the time between checkpoints
+     * @return the checkpoint interval in seconds
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Getter for the file a search resumes from
+     * @return the checkpoint to resume from, or null to start a new search
+     */
+    public Path getResumeFile() {
+        return resumeFile;
+    }
+
+    /**
+     * Getter for whether to print the search stats
+     * @return true to print the stats as JSON to standard error
+     */
+    public boolean getPrintStats() {
+        return printStats;
+    }
+
+    /**
+     * Getter for the time between snapshots of the search stats
+     * @return the snapshot interval in seconds, or 0 for no snapshots
+     */
+    public int getStatsInterval() {
+        return statsInterval;
+    }
+
+    /**
+     * Getter for the puzzles to solve in batch mode
+     * @return a directory of puzzle files or a manifest listing them, or null to solve one puzzle from standard input
+     */
+    public Path getBatchPath() {
+        return batchPath;
+    }
+
+    /**
+     * Getter for the number of puzzles solved at once in batch and daemon mode
+     * @return the number of search threads
+     */
+    public int getNumWorkers() {
+        return numWorkers;
+    }
+
+    /**
+     * Getter for the time limit of each solve
+     * @return the limit in seconds, or 0 for no limit
+     */
+    public int getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Getter for the address the daemon listens on
+     * @return a port number for a loopback port or a path for a Unix socket, or null to run without a daemon
+     */
+    public String getListenAddress() {
+        return listenAddress;
+    }
+
+    /**
+     * Getter for how long the daemon warms up before it accepts requests
+     * @return the warm-up time in seconds, or 0 for none
+     */
+    public int getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Getter for the file of the solution cache
+     * @return the cache file, or null to run without a cache
+     */
+    public Path getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Getter for the size of the in-memory tier of the solution cache
+     * @return the number of solutions kept in memory
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Getter for the move engine to select for the process
+     * @return scalar or vector, or null if --moves was not given
+     */
+    public String getMoveEngine() {
+        return moveEngine;
+    }
+
+    /**
+     * Lowers the number of threads a parallel solver may use, e.g. to keep a daemon request within the daemon's own
+     * @param maxThreads the most threads to allow
+     */
+    void limitThreads(int maxThreads) {
+        numThreads = Math.min(numThreads, maxThreads);
+    }
+
+    /**
+     * Getter for the number of threads a parallel solver may use
+     * @return the number of threads
+     */
+    public int getNumThreads() {
+        return numThreads;
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.*;
+
+/**
+ * Per-puzzle dictionary that maps tile values to small integer codes
+ * Only values that can ever appear in the puzzle are given a code: every distinct tile in the initial grid or
+ * spawn pool, and every value reachable from those by repeated doubling (merging)
+ * Codes are assigned in ascending order of tile value, so comparing codes is the same as comparing tiles
+ */
+public class TileCodec {
+
+    private final int[] values;  // tile value of each code, where code 0 is the empty cell
+    private final int[] doubled;  // code of the tile produced by merging two tiles of each code
+    private final boolean[] powerOfTwo;  // whether each code is a power of 2 (and so can contribute to a goal)
+    private final HashMap<Integer, Integer> codes;  // reverse lookup from tile value to code
+    private final int bitsPerCell;
+
+    /**
+     * Constructor to build the tile dictionary for a puzzle
+     * @param initialGrid a 2D matrix representing the grid
+     * @param spawnPool list of tile numbers that spawn at the corners in order
+     */
+    public TileCodec(int[][] initialGrid, int[] spawnPool) {
+
+        // find the smallest power of 2 multiplier seen for every odd base; e.g. 12 = 3 * 2^2
+        TreeMap<Integer, Integer> minExponents = new TreeMap<>();
+        for(int[] row : initialGrid) {
+            for(int tile : row) {
+                addBase(minExponents, tile);
+            }
+        }
+        for(int spawn : spawnPool) {
+            addBase(minExponents, spawn);
+        }
+
+        // every base can only double from its smallest value until it no longer fits in an int
+        TreeSet<Integer> reachable = new TreeSet<>();
+        for(Map.Entry<Integer, Integer> entry : minExponents.entrySet()) {
+            long value = (long) entry.getKey() << entry.getValue();
+            while(value <= Integer.MAX_VALUE) {
+                reachable.add((int) value);
+                value *= 2;
+            }
+        }
+
+        int numCodes = reachable.size() + 1;  // one extra code for the empty cell
+        this.values = new int[numCodes];
+        this.doubled = new int[numCodes];
+        this.powerOfTwo = new boolean[numCodes];
+        this.codes = new HashMap<>();
+
+        int code = 1;
+        for(int value : reachable) {
+            values[code] = value;
+            powerOfTwo[code] = Integer.bitCount(value) == 1;
+            codes.put(value, code);
+            code++;
+        }
+
+        for(code = 1; code < numCodes; code++) {
+            Integer doubledCode = codes.get(values[code] * 2);
+            // the largest tile of each base saturates instead of overflowing an int
+            doubled[code] = doubledCode != null ? doubledCode : code;
+        }
+
+        this.bitsPerCell = Math.max(1, 32 - Integer.numberOfLeadingZeros(numCodes - 1));
+    }
+
+    /**
+     * Helper function to record the odd base and power of 2 multiplier of a tile
+     * @param minExponents map from odd base to the smallest exponent seen for it so far
+     * @param tile the tile to record (empty cells are ignored)
+     */
+    private void addBase(TreeMap<Integer, Integer> minExponents, int tile) {
+        if(tile <= 0) {
+            return;
+        }
+        int exponent = Integer.numberOfTrailingZeros(tile);
+        minExponents.merge(tile >> exponent, exponent, Math::min);
+    }
+
+    /**
+     * Converts a tile value to its code
+     * @param value the tile value, or 0 for an empty cell
+     * @return the code of the tile, or -1 if the tile can never appear in this puzzle
+     */
+    public int encode(int value) {
+        if(value == 0) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : -1;
+    }
+
+    /**
+     * Converts a code back to its tile value
+     * @param code the code of the tile
+     * @return the tile value, or 0 for an empty cell
+     */
+    public int decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Finds the code of the tile produced by merging two tiles with the given code
+     * @param code the code of the two equal tiles
+     * @return the code of the merged tile
+     */
+    public int doubled(int code) {
+        return doubled[code];
+    }
+
+    /**
+     * Checks whether the tile with the given code is a power of 2
+     * @param code the code of the tile
+     * @return true if the tile is 1, 2, 4, 8, ... and false otherwise (including empty cells)
+     */
+    public boolean isPowerOfTwo(int code) {
+        return powerOfTwo[code];
+    }
+
+    /**
+     * Getter for the number of codes, including the empty cell
+     * @return the size of the dictionary
+     */
+    public int getNumCodes() {
+        return values.length;
+    }
+
+    /**
+     * Getter for the number of bits needed to store one code
+     * @return the number of bits per cell in a packed board
+     */
+    public int getBitsPerCell() {
+        return bitsPerCell;
+    }
+}
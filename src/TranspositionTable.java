@@ -0,0 +1,77 @@
+import java.util.Arrays;
+
+/**
+ * Bounded, direct-mapped table of the states a depth-first search has reached in its current iteration
+ * Each slot holds one state key with the fewest swipes it was reached with; a new state simply evicts whatever
+ * shared its slot, so the table never grows and a lost entry only costs a repeated search
+ * Entries are stamped with the iteration that wrote them, so starting a new iteration clears the table in O(1)
+ */
+public class TranspositionTable {
+
+    private final long[] keys;
+    private final int[] depths;  // fewest swipes the state in the slot was reached with
+    private final int[] stamps;  // iteration that wrote the slot, 0 if never written
+    private final int mask;
+    private int iteration;
+
+    /**
+     * Constructor to create an empty table
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    public TranspositionTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        this.keys = new long[size];
+        this.depths = new int[size];
+        this.stamps = new int[size];
+        this.mask = size - 1;
+        this.iteration = 1;
+    }
+
+    /**
+     * Forgets every entry so the next iteration of the search starts from an empty table
+     */
+    public void newIteration() {
+        iteration++;
+        if(iteration == Integer.MAX_VALUE) {  // practically unreachable, but stamps must never repeat
+            Arrays.fill(stamps, 0);
+            iteration = 1;
+        }
+    }
+
+    /**
+     * Records that a state has been reached, unless it was already reached this iteration with no more swipes
+     * A state reached again at the same or a greater depth is a transposition (or a cycle): everything below it
+     * has been or is being searched with at least as much of the threshold left, so it can be skipped
+     * @param stateKey the Zobrist key of the state
+     * @param depth the number of swipes made to reach the state
+     * @return true if the state should be searched, false if it can be skipped
+     */
+    public boolean visit(long stateKey, int depth) {
+        int slot = slot(stateKey);
+        if(stamps[slot] == iteration && keys[slot] == stateKey && depths[slot] <= depth) {
+            return false;
+        }
+        keys[slot] = stateKey;
+        depths[slot] = depth;
+        stamps[slot] = iteration;
+        return true;
+    }
+
+    /**
+     * Getter for the number of slots
+     * @return the capacity of the table
+     */
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Helper function to find the slot of a key
+     * @param key the state key
+     * @return the index of the slot the key maps to
+     */
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.SplittableRandom;
+
+/**
+ * Per-puzzle random keys for Zobrist hashing of grid states
+ * The key of a state is the XOR of one random value per (cell, tile code) pair plus one per spawn pool position,
+ * so a move updates it in O(changed cells) by XORing out the old tiles and XORing in the new ones
+ * Keys are drawn from a fixed seed so the same puzzle always hashes the same way from run to run
+ */
+public class ZobristTable {
+
+    private static final long SEED = 0x2048L;
+
+    private final int numCodes;
+    private final long[] cellKeys;  // cellKeys[cell * numCodes + code], zero for empty cells
+    private final long[] spawnKeys;  // one key per spawn pool position
+
+    /**
+     * Constructor to draw the random keys for a puzzle
+     * @param numCells the number of cells in the grid
+     * @param numCodes the number of tile codes, including the empty cell
+     * @param spawnPoolLength the number of tiles in the spawn pool
+     */
+    public ZobristTable(int numCells, int numCodes, int spawnPoolLength) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.numCodes = numCodes;
+        this.cellKeys = new long[numCells * numCodes];
+        for(int cell = 0; cell < numCells; cell++) {
+            for(int code = 1; code < numCodes; code++) {  // empty cells contribute nothing
+                cellKeys[cell * numCodes + code] = random.nextLong();
+            }
+        }
+        this.spawnKeys = new long[spawnPoolLength];
+        for(int i = 0; i < spawnPoolLength; i++) {
+            spawnKeys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Finds the key of a tile in a cell
+     * @param cell the row-major index of the cell
+     * @param code the code of the tile
+     * @return the random key, or 0 for an empty cell
+     */
+    public long cellKey(int cell, int code) {
+        return cellKeys[cell * numCodes + code];
+    }
+
+    /**
+     * Finds the key of a spawn pool position
+     * @param spawnIndex the position of the next tile to spawn
+     * @return the random key
+     */
+    public long spawnKey(int spawnIndex) {
+        return spawnKeys[spawnIndex];
+    }
+}
@@ -0,0 +1,17 @@
+#!/bin/bash
+# Usage: first argument is a directory of puzzle files, or a manifest listing one puzzle file per line
+# second argument should be 0 or nothing for non-admissible heuristic, 1 for admissible heuristic
+# further arguments are passed on, e.g. --workers=4 --time-limit=60
+# each puzzle's solution is written next to it as <puzzle>.solution.txt
+
+BATCH=$1
+
+HEURISTIC=$2
+
+# the vector move engine needs the incubating Vector API module at run time
+case " ${*:3} " in
+    *" --moves=vector "*) JAVA_OPTS="$JAVA_OPTS --add-modules jdk.incubator.vector" ;;
+esac
+
+javac --add-modules jdk.incubator.vector *.java
+java $JAVA_OPTS MainPuzzle "$HEURISTIC" --batch="$BATCH" "${@:3}"
@@ -0,0 +1,34 @@
+#!/bin/bash
+# Usage: the same arguments as run.sh, answered by a running daemon.sh instead of a new JVM
+# PUZZLE_DAEMON is the daemon's loopback port or Unix socket path, 20480 by default
+# a Unix socket needs nc with -U support; a port needs nothing but bash
+
+FILE1=$1
+SOL="${FILE1%.*}.solution.txt"
+
+HEURISTIC=$2
+
+ADDRESS=${PUZZLE_DAEMON:-20480}
+
+request() {
+    echo "solve $HEURISTIC ${*:3}"
+    cat "$FILE1"
+    echo  # the puzzle file may not end in a newline
+    echo "end"
+}
+
+if [[ "$ADDRESS" =~ ^[0-9]+$ ]]; then
+    exec 3<>"/dev/tcp/127.0.0.1/$ADDRESS" || exit 1
+    request "$@" >&3
+    cat <&3 > "$SOL"
+    exec 3<&-
+else
+    request "$@" | nc -U "$ADDRESS" > "$SOL"
+fi
+
+if [[ "$(head -c 6 "$SOL")" == "error:" ]]; then
+    cat "$SOL" >&2
+    rm "$SOL"
+    exit 1
+fi
+cat "$SOL"
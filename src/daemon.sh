@@ -0,0 +1,17 @@
+#!/bin/bash
+# Usage: first argument is the loopback port (20480 by default) or a Unix socket path to listen on
+# second argument should be 0 or nothing for non-admissible heuristic, 1 for admissible heuristic, and further
+# arguments pick the solver; both are used for the warm-up, while each request brings its own
+# e.g. ./daemon.sh 20480 0 --workers=4 --warmup=5
+
+ADDRESS=${1:-20480}
+
+HEURISTIC=$2
+
+# the vector move engine needs the incubating Vector API module at run time
+case " ${*:3} " in
+    *" --moves=vector "*) JAVA_OPTS="$JAVA_OPTS --add-modules jdk.incubator.vector" ;;
+esac
+
+javac --add-modules jdk.incubator.vector *.java
+java $JAVA_OPTS MainPuzzle "$HEURISTIC" --listen="$ADDRESS" "${@:3}"
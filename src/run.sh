@@ -1,12 +1,20 @@
 #~\bin\bash
 # Usage: second argument should be 0 or nothing for non-admissible heuristic
 # second argument should be 1 for admissible heuristic
+# further arguments pick the solver, e.g. --solver=hda --threads=8 for parallel A*
+# JVM options can be passed in JAVA_OPTS, e.g. JAVA_OPTS=-XX:StartFlightRecording:filename=search.jfr
+# --moves=vector slides long rows and columns with the Vector API (see MoveEngine)
 
 FILE1=$1
 SOL="${FILE1%.*}.solution.txt"
 
 HEURISTIC=$2
 
-javac MainPuzzle.java
-java MainPuzzle "$HEURISTIC" < "$FILE1" > "$SOL"
+# the vector move engine needs the incubating Vector API module at run time
+case " ${*:3} " in
+    *" --moves=vector "*) JAVA_OPTS="$JAVA_OPTS --add-modules jdk.incubator.vector" ;;
+esac
+
+javac --add-modules jdk.incubator.vector MainPuzzle.java VectorMoveEngine.java
+java $JAVA_OPTS MainPuzzle "$HEURISTIC" "${@:3}" < "$FILE1" > "$SOL"
 cat "$SOL"
@@ -1,4 +1,17 @@
 #!/bin/bash
+# Usage: first argument is a puzzle file, whose A* solution is replayed step by step into <puzzle>.solution.txt
+# or --check to run the checks of PuzzleTester on every puzzle in inputs and tests, or on the puzzle files given
+# after it; prints a line per case and exits with status 1 if any failed
+
+if [ "$1" = "--check" ]; then
+    FILES=("${@:2}")
+    if [ ${#FILES[@]} -eq 0 ]; then
+        FILES=(inputs/puzzle?.txt tests/test?.txt)
+    fi
+    javac PuzzleTester.java || exit 1
+    java PuzzleTester --check "${FILES[@]}"
+    exit
+fi
 
 FILE1=$1
 SOL="${FILE1%.*}.solution.txt"